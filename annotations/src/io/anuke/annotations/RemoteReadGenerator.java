@@ -43,13 +43,15 @@ public class RemoteReadGenerator{
                 .addParameter(int.class, "id") //ID of method type to read
                 .returns(void.class);
 
+        TypeName playerType = null;
+
         if(needsPlayer){
             //since the player type isn't loaded yet, creating a type def is necessary
             //this requires reflection since the TypeName constructor is private for some reason
             Constructor<TypeName> cons = TypeName.class.getDeclaredConstructor(String.class);
             cons.setAccessible(true);
 
-            TypeName playerType = cons.newInstance("io.anuke.mindustry.entities.Player");
+            playerType = cons.newInstance("io.anuke.mindustry.entities.Player");
             //add player parameter
             readMethod.addParameter(playerType, "player");
         }
@@ -139,6 +141,27 @@ public class RemoteReadGenerator{
         readMethod.addCode(readBlock.build());
         classBuilder.addMethod(readMethod.build());
 
+        //create batch read method, which reads every call in a batch in order
+        MethodSpec.Builder batchMethod = MethodSpec.methodBuilder("readBatch")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ByteBuffer.class, "buffer") //buffer to read from
+                .returns(void.class);
+
+        if(needsPlayer){
+            batchMethod.addParameter(playerType, "player");
+        }
+
+        batchMethod.beginControlFlow("while(buffer.hasRemaining())");
+        //each call is written as its method ID, its length and its data
+        batchMethod.addStatement("int id = buffer.get()");
+        batchMethod.addStatement("int end = (buffer.getShort() & 0xffff) + buffer.position()");
+        batchMethod.addStatement("readPacket(buffer, id" + (needsPlayer ? ", player" : "") + ")");
+        //skip to the next call, even if this one was not fully read
+        batchMethod.addStatement("buffer.position(end)");
+        batchMethod.endControlFlow();
+
+        classBuilder.addMethod(batchMethod.build());
+
         //build and write resulting class
         TypeSpec spec = classBuilder.build();
         JavaFile.builder(packageName, spec).build().writeTo(Utils.filer);
@@ -128,14 +128,6 @@ public class RemoteWriteGenerator{
         //start control flow to check if it's actually client/server so no netcode is called
         method.beginControlFlow("if(" + getCheckString(methodEntry.where) + ")");
 
-        //add statement to create packet from pool
-        method.addStatement("$1N packet = $2N.obtain($1N.class)", "io.anuke.mindustry.net.Packets.InvokePacket", "io.anuke.ucore.util.Pooling");
-        //assign buffer
-        method.addStatement("packet.writeBuffer = TEMP_BUFFER");
-        //assign priority
-        method.addStatement("packet.priority = (byte)" + methodEntry.priority.ordinal());
-        //assign method ID
-        method.addStatement("packet.type = (byte)" + methodEntry.id);
         //rewind buffer
         method.addStatement("TEMP_BUFFER.position(0)");
 
@@ -189,9 +181,6 @@ public class RemoteWriteGenerator{
             }
         }
 
-        //assign packet length
-        method.addStatement("packet.writeLength = TEMP_BUFFER.position()");
-
         String sendString;
 
         if(forwarded){ //forward packet
@@ -206,8 +195,8 @@ public class RemoteWriteGenerator{
             sendString = "sendTo(playerClientID, ";
         }
 
-        //send the actual packet
-        method.addStatement("io.anuke.mindustry.net.Net." + sendString + "packet, " +
+        //queue the call; queued calls are packed into batches and sent once per frame
+        method.addStatement("io.anuke.mindustry.net.CallQueue." + sendString + "(byte)" + methodEntry.id + ", (byte)" + methodEntry.priority.ordinal() + ", TEMP_BUFFER, " +
                 (methodEntry.unreliable ? "io.anuke.mindustry.net.Net.SendMode.udp" : "io.anuke.mindustry.net.Net.SendMode.tcp") + ")");
 
 
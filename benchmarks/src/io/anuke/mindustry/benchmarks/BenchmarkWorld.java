@@ -0,0 +1,122 @@
+package io.anuke.mindustry.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import io.anuke.kryonet.DefaultThreadImpl;
+import io.anuke.mindustry.Vars;
+import io.anuke.mindustry.content.UnitTypes;
+import io.anuke.mindustry.core.ContentLoader;
+import io.anuke.mindustry.core.Logic;
+import io.anuke.mindustry.core.NetServer;
+import io.anuke.mindustry.core.Platform;
+import io.anuke.mindustry.core.ThreadHandler.ThreadProvider;
+import io.anuke.mindustry.core.World;
+import io.anuke.mindustry.entities.units.BaseUnit;
+import io.anuke.mindustry.game.Content;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.io.BundleLoader;
+import io.anuke.mindustry.maps.Map;
+
+import java.util.Random;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Boots a headless game without a server, renderer or application loop, so that benchmarks can step the simulation
+ * themselves. Everything runs on the benchmark thread; tasks posted to the application are run by {@link #flush()}.
+ */
+public class BenchmarkWorld{
+    /** Name used to load a generated sector instead of a bundled map. */
+    public static final String sector = "sector";
+
+    private static boolean booted;
+
+    /** Loads content and creates the game modules. Only the first call has an effect. */
+    public static synchronized void boot(){
+        if(booted) return;
+        booted = true;
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        //the application is only used for files, preferences and posted tasks; it never updates anything itself
+        config.renderInterval = -1f;
+        new HeadlessApplication(new ApplicationAdapter(){}, config);
+
+        Platform.instance = new Platform(){
+            @Override
+            public ThreadProvider getThreadProvider(){
+                return new DefaultThreadImpl(){
+                    @Override
+                    public boolean isOnThread(){
+                        return true;
+                    }
+                };
+            }
+        };
+
+        Vars.init();
+
+        headless = true;
+
+        BundleLoader.load();
+        ContentLoader.load();
+        ContentLoader.initialize(Content::init);
+
+        logic = new Logic();
+        world = new World();
+        netServer = new NetServer();
+
+        logic.init();
+        world.init();
+        netServer.init();
+    }
+
+    /**
+     * Loads a bundled map by name, or the first sector if the name is {@link #sector}, and starts playing it.
+     * Waves are disabled, so that the amount of entities only changes through the benchmark.
+     */
+    public static void load(String name){
+        if(name.equals(sector)){
+            world.loadSector(world.sectors().get(0, 0));
+        }else{
+            Map map = world.maps().getByName(name);
+            if(map == null) throw new IllegalArgumentException("No map named '" + name + "'.");
+
+            logic.reset();
+            world.loadMap(map);
+        }
+
+        logic.play();
+        state.wavetime = Float.MAX_VALUE;
+        flush();
+    }
+
+    /** Adds units at random passable positions, alternating between the player and enemy team. */
+    public static void spawnUnits(int amount, long seed){
+        Random random = new Random(seed);
+
+        for(int i = 0; i < amount; i++){
+            int x, y;
+            do{
+                x = random.nextInt(world.width());
+                y = random.nextInt(world.height());
+            }while(!world.passable(x, y));
+
+            BaseUnit unit = UnitTypes.dagger.create(i % 2 == 0 ? Team.blue : Team.red);
+            unit.set(x * tilesize, y * tilesize);
+            unit.add();
+        }
+    }
+
+    /** Runs one logic update, then the tasks it posted, such as tile change events. */
+    public static void tick(){
+        logic.update();
+        flush();
+    }
+
+    /** Runs all tasks posted to the application. */
+    public static void flush(){
+        ((HeadlessApplication) Gdx.app).executeRunnables();
+    }
+}
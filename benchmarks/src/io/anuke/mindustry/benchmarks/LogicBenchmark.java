@@ -0,0 +1,39 @@
+package io.anuke.mindustry.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full logic updates per second at a fixed amount of units.
+ * The world is reloaded before every iteration, so that units killed during one iteration do not affect the next.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LogicBenchmark{
+    @Param({BenchmarkWorld.sector, "sandbox"})
+    public String map;
+
+    @Param({"0", "200", "1000"})
+    public int units;
+
+    @Setup(Level.Trial)
+    public void boot(){
+        BenchmarkWorld.boot();
+    }
+
+    @Setup(Level.Iteration)
+    public void load(){
+        BenchmarkWorld.load(map);
+        BenchmarkWorld.spawnUnits(units, 0);
+    }
+
+    @Benchmark
+    public void tick(){
+        BenchmarkWorld.tick();
+    }
+}
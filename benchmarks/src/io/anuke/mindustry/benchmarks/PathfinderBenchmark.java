@@ -0,0 +1,76 @@
+package io.anuke.mindustry.benchmarks;
+
+import io.anuke.mindustry.content.blocks.Blocks;
+import io.anuke.mindustry.content.blocks.DefenseBlocks;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.game.TeamInfo.TeamData;
+import io.anuke.mindustry.world.Tile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Measures how long the flow fields take to be fully recomputed after a batch of walls is placed or removed.
+ * The same positions are toggled on every invocation, so that each one does the same amount of work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PathfinderBenchmark{
+    @Param({BenchmarkWorld.sector, "sandbox"})
+    public String map;
+
+    @Param({"1", "16", "128"})
+    public int changes;
+
+    private Tile[] tiles;
+    private boolean placed;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.boot();
+        BenchmarkWorld.load(map);
+
+        //fields are created on first use, so make sure every team has one to repair
+        for(TeamData data : state.teams.getTeams()){
+            world.pathfinder().getValueforTeam(data.team, 0, 0);
+        }
+
+        Random random = new Random(0);
+        tiles = new Tile[changes];
+        for(int i = 0; i < changes; i++){
+            Tile tile;
+            do{
+                tile = world.tile(random.nextInt(world.width()), random.nextInt(world.height()));
+            }while(tile.block() != Blocks.air || !tile.passable());
+
+            tiles[i] = tile;
+        }
+    }
+
+    @Benchmark
+    public void recompute(){
+        placed = !placed;
+
+        for(Tile tile : tiles){
+            if(placed){
+                tile.setBlock(DefenseBlocks.tungstenWall, Team.blue);
+            }else{
+                world.removeBlock(tile);
+            }
+        }
+
+        //fires the tile change events, which invalidate the affected parts of each field
+        BenchmarkWorld.flush();
+
+        while(world.pathfinder().isUpdating()){
+            world.pathfinder().update();
+        }
+    }
+}
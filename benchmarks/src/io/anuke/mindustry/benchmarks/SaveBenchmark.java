@@ -0,0 +1,59 @@
+package io.anuke.mindustry.benchmarks;
+
+import io.anuke.mindustry.entities.Player;
+import io.anuke.mindustry.io.SaveIO;
+import io.anuke.mindustry.net.NetworkIO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/** Measures how long saving, loading and writing the world for a joining player take. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SaveBenchmark{
+    @Param({BenchmarkWorld.sector, "sandbox"})
+    public String map;
+
+    @Param({"0", "500"})
+    public int units;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final Player player = new Player();
+    private byte[] save;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkWorld.boot();
+        BenchmarkWorld.load(map);
+        BenchmarkWorld.spawnUnits(units, 0);
+
+        SaveIO.write(output);
+        save = output.toByteArray();
+    }
+
+    @Benchmark
+    public int save(){
+        output.reset();
+        SaveIO.write(output);
+        return output.size();
+    }
+
+    @Benchmark
+    public void load(){
+        SaveIO.load(new ByteArrayInputStream(save));
+        BenchmarkWorld.flush();
+    }
+
+    @Benchmark
+    public int writeWorld(){
+        output.reset();
+        NetworkIO.writeWorld(player, output);
+        return output.size();
+    }
+}
@@ -0,0 +1,85 @@
+package io.anuke.mindustry.benchmarks;
+
+import io.anuke.mindustry.net.SyncCache;
+import io.anuke.ucore.io.delta.ByteDeltaEncoder;
+import io.anuke.ucore.io.delta.ByteMatcherHash;
+import io.anuke.ucore.io.delta.DEZEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Measures the cost of one snapshot round, as done by the server: entities are serialized once,
+ * then each player gets the entities in their range, encoded as a difference to their last snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SnapshotBenchmark{
+    /** Same range as the server uses. */
+    private static final float syncRange = tilesize * 60f;
+
+    @Param({"1", "8", "32"})
+    public int players;
+
+    @Param({"200", "1000"})
+    public int units;
+
+    private final SyncCache cache = new SyncCache();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream stream = new DataOutputStream(bytes);
+    private final DEZEncoder encoder = new DEZEncoder();
+
+    private float[] positions;
+    private byte[][] lastSnapshots;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException{
+        BenchmarkWorld.boot();
+        BenchmarkWorld.load(BenchmarkWorld.sector);
+        BenchmarkWorld.spawnUnits(units, 0);
+
+        Random random = new Random(0);
+        positions = new float[players * 2];
+        for(int i = 0; i < positions.length; i += 2){
+            positions[i] = random.nextFloat() * world.width() * tilesize;
+            positions[i + 1] = random.nextFloat() * world.height() * tilesize;
+        }
+
+        //base snapshots to diff against, taken one update earlier
+        lastSnapshots = new byte[players][];
+        cache.build();
+        for(int i = 0; i < players; i++){
+            lastSnapshots[i] = write(i);
+        }
+        BenchmarkWorld.tick();
+    }
+
+    @Benchmark
+    public int sync() throws IOException{
+        int total = 0;
+
+        cache.build();
+        for(int i = 0; i < players; i++){
+            byte[] snapshot = write(i);
+            total += ByteDeltaEncoder.toDiff(new ByteMatcherHash(lastSnapshots[i], snapshot), encoder).length;
+        }
+
+        return total;
+    }
+
+    private byte[] write(int player) throws IOException{
+        bytes.reset();
+        cache.write(stream, positions[player * 2], positions[player * 2 + 1], syncRange);
+        return bytes.toByteArray();
+    }
+}
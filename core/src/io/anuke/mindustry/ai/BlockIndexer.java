@@ -1,7 +1,5 @@
 package io.anuke.mindustry.ai;
 
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Bits;
 import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.ObjectSet;
@@ -11,24 +9,22 @@ import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadEvent;
 import io.anuke.mindustry.game.Team;
-import io.anuke.mindustry.game.TeamInfo.TeamData;
 import io.anuke.mindustry.type.Item;
+import io.anuke.mindustry.type.ItemStack;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.mindustry.world.meta.BlockFlag;
 import io.anuke.ucore.core.Events;
-import io.anuke.ucore.entities.trait.Entity;
 import io.anuke.ucore.function.Predicate;
 import io.anuke.ucore.util.EnumSet;
-import io.anuke.ucore.util.Geometry;
 import io.anuke.ucore.util.Mathf;
 
 import static io.anuke.mindustry.Vars.*;
 
-//TODO consider using quadtrees for finding specific types of blocks within an area
-//TODO maybe use Arrays instead of ObjectSets?
-
 /**
  * Class used for indexing special target blocks for AI.
+ * Flagged blocks, structures and ores are also kept in {@link TileBuckets}, so that finding the closest one
+ * only looks at the area around a position.
  */
 public class BlockIndexer{
     /**
@@ -39,6 +35,10 @@ public class BlockIndexer{
      * Size of one structure quadrant.
      */
     private final static int structQuadrantSize = 12;
+    /**
+     * Size of one cell of the flagged block index.
+     */
+    private final static int flagCellSize = 16;
 
     /**
      * Set of all ores that are being scanned.
@@ -46,13 +46,15 @@ public class BlockIndexer{
     private final ObjectSet<Item> scanOres = ObjectSet.with(Items.tungsten, Items.coal, Items.lead, Items.thorium, Items.titanium);
     private final ObjectSet<Item> itemSet = new ObjectSet<>();
     /**
-     * Stores all ore quadtrants on the map.
+     * Stores the centers of all ore quadrants on the map, by item.
+     * While each of these tiles is not guaranteed to have an ore directly on it,
+     * each tile will at least have an ore within {@link #oreQuadrantSize} / 2 blocks of it.
      */
-    private ObjectMap<Item, ObjectSet<Tile>> ores;
+    private ObjectMap<Item, TileBuckets> ores;
     /**
-     * Tags all quadrants.
+     * Stores all tiles with an entity, by team.
      */
-    private Bits[] structQuadrants;
+    private TileBuckets[] structures;
 
     /**
      * Maps teams to a map of flagged tiles by type.
@@ -66,6 +68,14 @@ public class BlockIndexer{
      * Empty map for invalid teams.
      */
     private ObjectMap<BlockFlag, ObjectSet<Tile>> emptyMap = new ObjectMap<>();
+    /**
+     * Spatial index of the tiles in {@link #enemyMap}, by flag ordinal.
+     */
+    private TileBuckets[] enemyBuckets = new TileBuckets[BlockFlag.values().length];
+    /**
+     * Spatial index of the tiles in {@link #allyMap}, by flag ordinal.
+     */
+    private TileBuckets[] allyBuckets = new TileBuckets[BlockFlag.values().length];
     /**
      * Maps tile positions to their last known tile index data.
      */
@@ -74,44 +84,66 @@ public class BlockIndexer{
      * Empty array used for returning.
      */
     private ObjectSet<Tile> emptyArray = new ObjectSet<>();
+    /**
+     * Predicate passed to {@link #findTile}, used by {@link #structurePred}.
+     */
+    private Predicate<Tile> findPred;
+    /**
+     * Skips structures that were removed, but whose change has not been processed yet.
+     */
+    private final Predicate<Tile> structurePred = tile -> tile.entity != null && findPred.test(tile);
 
     public BlockIndexer(){
         Events.on(TileChangeEvent.class, tile -> {
-            if(typeMap.get(tile.packedPosition()) != null){
-                TileIndex index = typeMap.get(tile.packedPosition());
-                for(BlockFlag flag : index.flags){
-                    getMap(index.team).get(flag).remove(tile);
+            TileIndex index = typeMap.remove(tile.packedPosition());
+            if(index != null){
+                if(index.flags != null){
+                    ObjectMap<BlockFlag, ObjectSet<Tile>> map = getMap(index.team);
+                    TileBuckets[] buckets = getBuckets(index.team);
+
+                    for(BlockFlag flag : index.flags){
+                        if(map.containsKey(flag)) map.get(flag).remove(tile);
+                        if(buckets != null && buckets[flag.ordinal()] != null) buckets[flag.ordinal()].remove(tile);
+                    }
+                }
+
+                if(index.structure){
+                    structures[index.team.ordinal()].remove(tile);
                 }
             }
             process(tile);
-            updateQuadrant(tile);
         });
 
         Events.on(WorldLoadEvent.class, () -> {
             enemyMap.clear();
             allyMap.clear();
             typeMap.clear();
-            ores = null;
 
-            //create bitset for each team type that contains each quadrant
-            structQuadrants = new Bits[Team.all.length];
+            for(int i = 0; i < allyBuckets.length; i++){
+                allyBuckets[i] = new TileBuckets(flagCellSize, world.width(), world.height());
+                enemyBuckets[i] = new TileBuckets(flagCellSize, world.width(), world.height());
+            }
+
+            structures = new TileBuckets[Team.all.length];
             for(int i = 0; i < Team.all.length; i++){
-                structQuadrants[i] = new Bits(Mathf.ceil(world.width() / (float) structQuadrantSize) * Mathf.ceil(world.height() / (float) structQuadrantSize));
+                structures[i] = new TileBuckets(structQuadrantSize, world.width(), world.height());
             }
 
-            for(int x = 0; x < world.width(); x++){
-                for(int y = 0; y < world.height(); y++){
-                    process(world.tile(x, y));
-                }
+            ores = new ObjectMap<>();
+            for(Item item : scanOres){
+                ores.put(item, new TileBuckets(oreQuadrantSize, world.width(), world.height()));
             }
 
-            for(int x = 0; x < quadWidth(); x++){
-                for(int y = 0; y < quadHeight(); y++){
-                    updateQuadrant(world.tile(x * structQuadrantSize, y * structQuadrantSize));
+            //blocks and ores are indexed in a single pass over the map
+            TileStore tiles = world.getTiles();
+
+            for(int i = 0; i < tiles.size(); i++){
+                if(tiles.blocks[i] == Blocks.air.id){
+                    scanOre(tiles, i);
+                }else{
+                    processBlock(tiles.get(i));
                 }
             }
-
-            scanOres();
         });
     }
 
@@ -129,51 +161,42 @@ public class BlockIndexer{
         return (!state.teams.get(team).ally ? allyMap : enemyMap).get(type, emptyArray);
     }
 
-    public TileEntity findTile(Team team, float x, float y, float range, Predicate<Tile> pred){
-        Entity closest = null;
-        float dst = 0;
-
-        for(int rx = Math.max((int) ((x - range) / tilesize / structQuadrantSize), 0); rx <= (int) ((x + range) / tilesize / structQuadrantSize) && rx < quadWidth(); rx++){
-            for(int ry = Math.max((int) ((y - range) / tilesize / structQuadrantSize), 0); ry <= (int) ((y + range) / tilesize / structQuadrantSize) && ry < quadHeight(); ry++){
-
-                if(!getQuad(team, rx, ry)) continue;
-
-                for(int tx = rx * structQuadrantSize; tx < (rx + 1) * structQuadrantSize && tx < world.width(); tx++){
-                    for(int ty = ry * structQuadrantSize; ty < (ry + 1) * structQuadrantSize && ty < world.height(); ty++){
-                        Tile other = world.tile(tx, ty);
-
-                        if(other == null || other.entity == null || !pred.test(other)) continue;
-
-                        TileEntity e = other.entity;
-
-                        float ndst = Vector2.dst(x, y, e.x, e.y);
-                        if(ndst < range && (closest == null || ndst < dst)){
-                            dst = ndst;
-                            closest = e;
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Find the closest allied block with a flag.
+     */
+    public Tile findClosestAllied(Team team, BlockFlag type, float x, float y){
+        TileBuckets buckets = (state.teams.get(team).ally ? allyBuckets : enemyBuckets)[type.ordinal()];
+        return buckets == null ? null : buckets.findClosest(x, y);
+    }
 
-        return (TileEntity) closest;
+    /**
+     * Find the closest enemy block with a flag.
+     */
+    public Tile findClosestEnemy(Team team, BlockFlag type, float x, float y){
+        TileBuckets buckets = (!state.teams.get(team).ally ? allyBuckets : enemyBuckets)[type.ordinal()];
+        return buckets == null ? null : buckets.findClosest(x, y);
     }
 
     /**
-     * Returns a set of tiles that have ores of the specified type nearby.
-     * While each tile in the set is not guaranteed to have an ore directly on it,
-     * each tile will at least have an ore within {@link #oreQuadrantSize} / 2 blocks of it.
-     * Only specific ore types are scanned. See {@link #scanOres}.
+     * Find the closest block of a team within a range that matches a predicate.
      */
-    public ObjectSet<Tile> getOrePositions(Item item){
-        return ores.get(item, emptyArray);
+    public TileEntity findTile(Team team, float x, float y, float range, Predicate<Tile> pred){
+        if(structures == null) return null;
+
+        findPred = pred;
+        Tile tile = structures[team.ordinal()].findClosest(x, y, range, structurePred);
+        findPred = null;
+
+        return tile == null ? null : tile.entity;
     }
 
     /**
      * Find the closest ore block relative to a position.
+     * Only specific ore types are scanned. See {@link #scanOres}.
      */
     public Tile findClosestOre(float xp, float yp, Item item){
-        Tile tile = Geometry.findClosest(xp, yp, world.indexer().getOrePositions(item));
+        TileBuckets positions = ores == null ? null : ores.get(item);
+        Tile tile = positions == null ? null : positions.findClosest(xp, yp);
 
         if(tile == null) return null;
 
@@ -190,9 +213,17 @@ public class BlockIndexer{
     }
 
     private void process(Tile tile){
-        if(tile.block().flags != null &&
-                tile.getTeam() != Team.none){
+        processBlock(tile);
+        updateOreQuadrant(tile);
+    }
+
+    private void processBlock(Tile tile){
+        boolean flagged = tile.block().flags != null && tile.getTeam() != Team.none;
+        boolean structure = tile.entity != null && tile.getTeam() != Team.none;
+
+        if(flagged){
             ObjectMap<BlockFlag, ObjectSet<Tile>> map = getMap(tile.getTeam());
+            TileBuckets[] buckets = getBuckets(tile.getTeam());
 
             for(BlockFlag flag : tile.block().flags){
 
@@ -205,10 +236,23 @@ public class BlockIndexer{
                 arr.add(tile);
 
                 map.put(flag, arr);
+
+                if(buckets != null){
+                    buckets[flag.ordinal()].add(tile);
+                }
             }
-            typeMap.put(tile.packedPosition(), new TileIndex(tile.block().flags, tile.getTeam()));
         }
 
+        if(structure){
+            structures[tile.getTeam().ordinal()].add(tile);
+        }
+
+        if(flagged || structure){
+            typeMap.put(tile.packedPosition(), new TileIndex(flagged ? tile.block().flags : null, tile.getTeam(), structure));
+        }
+    }
+
+    private void updateOreQuadrant(Tile tile){
         if(ores == null) return;
 
         int quadrantX = tile.x / oreQuadrantSize;
@@ -219,18 +263,18 @@ public class BlockIndexer{
                 Mathf.clamp(quadrantY * oreQuadrantSize + oreQuadrantSize / 2, 0, world.height() - 1));
 
         //find all items that this quadrant contains
-        for(int x = quadrantX * structQuadrantSize; x < world.width() && x < (quadrantX + 1) * structQuadrantSize; x++){
-            for(int y = quadrantY * structQuadrantSize; y < world.height() && y < (quadrantY + 1) * structQuadrantSize; y++){
+        for(int x = quadrantX * oreQuadrantSize; x < world.width() && x < (quadrantX + 1) * oreQuadrantSize; x++){
+            for(int y = quadrantY * oreQuadrantSize; y < world.height() && y < (quadrantY + 1) * oreQuadrantSize; y++){
                 Tile result = world.tile(x, y);
-                if(result.block().drops == null || !scanOres.contains(result.block().drops.item)) continue;
+                if(result.block() != Blocks.air || result.floor().drops == null || !scanOres.contains(result.floor().drops.item)) continue;
 
-                itemSet.add(result.block().drops.item);
+                itemSet.add(result.floor().drops.item);
             }
         }
 
         //update quadrant at this position
         for(Item item : scanOres){
-            ObjectSet<Tile> set = ores.get(item);
+            TileBuckets set = ores.get(item);
 
             //update quadrant status depending on whether the item is in it
             if(!itemSet.contains(item)){
@@ -241,88 +285,43 @@ public class BlockIndexer{
         }
     }
 
-    private void updateQuadrant(Tile tile){
-        //this quadrant is now 'dirty', re-scan the whole thing
-        int quadrantX = tile.x / structQuadrantSize;
-        int quadrantY = tile.y / structQuadrantSize;
-        int index = quadrantX + quadrantY * quadWidth();
-        //Log.info("Updating quadrant: {0} {1}", quadrantX, quadrantY);
-
-        for(TeamData data : state.teams.getTeams()){
-
-            //fast-set this quadrant to 'occupied' if the tile just placed is already of this team
-            if(tile.getTeam() == data.team && tile.entity != null){
-                structQuadrants[data.team.ordinal()].set(index);
-                continue; //no need to process futher
-            }
-
-            structQuadrants[data.team.ordinal()].clear(index);
-
-            outer:
-            for(int x = quadrantX * structQuadrantSize; x < world.width() && x < (quadrantX + 1) * structQuadrantSize; x++){
-                for(int y = quadrantY * structQuadrantSize; y < world.height() && y < (quadrantY + 1) * structQuadrantSize; y++){
-                    Tile result = world.tile(x, y);
-                    //when a targetable block is found, mark this quadrant as occupied and stop searching
-                    if(result.entity != null && result.getTeam() == data.team){
-                        structQuadrants[data.team.ordinal()].set(index);
-                        break outer;
-                    }
-                }
-            }
-        }
-    }
-
-    private boolean getQuad(Team team, int quadrantX, int quadrantY){
-        int index = quadrantX + quadrantY * Mathf.ceil(world.width() / (float) structQuadrantSize);
-        return structQuadrants[team.ordinal()].get(index);
-    }
-
-    private int quadWidth(){
-        return Mathf.ceil(world.width() / (float) structQuadrantSize);
-    }
-
-    private int quadHeight(){
-        return Mathf.ceil(world.height() / (float) structQuadrantSize);
-    }
-
     private ObjectMap<BlockFlag, ObjectSet<Tile>> getMap(Team team){
         if(!state.teams.has(team)) return emptyMap;
         return state.teams.get(team).ally ? allyMap : enemyMap;
     }
 
-    private void scanOres(){
-        ores = new ObjectMap<>();
-
-        //initialize ore map with empty sets
-        for(Item item : scanOres){
-            ores.put(item, new ObjectSet<>());
-        }
+    private TileBuckets[] getBuckets(Team team){
+        if(!state.teams.has(team)) return null;
+        return state.teams.get(team).ally ? allyBuckets : enemyBuckets;
+    }
 
-        for(int x = 0; x < world.width(); x++){
-            for(int y = 0; y < world.height(); y++){
-                int qx = (x / oreQuadrantSize);
-                int qy = (y / oreQuadrantSize);
+    /**Adds the quadrant of a tile without a block to the ore index, if the tile has an ore.*/
+    private void scanOre(TileStore tiles, int i){
+        ItemStack drops = tiles.floor(i).drops;
 
-                Tile tile = world.tile(x, y);
+        //add position of quadrant to list when an ore is found
+        if(drops != null && scanOres.contains(drops.item)){
+            int qx = (i % tiles.width) / oreQuadrantSize;
+            int qy = (i / tiles.width) / oreQuadrantSize;
 
-                //add position of quadrant to list when an ore is found
-                if(tile.floor().drops != null && scanOres.contains(tile.floor().drops.item) && tile.block() == Blocks.air){
-                    ores.get(tile.floor().drops.item).add(world.tile(
-                            //make sure to clamp quadrant middle position, since it might go off bounds
-                            Mathf.clamp(qx * oreQuadrantSize + oreQuadrantSize / 2, 0, world.width() - 1),
-                            Mathf.clamp(qy * oreQuadrantSize + oreQuadrantSize / 2, 0, world.height() - 1)));
-                }
-            }
+            ores.get(drops.item).add(tiles.get(
+                    //make sure to clamp quadrant middle position, since it might go off bounds
+                    Mathf.clamp(qx * oreQuadrantSize + oreQuadrantSize / 2, 0, tiles.width - 1),
+                    Mathf.clamp(qy * oreQuadrantSize + oreQuadrantSize / 2, 0, tiles.height - 1)));
         }
     }
 
     private class TileIndex{
+        /**Flags of the block, or null if it was not flagged.*/
         public final EnumSet<BlockFlag> flags;
         public final Team team;
+        /**Whether the tile had an entity.*/
+        public final boolean structure;
 
-        public TileIndex(EnumSet<BlockFlag> flags, Team team){
+        public TileIndex(EnumSet<BlockFlag> flags, Team team, boolean structure){
             this.flags = flags;
             this.team = team;
+            this.structure = structure;
         }
     }
 }
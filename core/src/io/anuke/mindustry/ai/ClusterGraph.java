@@ -0,0 +1,526 @@
+package io.anuke.mindustry.ai;
+
+import com.badlogic.gdx.math.GridPoint2;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntFloatMap;
+import com.badlogic.gdx.utils.IntIntMap;
+import io.anuke.mindustry.game.EventType.TileChangeEvent;
+import io.anuke.mindustry.game.EventType.WorldLoadEvent;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.net.Net;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.TileStore;
+import io.anuke.ucore.core.Events;
+import io.anuke.ucore.util.Geometry;
+
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.world;
+
+/**
+ * Abstract graph used for long-range ground unit routing.
+ * The map is split into square clusters. Each passable run along a cluster border becomes an entrance,
+ * and the traversal cost between every pair of entrances in a cluster is cached.
+ * Routes are searched on this graph, then refined into tile steps one cluster at a time.
+ * Like the flow field, breakable blocks of other teams count as walkable, so routes lead through walls that are cheaper
+ * to break than to walk around. Since that depends on the team, each team that routes gets its own set of clusters.
+ * Clusters are rebuilt lazily after a tile inside them changes.
+ * Each cluster has a version that is incremented when it is rebuilt, and a route is only searched again if one of the
+ * clusters it passed through or, for routes that were not found, searched was rebuilt since.
+ */
+public class ClusterGraph{
+    public static final int clusterSize = 16;
+    /** Max entrances per cluster. Runs are separated by at least one blocked tile, so each side has at most half its length. */
+    private static final int maxEntrances = 64;
+    private static final float impassable = Float.MAX_VALUE;
+    private static final int startNode = -1, goalNode = -2;
+
+    /** Clusters of each team, created when a team first routes. */
+    private Cluster[][] teamClusters = new Cluster[Team.all.length][];
+    private boolean[] teamDirty = new boolean[Team.all.length];
+    private int cwidth, cheight;
+    /** Team and clusters of the current search. */
+    private Team team;
+    private Cluster[] clusters;
+
+    //search buffers
+    private IntFloatMap costs = new IntFloatMap();
+    private IntIntMap parents = new IntIntMap();
+    private NodeHeap open = new NodeHeap();
+    private float[] startCosts = new float[maxEntrances], goalCosts = new float[maxEntrances];
+    private int[] localCosts = new int[clusterSize * clusterSize * 4];
+    private int[] localParents = new int[clusterSize * clusterSize * 4];
+    private NodeHeap localOpen = new NodeHeap();
+    private int rx, ry, rw, rh;
+
+    public ClusterGraph(){
+        Events.on(WorldLoadEvent.class, this::reset);
+        Events.on(TileChangeEvent.class, tile -> {
+            if(Net.client() || cwidth == 0) return;
+
+            int cx = tile.x / clusterSize, cy = tile.y / clusterSize;
+            int lx = tile.x % clusterSize, ly = tile.y % clusterSize;
+
+            markDirty(cx, cy);
+
+            //border tiles also change the entrances of the cluster next to them
+            if(lx == 0) markDirty(cx - 1, cy);
+            if(lx == clusterSize - 1) markDirty(cx + 1, cy);
+            if(ly == 0) markDirty(cx, cy - 1);
+            if(ly == clusterSize - 1) markDirty(cx, cy + 1);
+        });
+    }
+
+    /**
+     * Returns the next tile to walk to on the way to a goal, or null if no route was found.
+     * The goal may be solid; any tile that belongs to the goal's block counts as walkable.
+     * Steps may lead into a breakable block of another team, which the unit then has to destroy.
+     * @param route Per-unit route state, which is updated as the unit moves along.
+     */
+    public Tile nextTile(Route route, Team team, Tile from, Tile goal){
+        select(team);
+
+        int start = from.packedPosition(), target = goal.packedPosition();
+
+        if(route.goal != target || route.team != team || !current(route)){
+            route.goal = target;
+            route.team = team;
+            route.steps.clear();
+            route.clusters.clear();
+            route.versions.clear();
+
+            if(findRoute(start, target, route.waypoints)){
+                record(route, clusterOf(from.x, from.y));
+                for(int i = 0; i < route.waypoints.size; i++){
+                    int waypoint = route.waypoints.get(i);
+                    record(route, clusterOf(waypoint % world.width(), waypoint / world.width()));
+                }
+            }else{
+                //a way can only open up through a cluster that was searched, as every other cluster is only reachable through
+                //the entrances of those. the goal cluster is added in case the goal itself was enclosed
+                record(route, clusterOf(from.x, from.y));
+                record(route, clusterOf(goal.x, goal.y));
+                for(IntFloatMap.Entry entry : costs.entries()){
+                    if(entry.key >= 0) record(route, entry.key / maxEntrances);
+                }
+            }
+        }
+
+        while(true){
+            if(route.steps.size > 0){
+                int next = route.steps.peek();
+                if(next == start){
+                    route.steps.pop();
+                    continue;
+                }
+
+                if(Math.abs(next % world.width() - from.x) <= 1 && Math.abs(next / world.width() - from.y) <= 1){
+                    return world.tile(next);
+                }
+
+                //unit was pushed off its path, refine again
+                route.steps.clear();
+            }
+
+            if(route.waypoints.size == 0) return null;
+
+            int waypoint = route.waypoints.peek();
+            if(waypoint == start){
+                route.waypoints.pop();
+                continue;
+            }
+
+            if(!refine(start, waypoint, target, route.steps)){
+                //search the whole route again next time
+                route.goal = -1;
+                return null;
+            }
+        }
+    }
+
+    /** Whether no cluster that a route depends on was rebuilt since it was searched. */
+    private boolean current(Route route){
+        for(int i = 0; i < route.clusters.size; i++){
+            int cluster = route.clusters.get(i);
+            if(cluster >= clusters.length || clusters[cluster].version != route.versions.get(i)) return false;
+        }
+        return true;
+    }
+
+    private void record(Route route, int cluster){
+        if(!route.clusters.contains(cluster)){
+            route.clusters.add(cluster);
+            route.versions.add(clusters[cluster].version);
+        }
+    }
+
+    /** Makes the clusters of a team current, creating them if it has not routed yet, and rebuilds the dirty ones. */
+    private void select(Team team){
+        int id = team.ordinal();
+
+        if(teamClusters[id] == null){
+            teamClusters[id] = new Cluster[cwidth * cheight];
+            for(int i = 0; i < teamClusters[id].length; i++){
+                teamClusters[id][i] = new Cluster();
+            }
+            teamDirty[id] = true;
+        }
+
+        this.team = team;
+        this.clusters = teamClusters[id];
+
+        if(!teamDirty[id]) return;
+
+        for(int i = 0; i < clusters.length; i++){
+            if(clusters[i].dirty){
+                rebuild(i % cwidth, i / cwidth);
+            }
+        }
+
+        teamDirty[id] = false;
+    }
+
+    private void reset(){
+        cwidth = (world.width() + clusterSize - 1) / clusterSize;
+        cheight = (world.height() + clusterSize - 1) / clusterSize;
+        Arrays.fill(teamClusters, null);
+    }
+
+    private void markDirty(int cx, int cy){
+        if(cx < 0 || cy < 0 || cx >= cwidth || cy >= cheight) return;
+
+        for(int i = 0; i < teamClusters.length; i++){
+            if(teamClusters[i] != null){
+                teamClusters[i][cx + cy * cwidth].dirty = true;
+                teamDirty[i] = true;
+            }
+        }
+    }
+
+    private void rebuild(int cx, int cy){
+        Cluster cluster = clusters[cx + cy * cwidth];
+        cluster.entrances.clear();
+        cluster.links.clear();
+        cluster.dirty = false;
+        cluster.version++;
+
+        int x = cx * clusterSize, y = cy * clusterSize;
+        int w = Math.min(clusterSize, world.width() - x), h = Math.min(clusterSize, world.height() - y);
+
+        if(cx > 0) addEntrances(cluster, x, y, 0, 1, -1, 0, h);
+        if(cx < cwidth - 1) addEntrances(cluster, x + w - 1, y, 0, 1, 1, 0, h);
+        if(cy > 0) addEntrances(cluster, x, y, 1, 0, 0, -1, w);
+        if(cy < cheight - 1) addEntrances(cluster, x, y + h - 1, 1, 0, 0, 1, w);
+
+        int size = cluster.entrances.size;
+        cluster.costs = new float[size * size];
+
+        for(int i = 0; i < size; i++){
+            search(cluster.entrances.get(i), -1, x, y, w, h, -1);
+
+            for(int j = 0; j < size; j++){
+                cluster.costs[i * size + j] = localCost(cluster.entrances.get(j));
+            }
+        }
+    }
+
+    /** Adds an entrance in the middle of each passable run along one side of a cluster. */
+    private void addEntrances(Cluster cluster, int x, int y, int stepx, int stepy, int offsetx, int offsety, int length){
+        int runStart = -1;
+
+        for(int i = 0; i <= length; i++){
+            int px = x + stepx * i, py = y + stepy * i;
+            boolean open = i < length && walkable(px, py) && walkable(px + offsetx, py + offsety);
+
+            if(open && runStart == -1){
+                runStart = i;
+            }else if(!open && runStart != -1){
+                int mid = (runStart + i - 1) / 2;
+                int mx = x + stepx * mid, my = y + stepy * mid;
+                cluster.entrances.add(world.toPacked(mx, my));
+                cluster.links.add(world.toPacked(mx + offsetx, my + offsety));
+                runStart = -1;
+            }
+        }
+    }
+
+    /** Searches the abstract graph. Waypoints are written in reverse, so that the next one is last. */
+    private boolean findRoute(int start, int goal, IntArray out){
+        out.clear();
+
+        int width = world.width();
+        int sx = start % width, sy = start / width, gx = goal % width, gy = goal / width;
+        int startCluster = clusterOf(sx, sy), goalCluster = clusterOf(gx, gy);
+        Cluster sc = clusters[startCluster], gc = clusters[goalCluster];
+
+        //goals inside the same cluster are refined directly
+        if(startCluster == goalCluster){
+            clusterSearch(start, goal, startCluster);
+            if(localCost(goal) < impassable){
+                out.add(goal);
+                return true;
+            }
+        }
+
+        clusterSearch(goal, goal, goalCluster);
+        for(int i = 0; i < gc.entrances.size; i++){
+            goalCosts[i] = localCost(gc.entrances.get(i));
+        }
+
+        clusterSearch(start, goal, startCluster);
+        for(int i = 0; i < sc.entrances.size; i++){
+            startCosts[i] = localCost(sc.entrances.get(i));
+        }
+
+        costs.clear();
+        parents.clear();
+        open.clear();
+
+        for(int i = 0; i < sc.entrances.size; i++){
+            if(startCosts[i] < impassable){
+                int node = startCluster * maxEntrances + i;
+                costs.put(node, startCosts[i]);
+                parents.put(node, startNode);
+                open.add(node, startCosts[i] + heuristic(sc.entrances.get(i), goal));
+            }
+        }
+
+        while(open.size > 0){
+            float priority = open.peekPriority();
+            int node = open.poll();
+
+            if(node == goalNode) break;
+
+            int clusterIndex = node / maxEntrances, index = node % maxEntrances;
+            Cluster cluster = clusters[clusterIndex];
+            int pos = cluster.entrances.get(index);
+            float cost = costs.get(node, impassable);
+
+            //skip outdated heap entries
+            if(priority > cost + heuristic(pos, goal)) continue;
+
+            if(clusterIndex == goalCluster && goalCosts[index] < impassable){
+                relax(goalNode, node, cost + goalCosts[index], 0f);
+            }
+
+            int size = cluster.entrances.size;
+            for(int i = 0; i < size; i++){
+                float edge = cluster.costs[index * size + i];
+                if(i != index && edge < impassable){
+                    relax(clusterIndex * maxEntrances + i, node, cost + edge, heuristic(cluster.entrances.get(i), goal));
+                }
+            }
+
+            //cross over to the paired entrance in the next cluster
+            int link = cluster.links.get(index);
+            int linkCluster = clusterOf(link % width, link / width);
+            Cluster other = clusters[linkCluster];
+            for(int i = 0; i < other.entrances.size; i++){
+                if(other.entrances.get(i) == link && other.links.get(i) == pos){
+                    relax(linkCluster * maxEntrances + i, node, cost + world.getTiles().costs[link], heuristic(link, goal));
+                    break;
+                }
+            }
+        }
+
+        if(!parents.containsKey(goalNode)) return false;
+
+        out.add(goal);
+        for(int node = parents.get(goalNode, startNode); node != startNode; node = parents.get(node, startNode)){
+            out.add(clusters[node / maxEntrances].entrances.get(node % maxEntrances));
+        }
+
+        return true;
+    }
+
+    private void relax(int node, int parent, float cost, float heuristic){
+        if(cost < costs.get(node, impassable)){
+            costs.put(node, cost);
+            parents.put(node, parent);
+            open.add(node, cost + heuristic);
+        }
+    }
+
+    /**
+     * Finds the tile steps from a position to the next waypoint, which must be in the same or a neighbouring cluster.
+     * Steps are written in reverse, so that the next one is last.
+     */
+    private boolean refine(int start, int waypoint, int goal, IntArray out){
+        int width = world.width();
+        int sx = start % width, sy = start / width, wx = waypoint % width, wy = waypoint / width;
+        int scx = sx / clusterSize, scy = sy / clusterSize, wcx = wx / clusterSize, wcy = wy / clusterSize;
+
+        if(Math.abs(scx - wcx) > 1 || Math.abs(scy - wcy) > 1) return false;
+
+        int x = Math.min(scx, wcx) * clusterSize, y = Math.min(scy, wcy) * clusterSize;
+        int w = Math.min((Math.max(scx, wcx) + 1) * clusterSize, world.width()) - x;
+        int h = Math.min((Math.max(scy, wcy) + 1) * clusterSize, world.height()) - y;
+
+        search(start, goal, x, y, w, h, waypoint);
+
+        if(localCost(waypoint) == impassable) return false;
+
+        out.clear();
+        for(int local = localIndex(waypoint); local != localIndex(start); local = localParents[local]){
+            out.add((rx + local % rw) + (ry + local / rw) * width);
+        }
+
+        return true;
+    }
+
+    private void clusterSearch(int from, int goal, int cluster){
+        int x = (cluster % cwidth) * clusterSize, y = (cluster / cwidth) * clusterSize;
+        search(from, goal, x, y, Math.min(clusterSize, world.width() - x), Math.min(clusterSize, world.height() - y), -1);
+    }
+
+    /**
+     * Cheapest-first search inside a rectangle, starting at a position that is always accepted.
+     * Entering a tile costs its traversal cost, like in the flow field.
+     * @param goal Position of the block that counts as walkable even if it is solid, or -1.
+     * @param stop Position at which to stop searching, or -1.
+     */
+    private void search(int from, int goal, int x, int y, int w, int h, int stop){
+        rx = x;
+        ry = y;
+        rw = w;
+        rh = h;
+
+        Arrays.fill(localCosts, 0, w * h, Integer.MAX_VALUE);
+        localOpen.clear();
+
+        int start = localIndex(from);
+        if(start == -1) return;
+
+        TileStore tiles = world.getTiles();
+        localCosts[start] = 0;
+        localOpen.add(start, 0);
+
+        while(localOpen.size > 0){
+            float priority = localOpen.peekPriority();
+            int local = localOpen.poll();
+            int px = rx + local % rw, py = ry + local / rw;
+
+            //skip outdated heap entries
+            if(priority > localCosts[local]) continue;
+
+            if(stop != -1 && tiles.index(px, py) == stop) return;
+
+            for(GridPoint2 point : Geometry.d4){
+                int nx = px + point.x, ny = py + point.y;
+                if(nx < rx || ny < ry || nx >= rx + rw || ny >= ry + rh) continue;
+
+                int other = (nx - rx) + (ny - ry) * rw;
+                int index = tiles.index(nx, ny);
+                int next = localCosts[local] + tiles.costs[index];
+                if(localCosts[other] > next &&
+                        (walkable(nx, ny) || (goal != -1 && tiles.target(index) == goal))){
+                    localCosts[other] = next;
+                    localParents[other] = local;
+                    localOpen.add(other, next);
+                }
+            }
+        }
+    }
+
+    /** Returns the cost of a position in the last local search. */
+    private float localCost(int pos){
+        int local = localIndex(pos);
+        return local == -1 || localCosts[local] == Integer.MAX_VALUE ? impassable : localCosts[local];
+    }
+
+    private int localIndex(int pos){
+        int x = pos % world.width() - rx, y = pos / world.width() - ry;
+        return x < 0 || y < 0 || x >= rw || y >= rh ? -1 : x + y * rw;
+    }
+
+    private int clusterOf(int x, int y){
+        return x / clusterSize + y / clusterSize * cwidth;
+    }
+
+    private float heuristic(int pos, int goal){
+        int width = world.width();
+        return Math.abs(pos % width - goal % width) + Math.abs(pos / width - goal / width);
+    }
+
+    /** Whether the current team can walk over a tile, or break through it. Same as in the flow field. */
+    private boolean walkable(int x, int y){
+        Tile tile = world.tile(x, y);
+        return tile != null && ((!tile.solid() && !tile.floor().isLiquid) || (tile.breakable() && tile.target().getTeam() != team));
+    }
+
+    /** Route state of a single unit. */
+    public static class Route{
+        /** Abstract waypoints, next one last. */
+        final IntArray waypoints = new IntArray();
+        /** Tile steps to the next waypoint, next one last. */
+        final IntArray steps = new IntArray();
+        /** Indices of the clusters this route depends on, and their versions when it was searched. */
+        final IntArray clusters = new IntArray(), versions = new IntArray();
+        int goal = -1;
+        Team team;
+    }
+
+    class Cluster{
+        /** Packed positions of the entrance tiles inside this cluster. */
+        final IntArray entrances = new IntArray();
+        /** Packed positions of the tile each entrance leads to in the neighbouring cluster. */
+        final IntArray links = new IntArray();
+        /** Traversal cost between each pair of entrances, in entrances.size * entrances.size layout. */
+        float[] costs = {};
+        boolean dirty = true;
+        int version;
+    }
+
+    /** Binary min-heap of node IDs. */
+    static class NodeHeap{
+        int[] nodes = new int[64];
+        float[] priorities = new float[64];
+        int size;
+
+        void add(int node, float priority){
+            if(size == nodes.length){
+                nodes = Arrays.copyOf(nodes, size * 2);
+                priorities = Arrays.copyOf(priorities, size * 2);
+            }
+
+            int i = size++;
+            while(i > 0){
+                int parent = (i - 1) / 2;
+                if(priorities[parent] <= priority) break;
+                nodes[i] = nodes[parent];
+                priorities[i] = priorities[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            priorities[i] = priority;
+        }
+
+        float peekPriority(){
+            return priorities[0];
+        }
+
+        int poll(){
+            int result = nodes[0];
+            int node = nodes[--size];
+            float priority = priorities[size];
+
+            int i = 0;
+            while(true){
+                int child = i * 2 + 1;
+                if(child >= size) break;
+                if(child + 1 < size && priorities[child + 1] < priorities[child]) child++;
+                if(priorities[child] >= priority) break;
+                nodes[i] = nodes[child];
+                priorities[i] = priorities[child];
+                i = child;
+            }
+            nodes[i] = node;
+            priorities[i] = priority;
+            return result;
+        }
+
+        void clear(){
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.anuke.mindustry.ai;
+
+/** A resizable, ordered FIFO queue of primitive ints, backed by a ring buffer. */
+public class IntQueue{
+    private int[] values;
+    private int head, tail;
+    public int size;
+
+    public IntQueue(){
+        this(16);
+    }
+
+    public IntQueue(int initialSize){
+        values = new int[Math.max(initialSize, 1)];
+    }
+
+    public void addLast(int value){
+        if(size == values.length){
+            resize(values.length << 1);
+        }
+
+        values[tail++] = value;
+        if(tail == values.length){
+            tail = 0;
+        }
+        size++;
+    }
+
+    public int removeFirst(){
+        if(size == 0){
+            throw new IllegalStateException("Queue is empty.");
+        }
+
+        int result = values[head++];
+        if(head == values.length){
+            head = 0;
+        }
+        size--;
+        return result;
+    }
+
+    /** Makes sure this queue can hold the specified amount of values without resizing. */
+    public void ensureCapacity(int capacity){
+        if(capacity > values.length){
+            resize(capacity);
+        }
+    }
+
+    public void clear(){
+        head = tail = size = 0;
+    }
+
+    private void resize(int newSize){
+        int[] result = new int[newSize];
+        if(head < tail || size == 0){
+            System.arraycopy(values, head, result, 0, size);
+        }else{
+            int first = values.length - head;
+            System.arraycopy(values, head, result, 0, first);
+            System.arraycopy(values, 0, result, first, tail);
+        }
+        values = result;
+        head = 0;
+        tail = size == newSize ? 0 : size;
+    }
+}
@@ -1,62 +1,102 @@
 package io.anuke.mindustry.ai;
 
 import com.badlogic.gdx.math.GridPoint2;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntArray;
-import com.badlogic.gdx.utils.ObjectSet;
-import com.badlogic.gdx.utils.ObjectSet.ObjectSetIterator;
-import com.badlogic.gdx.utils.Queue;
 import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadEvent;
 import io.anuke.mindustry.game.Team;
-import io.anuke.mindustry.game.TeamInfo.TeamData;
 import io.anuke.mindustry.net.Net;
+import io.anuke.mindustry.world.Block;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.mindustry.world.meta.BlockFlag;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.util.Geometry;
 import io.anuke.ucore.util.Log;
 
+import java.util.Arrays;
+
 import static io.anuke.mindustry.Vars.state;
+import static io.anuke.mindustry.Vars.threads;
 import static io.anuke.mindustry.Vars.world;
 
+/**
+ * Keeps a flow field per team that leads ground units towards enemy targets.
+ * Ground units route along the {@link ClusterGraph}, so fields are only needed for wave spawn checks and retreating units.
+ * A team's field is computed the first time it is queried, then repaired incrementally: a tile change only invalidates
+ * the tiles whose weights were derived from it, and only those tiles are recomputed.
+ */
 public class Pathfinder{
+    private static final float impassable = Float.MAX_VALUE;
+
     private long maxUpdate = TimeUtils.millisToNanos(4);
+    /** If positive, the amount of frontier tiles each field processes per update, used instead of the time budget. */
+    private int maxNodes;
     private PathData[] paths;
-    private IntArray blocked = new IntArray();
+    private Array<Runnable> updateTasks = new Array<>();
+    /** Stack of invalidated positions, used while repairing. */
+    private IntArray invalidated = new IntArray();
 
     public Pathfinder(){
         Events.on(WorldLoadEvent.class, this::clear);
         Events.on(TileChangeEvent.class, tile -> {
-            if(Net.client()) return;
+            if(Net.client() || paths == null) return;
 
-            for(TeamData data : state.teams.getTeams()){
-                if(data.team != tile.getTeam() && paths[data.team.ordinal()].weights[tile.x][tile.y] >= Float.MAX_VALUE){
-                    update(tile, data.team);
+            for(PathData path : paths){
+                if(path != null){
+                    repair(path, tile.x, tile.y);
                 }
             }
-
-            update(tile, tile.getTeam());
         });
     }
 
+    /**
+     * Advances the flow field of every team.
+     * Each team's field only reads tile data and writes its own arrays, so teams are updated in parallel.
+     * This must not be called while tiles are being modified.
+     */
     public void update(){
-        if(Net.client()) return;
+        if(Net.client() || paths == null) return;
+
+        updateTasks.clear();
+        for(PathData path : paths){
+            if(path != null && path.frontier.size > 0){
+                updateTasks.add(path.updater);
+            }
+        }
 
-        ObjectSetIterator<TeamData> iterator = new ObjectSetIterator<>(state.teams.getTeams());
+        threads.runParallel(updateTasks);
+    }
+
+    /**
+     * Limits the work done per update to an amount of frontier tiles instead of a time budget.
+     * Results then no longer depend on CPU speed or load, which deterministic simulations need.
+     * Zero or less restores the time budget.
+     */
+    public void setNodeBudget(int nodes){
+        this.maxNodes = nodes;
+    }
 
-        for(TeamData team : iterator){
-            updateFrontier(team.team, maxUpdate);
+    /** Whether any team's flow field still has tiles left to compute. */
+    public boolean isUpdating(){
+        if(paths == null) return false;
+
+        for(PathData path : paths){
+            if(path != null && path.frontier.size > 0) return true;
         }
+        return false;
     }
 
     public Tile getTargetTile(Team team, Tile tile){
-        float[][] values = paths[team.ordinal()].weights;
+        PathData path = getPath(team);
 
-        if(values == null) return tile;
+        if(path == null) return tile;
 
-        float value = values[tile.x][tile.y];
+        float[] values = path.weights;
+        float value = values[world.toPacked(tile.x, tile.y)];
 
         Tile target = null;
         float tl = 0f;
@@ -66,25 +106,42 @@ public class Pathfinder{
             Tile other = world.tile(dx, dy);
             if(other == null) continue;
 
-            if(values[dx][dy] < value && (target == null || values[dx][dy] < tl) &&
+            float otherValue = values[world.toPacked(dx, dy)];
+
+            if(otherValue < value && (target == null || otherValue < tl) &&
                     !other.solid() &&
                     !(point.x != 0 && point.y != 0 && (world.solid(tile.x + point.x, tile.y) || world.solid(tile.x, tile.y + point.y)))){ //diagonal corner trap
                 target = other;
-                tl = values[dx][dy];
+                tl = otherValue;
             }
         }
 
-        if(target == null || tl == Float.MAX_VALUE) return tile;
+        if(target == null || tl == impassable) return tile;
 
         return target;
     }
 
+    /** Like {@link #getValueforTeam(Team, int, int)}, but never creates a field, as it is called while rendering. */
     public float getDebugValue(int x, int y){
-        return paths[Team.blue.ordinal()].weights[x][y];
+        return paths == null || paths[Team.blue.ordinal()] == null ? 0 : paths[Team.blue.ordinal()].weights[world.toPacked(x, y)];
     }
 
     public float getValueforTeam(Team team, int x, int y){
-        return paths == null ? 0 : paths[team.ordinal()].weights[x][y];
+        PathData path = getPath(team);
+        return path == null ? 0 : path.weights[world.toPacked(x, y)];
+    }
+
+    /** Returns the field of a team, computing it first if it was not queried yet. Returns null before a world is loaded. */
+    private PathData getPath(Team team){
+        if(paths == null) return null;
+
+        if(paths[team.ordinal()] == null && !Net.client()){
+            Timers.mark();
+            createFor(team);
+            Log.info("Elapsed calculation time for team {0}: {1}", team, Timers.elapsed());
+        }
+
+        return paths[team.ordinal()];
     }
 
     private boolean passable(Tile tile, Team team){
@@ -92,76 +149,138 @@ public class Pathfinder{
                 || (tile.breakable() && (tile.target().getTeam() != team));
     }
 
-    private void update(Tile tile, Team team){
-        if(paths[team.ordinal()] != null){
-            PathData path = paths[team.ordinal()];
+    /** Whether units of this team path towards the tile at this index. */
+    private boolean isTarget(TileStore tiles, int index, Team team){
+        Block block = tiles.block(index);
+        return block.flags != null && block.flags.contains(BlockFlag.target) && state.teams.areEnemies(Team.all[tiles.teams[index]], team);
+    }
+
+    /**
+     * Repairs the flow field around a changed tile.
+     * The changed tile and its neighbours, whose traversal cost may have changed, are invalidated along with every
+     * tile whose weight was derived from them. The valid border of that region is then pushed back onto the frontier,
+     * which recomputes it over the next updates.
+     */
+    private void repair(PathData path, int x, int y){
+        TileStore tiles = world.getTiles();
+        float[] weights = path.weights;
+
+        invalidated.clear();
+
+        for(int dx = -1; dx <= 1; dx++){
+            for(int dy = -1; dy <= 1; dy++){
+                if(tiles.inBounds(x + dx, y + dy)){
+                    invalidate(path, tiles.index(x + dx, y + dy));
+                }
+            }
+        }
+
+        //raise: anything that was only reachable through an invalidated tile is invalid as well
+        for(int i = 0; i < invalidated.size; i++){
+            int pos = invalidated.get(i);
+            int px = pos % tiles.width, py = pos / tiles.width;
+
+            for(GridPoint2 point : Geometry.d4){
+                int nx = px + point.x, ny = py + point.y;
+                if(!tiles.inBounds(nx, ny)) continue;
 
-            if(!passable(tile, team)){
-                path.weights[tile.x][tile.y] = Float.MAX_VALUE;
+                int other = tiles.index(nx, ny);
+                if(weights[other] < impassable && !supported(path, tiles, nx, ny)){
+                    invalidate(path, other);
+                }
             }
+        }
+
+        //lower: reseed targets and the valid border of the invalidated region
+        for(int i = 0; i < invalidated.size; i++){
+            int pos = invalidated.get(i);
+            int px = pos % tiles.width, py = pos / tiles.width;
 
-            path.search++;
+            if(isTarget(tiles, pos, path.team)){
+                weights[pos] = 0;
+                path.frontier.addLast(pos);
+                continue;
+            }
 
-            if(path.lastSearchTime + 1000 / 60 * 3 > TimeUtils.millis()){
-                path.frontier.clear();
+            for(GridPoint2 point : Geometry.d4){
+                int nx = px + point.x, ny = py + point.y;
+                if(tiles.inBounds(nx, ny) && weights[tiles.index(nx, ny)] < impassable){
+                    path.frontier.addLast(tiles.index(nx, ny));
+                }
             }
+        }
+    }
+
+    private void invalidate(PathData path, int pos){
+        path.weights[pos] = impassable;
+        invalidated.add(pos);
+    }
 
-            path.lastSearchTime = TimeUtils.millis();
+    /** Whether the weight at this position can still be derived from a valid neighbour. */
+    private boolean supported(PathData path, TileStore tiles, int x, int y){
+        int pos = tiles.index(x, y);
+        float weight = path.weights[pos];
 
-            ObjectSet<Tile> set = world.indexer().getEnemy(team, BlockFlag.target);
-            for(Tile other : set){
-                path.weights[other.x][other.y] = 0;
-                path.searches[other.x][other.y] = path.search;
-                path.frontier.addFirst(other);
+        if(weight == 0 && isTarget(tiles, pos, path.team)) return true;
+
+        float step = tiles.costs[pos] / 2f;
+
+        for(GridPoint2 point : Geometry.d4){
+            int nx = x + point.x, ny = y + point.y;
+            if(tiles.inBounds(nx, ny) && path.weights[tiles.index(nx, ny)] + step <= weight){
+                return true;
             }
         }
+        return false;
     }
 
     private void createFor(Team team){
-        PathData path = new PathData();
-        path.search++;
-        path.frontier.ensureCapacity((world.width() + world.height()) * 3);
+        PathData path = new PathData(team);
 
         paths[team.ordinal()] = path;
 
-        for(int x = 0; x < world.width(); x++){
-            for(int y = 0; y < world.height(); y++){
-                Tile tile = world.tile(x, y);
+        TileStore tiles = world.getTiles();
 
-                if(tile.block().flags != null && state.teams.areEnemies(tile.getTeam(), team)
-                        && tile.block().flags.contains(BlockFlag.target)){
-                    path.frontier.addFirst(tile);
-                    path.weights[x][y] = 0;
-                    path.searches[x][y] = path.search;
-                }else{
-                    path.weights[x][y] = Float.MAX_VALUE;
-                }
+        for(int i = 0; i < tiles.size(); i++){
+            if(isTarget(tiles, i, team)){
+                path.frontier.addLast(i);
+                path.weights[i] = 0;
             }
         }
 
-        updateFrontier(team, -1);
+        updateFrontier(path, -1, -1);
     }
 
-    private void updateFrontier(Team team, long nsToRun){
-        PathData path = paths[team.ordinal()];
+    /**
+     * Processes frontier tiles until the frontier is empty or a budget runs out.
+     * @param nsToRun Time budget in nanoseconds, or -1 for none.
+     * @param nodesToRun Budget in processed tiles, or -1 for none.
+     */
+    private void updateFrontier(PathData path, long nsToRun, int nodesToRun){
+        TileStore tiles = world.getTiles();
+        float[] weights = path.weights;
 
         long start = TimeUtils.nanoTime();
+        int processed = 0;
+
+        while(path.frontier.size > 0 && (nodesToRun < 0 || processed++ < nodesToRun) && (nsToRun < 0 || TimeUtils.timeSinceNanos(start) <= nsToRun)){
+            int pos = path.frontier.removeFirst();
+            float cost = weights[pos];
 
-        while(path.frontier.size > 0 && (nsToRun < 0 || TimeUtils.timeSinceNanos(start) <= nsToRun)){
-            Tile tile = path.frontier.removeLast();
-            float cost = path.weights[tile.x][tile.y];
+            if(cost < impassable){
+                int x = pos % tiles.width, y = pos / tiles.width;
 
-            if(cost < Float.MAX_VALUE){
                 for(GridPoint2 point : Geometry.d4){
 
-                    int dx = tile.x + point.x, dy = tile.y + point.y;
-                    Tile other = world.tile(dx, dy);
+                    int dx = x + point.x, dy = y + point.y;
+                    if(!tiles.inBounds(dx, dy)) continue;
+
+                    int other = tiles.index(dx, dy);
+                    float next = cost + tiles.costs[other] / 2f;
 
-                    if(other != null && (path.weights[dx][dy] > cost + 1 || path.searches[dx][dy] < path.search)
-                            && passable(other, team)){
-                        path.frontier.addFirst(world.tile(dx, dy));
-                        path.weights[dx][dy] = cost + other.cost / 2f;
-                        path.searches[dx][dy] = path.search;
+                    if(weights[other] > next && passable(tiles.get(other), path.team)){
+                        path.frontier.addLast(other);
+                        weights[other] = next;
                     }
                 }
             }
@@ -169,33 +288,30 @@ public class Pathfinder{
     }
 
     private void clear(){
-        Timers.mark();
-
         paths = new PathData[Team.all.length];
-        blocked.clear();
-
-        for(TeamData data : state.teams.getTeams()){
-            PathData path = new PathData();
-            paths[data.team.ordinal()] = path;
-
-            createFor(data.team);
-        }
 
         state.spawner.checkAllQuadrants();
-
-        Log.info("Elapsed calculation time: {0}", Timers.elapsed());
     }
 
     class PathData{
-        float[][] weights;
-        int[][] searches;
-        int search = 0;
-        long lastSearchTime;
-        Queue<Tile> frontier = new Queue<>();
-
-        PathData(){
-            weights = new float[world.width()][world.height()];
-            searches = new int[world.width()][world.height()];
+        final Team team;
+        final float[] weights;
+        final IntQueue frontier;
+        final Runnable updater;
+
+        PathData(Team team){
+            this.team = team;
+            weights = new float[world.width() * world.height()];
+            frontier = new IntQueue((world.width() + world.height()) * 3);
+            updater = () -> {
+                if(maxNodes > 0){
+                    updateFrontier(this, -1, maxNodes);
+                }else{
+                    updateFrontier(this, maxUpdate, -1);
+                }
+            };
+
+            Arrays.fill(weights, impassable);
         }
     }
 }
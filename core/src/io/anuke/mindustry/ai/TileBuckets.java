@@ -0,0 +1,125 @@
+package io.anuke.mindustry.ai;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.function.Predicate;
+import io.anuke.ucore.util.Mathf;
+
+import static io.anuke.mindustry.Vars.tilesize;
+
+/**
+ * A spatial index of tiles, bucketed into square cells of the map.
+ * Finds the closest tile, or the closest tile within a range, by only looking at the cells around a position,
+ * instead of at every indexed tile. Queries do not allocate.
+ */
+public class TileBuckets{
+    /**Largest distance, in tiles, between the position of a tile and its cell. Multiblocks are positioned at their center.*/
+    private static final int maxOffset = 2;
+
+    private final int cellSize, width, height;
+    private final Array<Tile>[] cells;
+    private int size;
+
+    /**
+     * @param cellSize Size of a cell, in tiles.
+     * @param mapWidth Width of the map, in tiles.
+     * @param mapHeight Height of the map, in tiles.
+     */
+    @SuppressWarnings("unchecked")
+    public TileBuckets(int cellSize, int mapWidth, int mapHeight){
+        this.cellSize = cellSize;
+        this.width = Math.max(Mathf.ceil(mapWidth / (float) cellSize), 1);
+        this.height = Math.max(Mathf.ceil(mapHeight / (float) cellSize), 1);
+        this.cells = new Array[width * height];
+    }
+
+    /**Adds a tile, if it isn't in this index already.*/
+    public void add(Tile tile){
+        int index = cell(tile.x / cellSize, tile.y / cellSize);
+        if(cells[index] == null){
+            cells[index] = new Array<>(false, 8);
+        }
+
+        if(!cells[index].contains(tile, true)){
+            cells[index].add(tile);
+            size++;
+        }
+    }
+
+    /**Removes a tile. Returns whether it was in this index.*/
+    public boolean remove(Tile tile){
+        Array<Tile> cell = cells[cell(tile.x / cellSize, tile.y / cellSize)];
+        if(cell != null && cell.removeValue(tile, true)){
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**Returns the closest tile to a position in world units, or null if this index is empty.*/
+    public Tile findClosest(float x, float y){
+        return findClosest(x, y, Float.MAX_VALUE, null);
+    }
+
+    /**
+     * Returns the closest tile to a position in world units that is within a range and matches a predicate.
+     * Returns null if there is none.
+     * @param pred Predicate that tiles must match. May be null.
+     */
+    public Tile findClosest(float x, float y, float range, Predicate<Tile> pred){
+        if(size == 0) return null;
+
+        int cx = Mathf.clamp((int) (x / tilesize / cellSize), 0, width - 1);
+        int cy = Mathf.clamp((int) (y / tilesize / cellSize), 0, height - 1);
+        int maxRadius = Math.max(width, height);
+
+        Tile closest = null;
+        float closestDst = range * range;
+
+        //search rings of cells around the cell of the position, until no cell further out can contain anything closer
+        for(int r = 0; r <= maxRadius; r++){
+            float minDst = Math.max((r - 1) * cellSize - maxOffset, 0) * tilesize;
+            if(minDst * minDst > closestDst) break;
+
+            for(int dx = -r; dx <= r; dx++){
+                int step = (dx == -r || dx == r) ? 1 : r * 2;
+
+                for(int dy = -r; dy <= r; dy += Math.max(step, 1)){
+                    int px = cx + dx, py = cy + dy;
+                    if(px < 0 || py < 0 || px >= width || py >= height) continue;
+
+                    Array<Tile> cell = cells[cell(px, py)];
+                    if(cell == null) continue;
+
+                    for(int i = 0; i < cell.size; i++){
+                        Tile tile = cell.get(i);
+                        float dst = Vector2.dst2(x, y, tile.drawx(), tile.drawy());
+
+                        if(dst < closestDst && (pred == null || pred.test(tile))){
+                            closest = tile;
+                            closestDst = dst;
+                        }
+                    }
+                }
+            }
+        }
+
+        return closest;
+    }
+
+    public void clear(){
+        for(Array<Tile> cell : cells){
+            if(cell != null) cell.clear();
+        }
+        size = 0;
+    }
+
+    private int cell(int x, int y){
+        return Mathf.clamp(x, 0, width - 1) + Mathf.clamp(y, 0, height - 1) * width;
+    }
+}
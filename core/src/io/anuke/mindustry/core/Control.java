@@ -284,6 +284,7 @@ public class Control extends Module{
 
     @Override
     public void dispose(){
+        threads.finishBackground();
         Platform.instance.onGameExit();
         ContentLoader.dispose();
         Net.dispose();
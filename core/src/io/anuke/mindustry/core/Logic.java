@@ -4,7 +4,11 @@ import com.badlogic.gdx.utils.Array;
 import io.anuke.mindustry.Vars;
 import io.anuke.mindustry.content.Items;
 import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.core.Profiler.Phase;
+import io.anuke.mindustry.entities.Damage;
 import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.entities.Units;
+import io.anuke.mindustry.entities.effect.GroundHazards;
 import io.anuke.mindustry.game.EventType.GameOverEvent;
 import io.anuke.mindustry.game.EventType.PlayEvent;
 import io.anuke.mindustry.game.EventType.ResetEvent;
@@ -12,6 +16,7 @@ import io.anuke.mindustry.game.EventType.WaveEvent;
 import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.game.TeamInfo;
 import io.anuke.mindustry.game.TeamInfo.TeamData;
+import io.anuke.mindustry.game.TimerWheel;
 import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.type.ItemStack;
@@ -92,6 +97,7 @@ public class Logic extends Module{
         Timers.clear();
         Entities.clear();
         TileEntity.sleepingEntities = 0;
+        TimerWheel.clear();
 
         Events.fire(ResetEvent.class);
     }
@@ -129,11 +135,16 @@ public class Logic extends Module{
         }
 
         if(!state.is(State.menu)){
+            Profiler.begin(Phase.tick);
+            Units.grid().build();
 
             if(control != null) control.triggerUpdateInput();
 
             if(!state.is(State.paused) || Net.active()){
+                Profiler.begin(Phase.timers);
                 Timers.update();
+                TimerWheel.update();
+                Profiler.end(Phase.timers);
             }
 
             if(!world.isInvalidMap()){
@@ -153,21 +164,52 @@ public class Logic extends Module{
                 if(!Entities.defaultGroup().isEmpty())
                     throw new RuntimeException("Do not add anything to the default group!");
 
+                Profiler.begin(Phase.bullets);
                 Entities.update(bulletGroup);
+                Profiler.end(Phase.bullets);
+
+                Profiler.begin(Phase.units);
+                //read-only unit queries run in parallel partitions; each unit applies its own results when it updates
+                if(!Net.client()){
+                    Units.sense();
+                }
                 for(EntityGroup group : unitGroups){
                     Entities.update(group);
                 }
+                Profiler.end(Phase.units);
+
+                Profiler.begin(Phase.puddles);
                 Entities.update(puddleGroup);
+                Profiler.end(Phase.puddles);
+
+                Profiler.begin(Phase.tiles);
                 Entities.update(tileGroup);
+                Profiler.end(Phase.tiles);
+
+                Profiler.begin(Phase.fires);
                 Entities.update(fireGroup);
+                GroundHazards.update();
+                Profiler.end(Phase.fires);
+
+                //tile and fire updates only queue the damage they deal to blocks, so that no block is destroyed while they run
+                Profiler.begin(Phase.merge);
+                Damage.applyQueued();
+                Profiler.end(Phase.merge);
+
+                Profiler.begin(Phase.players);
                 Entities.update(playerGroup);
+                Profiler.end(Phase.players);
+
+                Profiler.begin(Phase.items);
                 Entities.update(itemGroup);
 
                 //effect group only contains item drops in the headless version, update it!
                 if(headless){
                     Entities.update(effectGroup);
                 }
+                Profiler.end(Phase.items);
 
+                Profiler.begin(Phase.physics);
                 for(EntityGroup group : unitGroups){
                     if(!group.isEmpty()){
                         EntityPhysics.collideGroups(bulletGroup, group);
@@ -176,9 +218,28 @@ public class Logic extends Module{
 
                 EntityPhysics.collideGroups(bulletGroup, playerGroup);
                 EntityPhysics.collideGroups(itemGroup, playerGroup);
+                Profiler.end(Phase.physics);
+
+                //send all tile damage of this tick at once
+                if(Net.server()){
+                    Profiler.begin(Phase.tileDamage);
+                    netServer.flushTileDamage();
+                    Profiler.end(Phase.tileDamage);
+                }
 
+                //read-only phase: nothing may modify tiles past this point, so team partitions can run in parallel.
+                //tile changes made during this tick are posted with runDelay and applied at the start of the next one.
+                Profiler.begin(Phase.pathfinder);
                 world.pathfinder().update();
+                Profiler.end(Phase.pathfinder);
+
+                //the renderer runs on another thread, so it reads blocks from a copy of the rows changed in this update
+                if(!headless && threads.isEnabled()){
+                    world.getSnapshot().publish();
+                }
             }
+
+            Profiler.end(Phase.tick);
         }
     }
 }
@@ -13,6 +13,7 @@ import io.anuke.mindustry.entities.traits.SyncTrait;
 import io.anuke.mindustry.entities.traits.TypeTrait;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.gen.RemoteReadClient;
+import io.anuke.mindustry.net.CallQueue;
 import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.net.Net.SendMode;
 import io.anuke.mindustry.net.NetworkIO;
@@ -139,9 +140,9 @@ public class NetClient extends Module{
             finishConnecting();
         });
 
-        Net.handleClient(InvokePacket.class, packet -> {
+        Net.handleClient(InvokeBatchPacket.class, packet -> {
             packet.writeBuffer.position(0);
-            RemoteReadClient.readPacket(packet.writeBuffer, packet.type);
+            RemoteReadClient.readBatch(packet.writeBuffer);
         });
     }
 
@@ -324,6 +325,11 @@ public class NetClient extends Module{
                 timeoutTime = 0f;
             }
         }
+
+        //send all remote calls made this frame
+        if(Net.client()){
+            CallQueue.flush();
+        }
     }
 
     public boolean isConnecting(){
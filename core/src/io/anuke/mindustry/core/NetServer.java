@@ -1,17 +1,20 @@
 package io.anuke.mindustry.core;
 
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Colors;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectSet;
 import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
 import io.anuke.mindustry.content.Mechs;
 import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.core.Profiler.Phase;
 import io.anuke.mindustry.entities.Player;
-import io.anuke.mindustry.entities.traits.SyncTrait;
+import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.game.Version;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.gen.RemoteReadServer;
@@ -20,20 +23,17 @@ import io.anuke.mindustry.net.Administration.PlayerInfo;
 import io.anuke.mindustry.net.Packets.*;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.ucore.core.Timers;
-import io.anuke.ucore.entities.Entities;
-import io.anuke.ucore.entities.EntityGroup;
-import io.anuke.ucore.entities.trait.Entity;
 import io.anuke.ucore.io.CountableByteArrayOutputStream;
 import io.anuke.ucore.io.delta.ByteDeltaEncoder;
 import io.anuke.ucore.io.delta.ByteMatcherHash;
 import io.anuke.ucore.io.delta.DEZEncoder;
 import io.anuke.ucore.modules.Module;
 import io.anuke.ucore.util.Log;
+import io.anuke.ucore.util.Mathf;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static io.anuke.mindustry.Vars.*;
@@ -47,6 +47,14 @@ public class NetServer extends Module{
     private final static Vector2 vector = new Vector2();
     /**If a play goes away of their server-side coordinates by this distance, they get teleported back.*/
     private final static float correctDist = 16f;
+    /**Entities further away from a player than this distance on either axis are not synced to that player, until its view is known.*/
+    private final static float syncRange = tilesize * 60f;
+    /**Entities are synced if they are this close to the client's view, so that they are up to date before they come into view.*/
+    private final static float viewMargin = tilesize * 12f;
+    /**Largest view size that is accepted from a client, so that zooming out does not make the server send everything.*/
+    private final static float maxViewSize = syncRange * 2f;
+    /**Maximum amount of tile health values sent in a single packet.*/
+    private final static int maxTileHealthBatch = 300;
 
     public final Administration admins = new Administration();
 
@@ -60,6 +68,14 @@ public class NetServer extends Module{
     private DataOutputStream dataStream = new DataOutputStream(syncStream);
     /**Encoder for computing snapshot deltas.*/
     private DEZEncoder encoder = new DEZEncoder();
+    /**Entity data serialized for the current tick, shared by all players.*/
+    private SyncCache syncCache = new SyncCache();
+    /**Tiles that were damaged during this tick.*/
+    private ObjectSet<TileEntity> damagedTiles = new ObjectSet<>();
+    /**Packed positions and health values of damaged tiles.*/
+    private ByteBuffer healthBuffer = ByteBuffer.allocate(maxTileHealthBatch * 6);
+    /**Records client input of this session, or null if it is not being recorded.*/
+    private ReplayRecorder recorder;
 
     public NetServer(){
 
@@ -167,15 +183,13 @@ public class NetServer extends Module{
 
             trace.playerid = player.id;
 
-            //TODO try DeflaterOutputStream
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            NetworkIO.writeWorld(player, stream);
+            if(recorder != null) recorder.recordJoin(id, player);
+
+            //only copy the world here; it is compressed and sent on another thread
             WorldStream data = new WorldStream();
-            data.stream = new ByteArrayInputStream(stream.toByteArray());
+            data.snapshot = WorldSnapshot.capture(player);
             Net.sendStream(id, data);
 
-            Log.info("Packed {0} uncompressed bytes of WORLD data.", stream.size());
-
             Platform.instance.updateRPC();
         });
 
@@ -226,6 +240,8 @@ public class NetServer extends Module{
                 Call.onPositionSet(id, newx, newy); //teleport and correct position when necessary
             }
 
+            if(recorder != null) recorder.recordSnapshot(id, packet, newx, newy);
+
             //reset player to previous synced position so it gets interpolated
             player.x = prevx;
             player.y = prevy;
@@ -242,12 +258,18 @@ public class NetServer extends Module{
 
             connection.lastRecievedClientSnapshot = packet.snapid;
             connection.lastRecievedClientTime = TimeUtils.millis();
+            connection.viewX = packet.viewX;
+            connection.viewY = packet.viewY;
+            connection.viewWidth = Mathf.clamp(packet.viewWidth, 0f, maxViewSize);
+            connection.viewHeight = Mathf.clamp(packet.viewHeight, 0f, maxViewSize);
         });
 
-        Net.handleServer(InvokePacket.class, (id, packet) -> {
+        Net.handleServer(InvokeBatchPacket.class, (id, packet) -> {
             Player player = connections.get(id);
             if(player == null) return;
-            RemoteReadServer.readPacket(packet.writeBuffer, packet.type, player);
+            packet.writeBuffer.position(0);
+            if(recorder != null) recorder.recordInvoke(id, packet.writeBuffer, packet.writeLength);
+            RemoteReadServer.readBatch(packet.writeBuffer, player);
         });
     }
 
@@ -292,6 +314,7 @@ public class NetServer extends Module{
             Call.sendMessage("[accent]" + player.name + " [accent]has disconnected.");
             Call.onPlayerDisconnect(player.id);
         }
+        if(netServer.recorder != null) netServer.recorder.recordLeave(player.con.id);
         player.remove();
         netServer.connections.remove(player.con.id);
     }
@@ -355,12 +378,91 @@ public class NetServer extends Module{
         }
 
         if(!state.is(State.menu) && Net.server()){
+            Profiler.begin(Phase.sync);
             sync();
+            Profiler.end(Phase.sync);
+        }
+
+        if(recorder != null){
+            recorder.update();
+        }
+
+        //send all remote calls made this frame
+        if(Net.server()){
+            Profiler.begin(Phase.calls);
+            CallQueue.flush();
+            Profiler.end(Phase.calls);
         }
     }
 
     public void reset(){
         admins.clearTraces();
+        admins.getEdits().clear();
+        damagedTiles.clear();
+        stopRecording();
+    }
+
+    /**Starts recording a replay of this session to a file, replacing any recording in progress.*/
+    public void startRecording(FileHandle file){
+        stopRecording();
+        recorder = new ReplayRecorder(file);
+
+        //players that are already connected are not in the save, so they are recorded as joining right away
+        for(IntMap.Entry<Player> entry : connections.entries()){
+            recorder.recordJoin(entry.key, entry.value);
+        }
+    }
+
+    /**Finishes the replay being recorded, if there is one.*/
+    public void stopRecording(){
+        if(recorder != null){
+            recorder.close();
+            recorder = null;
+        }
+    }
+
+    public boolean isRecording(){
+        return recorder != null;
+    }
+
+    /**Marks a tile as damaged, so that its health is sent at the end of this tick.*/
+    public void handleTileDamage(TileEntity entity){
+        damagedTiles.add(entity);
+    }
+
+    /**
+     * Sends the health of all tiles that were damaged this tick to every client, in as few packets as possible.
+     * Every damaged tile is sent, since healing changes health without going through here.
+     */
+    public void flushTileDamage(){
+        if(damagedTiles.size == 0) return;
+
+        healthBuffer.position(0);
+
+        for(TileEntity entity : damagedTiles){
+            if(entity.isDead() || entity.tile.entity != entity) continue;
+
+            healthBuffer.putInt(entity.tile.packedPosition());
+            healthBuffer.putShort((short) Math.ceil(entity.health));
+
+            if(healthBuffer.remaining() < 6){
+                sendTileHealth();
+            }
+        }
+
+        sendTileHealth();
+        damagedTiles.clear();
+    }
+
+    private void sendTileHealth(){
+        if(healthBuffer.position() == 0) return;
+
+        byte[] data = new byte[healthBuffer.position()];
+        healthBuffer.position(0);
+        healthBuffer.get(data);
+        healthBuffer.position(0);
+
+        Call.onTileHealth(data);
     }
 
     public void kick(int connection, KickReason reason){
@@ -434,6 +536,7 @@ public class NetServer extends Module{
 
     void sync(){
         try{
+            boolean cached = false;
 
             //iterate through each player
             for(Player player : connections.values()){
@@ -475,50 +578,17 @@ public class NetServer extends Module{
                 //write timestamp
                 dataStream.writeLong(TimeUtils.millis());
 
-                int totalGroups = 0;
-
-                for(EntityGroup<?> group : Entities.getAllGroups()){
-                    if(!group.isEmpty() && (group.all().get(0) instanceof SyncTrait)) totalGroups++;
+                //serialize all entities once, then copy the ones this player can see
+                if(!cached){
+                    syncCache.build();
+                    cached = true;
                 }
 
-                //write total amount of serializable groups
-                dataStream.writeByte(totalGroups);
-
-                //check for syncable groups
-                for(EntityGroup<?> group : Entities.getAllGroups()){
-                    //TODO range-check sync positions to optimize?
-                    if(group.isEmpty() || !(group.all().get(0) instanceof SyncTrait)) continue;
-
-                    //make sure mapping is enabled for this group
-                    if(!group.mappingEnabled()){
-                        throw new RuntimeException("Entity group '" + group.getType() + "' contains SyncTrait entities, yet mapping is not enabled. In order for syncing to work, you must enable mapping for this group.");
-                    }
-
-                    int amount = 0;
-
-                    for(Entity entity : group.all()){
-                        if(((SyncTrait) entity).isSyncing()){
-                            amount++;
-                        }
-                    }
-
-                    //write group ID + group size
-                    dataStream.writeByte(group.getID());
-                    dataStream.writeShort(amount);
-
-                    for(Entity entity : group.all()){
-                        if(!((SyncTrait) entity).isSyncing()) continue;
-
-                        int position = syncStream.position();
-                        //write all entities now
-                        dataStream.writeInt(entity.getID()); //write id
-                        dataStream.writeByte(((SyncTrait) entity).getTypeID()); //write type ID
-                        ((SyncTrait) entity).write(dataStream); //write entity
-                        int length = syncStream.position() - position; //length must always be less than 127 bytes
-                        if(length > 127)
-                            throw new RuntimeException("Write size for entity of type " + group.getType() + " must not exceed 127!");
-                        dataStream.writeByte(length);
-                    }
+                //entities are synced if they are in or near the client's view, so nothing it can see is left out of date
+                if(connection.viewWidth > 0f && connection.viewHeight > 0f){
+                    syncCache.write(dataStream, connection.viewX, connection.viewY, connection.viewWidth / 2f + viewMargin, connection.viewHeight / 2f + viewMargin);
+                }else{
+                    syncCache.write(dataStream, player.x, player.y, syncRange, syncRange);
                 }
 
                 byte[] bytes = syncStream.toByteArray();
@@ -533,6 +603,7 @@ public class NetServer extends Module{
                     }
 
                     if(showSnapshotSize) Log.info("Sent raw snapshot: {0} bytes.", bytes.length);
+                    Profiler.countSnapshot(bytes.length, bytes.length);
                     ///Nothing to diff off of in this case, send the whole thing
                     sendSplitSnapshot(connection.id, bytes, 0, -1);
                 }else{
@@ -542,6 +613,7 @@ public class NetServer extends Module{
                     byte[] diff = ByteDeltaEncoder.toDiff(new ByteMatcherHash(connection.currentBaseSnapshot, bytes), encoder);
                     if(showSnapshotSize)
                         Log.info("Shrank snapshot: {0} -> {1}, Base {2} ID {3} base length = {4}", bytes.length, diff.length, connection.currentBaseID, connection.currentBaseID + 1, connection.currentBaseSnapshot.length);
+                    Profiler.countSnapshot(bytes.length, diff.length);
                     sendSplitSnapshot(connection.id, diff, connection.currentBaseID + 1, connection.currentBaseID);
                     connection.lastSentSnapshot = diff;
                     connection.lastSentSnapshotID = connection.currentBaseID + 1;
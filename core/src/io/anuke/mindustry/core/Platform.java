@@ -7,6 +7,7 @@ import io.anuke.ucore.core.Settings;
 import io.anuke.ucore.function.Consumer;
 import io.anuke.ucore.scene.ui.TextField;
 
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Random;
@@ -72,6 +73,16 @@ public abstract class Platform {
      * @param filetype File extension to filter
      */
     public void showFileChooser(String text, String content, Consumer<FileHandle> cons, boolean open, String filetype){}
+    /**
+     * Returns the last bytes of a file, starting at position 0 of the buffer, or null if the file is shorter than that.
+     * Desktop and server map the file into memory instead of reading it, so the buffer may be read-only.
+     * Mapped files can't be overwritten or deleted on some systems while mapped, so only pass files that users don't edit.
+     */
+    public ByteBuffer mapFile(FileHandle file, int length){
+        byte[] bytes = file.readBytes();
+        if(bytes.length < length) return null;
+        return ByteBuffer.wrap(bytes, bytes.length - length, length).slice();
+    }
     /**Use the default thread provider from the kryonet module for this.*/
     public ThreadProvider getThreadProvider(){
         return new ThreadProvider() {
@@ -0,0 +1,274 @@
+package io.anuke.mindustry.core;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.net.Registrator;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.util.Strings;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Records how long each phase of a logic update takes, how much data is sent per packet type and how large snapshots are.
+ * <p>
+ * Timings and snapshot sizes are kept for the last {@value #window} samples, from which percentiles are calculated
+ * on demand. Recording a sample is a single array store, so the profiler is cheap enough to always be enabled.
+ * Phases must only be timed on the logic thread; packets may be counted from any thread. Packet counters are atomic
+ * per packet type, so counting never waits for other threads or for a report.
+ */
+public class Profiler{
+    /** Amount of samples that percentiles are calculated from. At 60 ticks per second, this is the last 10 seconds. */
+    private static final int window = 600;
+
+    private static final Samples[] phases = new Samples[Phase.values().length];
+    private static final long[] starts = new long[Phase.values().length];
+    private static final AtomicLong[] packetBytes = new AtomicLong[256], packetCounts = new AtomicLong[256];
+    private static final Samples rawSnapshots = new Samples(), sentSnapshots = new Samples();
+
+    /** Whether samples are recorded. */
+    public static boolean enabled = true;
+
+    static{
+        for(int i = 0; i < phases.length; i++){
+            phases[i] = new Samples();
+        }
+
+        for(int i = 0; i < packetCounts.length; i++){
+            packetBytes[i] = new AtomicLong();
+            packetCounts[i] = new AtomicLong();
+        }
+    }
+
+    /** Marks the start of a phase. */
+    public static void begin(Phase phase){
+        if(enabled){
+            starts[phase.ordinal()] = TimeUtils.nanoTime();
+        }
+    }
+
+    /** Marks the end of a phase, recording the time since it began. */
+    public static void end(Phase phase){
+        if(enabled){
+            phases[phase.ordinal()].add(TimeUtils.nanoTime() - starts[phase.ordinal()]);
+        }
+    }
+
+    /** Returns the duration of the last time a phase was recorded, in nanoseconds, or 0 if it was never recorded. */
+    public static long last(Phase phase){
+        return phases[phase.ordinal()].last();
+    }
+
+    /** Records a packet that was written, including its ID byte. */
+    public static void countPacket(byte id, int bytes){
+        if(enabled){
+            packetBytes[id & 0xff].addAndGet(bytes);
+            packetCounts[id & 0xff].incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the size of a snapshot.
+     * @param raw Size of the snapshot before it was encoded as a difference to the last one.
+     * @param sent Size that was actually sent.
+     */
+    public static void countSnapshot(int raw, int sent){
+        if(enabled){
+            rawSnapshots.add(raw);
+            sentSnapshots.add(sent);
+        }
+    }
+
+    /** Drops all samples and counters. */
+    public static synchronized void clear(){
+        for(Samples samples : phases){
+            samples.clear();
+        }
+        rawSnapshots.clear();
+        sentSnapshots.clear();
+        for(int i = 0; i < packetCounts.length; i++){
+            packetBytes[i].set(0);
+            packetCounts[i].set(0);
+        }
+    }
+
+    /** Returns a human-readable summary of all timings and counters, one line per value. */
+    public static synchronized String report(){
+        StringBuilder out = new StringBuilder();
+
+        out.append("Phase timings, p50 / p99 / max (ms):\n");
+        for(Phase phase : Phase.values()){
+            Samples samples = phases[phase.ordinal()];
+            if(samples.size() == 0) continue;
+
+            out.append("  ").append(phase.name()).append(": ")
+                .append(millis(samples.percentile(0.5f))).append(" / ")
+                .append(millis(samples.percentile(0.99f))).append(" / ")
+                .append(millis(samples.percentile(1f))).append('\n');
+        }
+
+        out.append("Entities:\n");
+        forEachGroup((name, group) -> out.append("  ").append(name).append(": ").append(group.size()).append('\n'));
+
+        if(rawSnapshots.size() > 0){
+            out.append("Snapshots, p50 / p99 (bytes): raw ")
+                .append(rawSnapshots.percentile(0.5f)).append(" / ").append(rawSnapshots.percentile(0.99f))
+                .append(", sent ")
+                .append(sentSnapshots.percentile(0.5f)).append(" / ").append(sentSnapshots.percentile(0.99f)).append('\n');
+        }
+
+        out.append("Packets sent, count / total bytes:\n");
+        for(int i = 0; i < packetCounts.length; i++){
+            long count = packetCounts[i].get();
+            if(count == 0) continue;
+
+            out.append("  ").append(packetName(i)).append(": ")
+                .append(count).append(" / ").append(packetBytes[i].get()).append('\n');
+        }
+
+        out.append("TPS: ").append(threads.getTPS());
+        return out.toString();
+    }
+
+    /** Returns all timings and counters in the Prometheus text exposition format. */
+    public static synchronized String metrics(){
+        StringBuilder out = new StringBuilder();
+
+        out.append("# TYPE mindustry_phase_seconds summary\n");
+        for(Phase phase : Phase.values()){
+            Samples samples = phases[phase.ordinal()];
+            if(samples.size() == 0) continue;
+
+            quantile(out, "mindustry_phase_seconds", "phase", phase.name(), "0.5", seconds(samples.percentile(0.5f)));
+            quantile(out, "mindustry_phase_seconds", "phase", phase.name(), "0.99", seconds(samples.percentile(0.99f)));
+        }
+
+        out.append("# TYPE mindustry_entities gauge\n");
+        forEachGroup((name, group) -> out.append("mindustry_entities{group=\"").append(name).append("\"} ").append(group.size()).append('\n'));
+
+        out.append("# TYPE mindustry_snapshot_bytes summary\n");
+        if(rawSnapshots.size() > 0){
+            quantile(out, "mindustry_snapshot_bytes", "kind", "raw", "0.5", rawSnapshots.percentile(0.5f) + "");
+            quantile(out, "mindustry_snapshot_bytes", "kind", "raw", "0.99", rawSnapshots.percentile(0.99f) + "");
+            quantile(out, "mindustry_snapshot_bytes", "kind", "sent", "0.5", sentSnapshots.percentile(0.5f) + "");
+            quantile(out, "mindustry_snapshot_bytes", "kind", "sent", "0.99", sentSnapshots.percentile(0.99f) + "");
+        }
+
+        out.append("# TYPE mindustry_packets_total counter\n");
+        for(int i = 0; i < packetCounts.length; i++){
+            long count = packetCounts[i].get();
+            if(count == 0) continue;
+            out.append("mindustry_packets_total{type=\"").append(packetName(i)).append("\"} ").append(count).append('\n');
+        }
+
+        out.append("# TYPE mindustry_packet_bytes_total counter\n");
+        for(int i = 0; i < packetBytes.length; i++){
+            if(packetCounts[i].get() == 0) continue;
+            out.append("mindustry_packet_bytes_total{type=\"").append(packetName(i)).append("\"} ").append(packetBytes[i].get()).append('\n');
+        }
+
+        out.append("# TYPE mindustry_tps gauge\n");
+        out.append("mindustry_tps ").append(threads.getTPS()).append('\n');
+        return out.toString();
+    }
+
+    private static void quantile(StringBuilder out, String metric, String label, String value, String quantile, String result){
+        out.append(metric).append('{').append(label).append("=\"").append(value)
+            .append("\",quantile=\"").append(quantile).append("\"} ").append(result).append('\n');
+    }
+
+    private static void forEachGroup(GroupConsumer cons){
+        if(tileGroup == null) return;
+
+        cons.accept("tile", tileGroup);
+        cons.accept("bullet", bulletGroup);
+        cons.accept("player", playerGroup);
+        cons.accept("item", itemGroup);
+        cons.accept("puddle", puddleGroup);
+        cons.accept("fire", fireGroup);
+        cons.accept("effect", effectGroup);
+        for(Team team : Team.all){
+            cons.accept("unit_" + team.name(), unitGroups[team.ordinal()]);
+        }
+    }
+
+    private static String packetName(int id){
+        //framework messages of the network library are written with ID -2
+        if(id == 0xfe) return "Framework";
+
+        if(id >= Registrator.getClasses().length) return "Unknown" + id;
+        return ClassReflection.getSimpleName(Registrator.getByID((byte) id));
+    }
+
+    private static String millis(long nanos){
+        return Strings.toFixed(nanos / 1000000f, 3);
+    }
+
+    private static String seconds(long nanos){
+        return String.valueOf(nanos / 1000000000.0);
+    }
+
+    /** A part of a logic update that is timed separately. */
+    public enum Phase{
+        /** A whole logic update. */
+        tick,
+        timers,
+        bullets,
+        units,
+        puddles,
+        tiles,
+        fires,
+        /** Applying writes that updates deferred, such as queued tile damage. */
+        merge,
+        players,
+        items,
+        physics,
+        tileDamage,
+        pathfinder,
+        /** Writing and sending snapshots to clients. */
+        sync,
+        /** Sending all remote calls of a tick. */
+        calls
+    }
+
+    private interface GroupConsumer{
+        void accept(String name, EntityGroup<?> group);
+    }
+
+    /** A ring buffer of the last {@value #window} samples. */
+    private static class Samples{
+        final long[] values = new long[window];
+        final long[] sorted = new long[window];
+        int index, size;
+
+        void add(long value){
+            values[index] = value;
+            index = (index + 1) % window;
+            size = Math.min(size + 1, window);
+        }
+
+        int size(){
+            return size;
+        }
+
+        long last(){
+            return size == 0 ? 0 : values[(index - 1 + window) % window];
+        }
+
+        /** Returns the value below which a fraction of the samples lie. Sorts a copy of the samples, so this is only for reporting. */
+        long percentile(float fraction){
+            if(size == 0) return 0;
+
+            System.arraycopy(values, 0, sorted, 0, size);
+            Arrays.sort(sorted, 0, size);
+            return sorted[Math.min((int) (fraction * size), size - 1)];
+        }
+
+        void clear(){
+            index = size = 0;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.anuke.mindustry.core;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Queue;
 import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.ucore.core.Settings;
@@ -59,6 +60,27 @@ public class ThreadHandler{
         }
     }
 
+    /**
+     * Runs all tasks and waits until every one of them is complete.
+     * Tasks are executed in parallel if the platform supports it, so they must not write to shared state.
+     */
+    public void runParallel(Array<Runnable> tasks){
+        impl.runParallel(tasks);
+    }
+
+    /**
+     * Runs a task on a background thread, if the platform supports it. Otherwise, the task is run immediately.
+     * Background tasks are run one at a time, in the order they were added.
+     */
+    public void runBackground(Runnable r){
+        impl.runBackground(r);
+    }
+
+    /**Blocks until every background task has finished, then stops the background thread. Called when the game exits.*/
+    public void finishBackground(){
+        impl.finishBackground();
+    }
+
     public int getTPS(){
         return (int) (60 / smoothDelta);
     }
@@ -194,5 +216,21 @@ public class ThreadHandler{
         void wait(Object object) throws InterruptedException;
 
         void notify(Object object);
+
+        /**Runs every task, possibly on several threads, and blocks until all of them are done.*/
+        default void runParallel(Array<Runnable> tasks){
+            for(int i = 0; i < tasks.size; i++){
+                tasks.get(i).run();
+            }
+        }
+
+        /**Runs a task on a background thread. Tasks must be run one at a time, in order.*/
+        default void runBackground(Runnable task){
+            task.run();
+        }
+
+        /**Waits for all background tasks to finish and releases the background thread.*/
+        default void finishBackground(){
+        }
     }
 }
@@ -3,7 +3,9 @@ package io.anuke.mindustry.core;
 import com.badlogic.gdx.math.GridPoint2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.OrderedSet;
 import io.anuke.mindustry.ai.BlockIndexer;
+import io.anuke.mindustry.ai.ClusterGraph;
 import io.anuke.mindustry.ai.Pathfinder;
 import io.anuke.mindustry.content.blocks.Blocks;
 import io.anuke.mindustry.core.GameState.State;
@@ -14,6 +16,8 @@ import io.anuke.mindustry.io.MapIO;
 import io.anuke.mindustry.maps.*;
 import io.anuke.mindustry.world.Block;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.RenderSnapshot;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.mindustry.maps.generation.WorldGenerator;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Timers;
@@ -27,17 +31,26 @@ import io.anuke.ucore.util.Tmp;
 import static io.anuke.mindustry.Vars.*;
 
 public class World extends Module{
+    /**Amount of rows in a band of tiles that is updated by one task in full-map passes.*/
+    private static final int chunkSize = 32;
+
     private Map currentMap;
     private Sector currentSector;
-    private Tile[][] tiles;
+    private TileStore tiles;
+    private RenderSnapshot snapshot;
     private Pathfinder pathfinder = new Pathfinder();
+    private ClusterGraph clusterGraph = new ClusterGraph();
     private BlockIndexer indexer = new BlockIndexer();
     private Maps maps = new Maps();
     private Sectors sectors = new Sectors();
     private WorldGenerator generator = new WorldGenerator();
 
     private Array<Tile> tempTiles = new ThreadArray<>();
+    private Array<Runnable> tasks = new Array<>();
     private boolean generating, invalidMap;
+    /**Tiles changed during the current batch, in order of their first change.*/
+    private OrderedSet<Tile> batched = new OrderedSet<>();
+    private int batchDepth;
 
     public World(){
         maps.load();
@@ -73,6 +86,10 @@ public class World extends Module{
         return pathfinder;
     }
 
+    public ClusterGraph clusterGraph(){
+        return clusterGraph;
+    }
+
     public boolean isInvalidMap(){
         return invalidMap;
     }
@@ -120,11 +137,11 @@ public class World extends Module{
     }
 
     public int width(){
-        return tiles == null ? 0 : tiles.length;
+        return tiles == null ? 0 : tiles.width;
     }
 
     public int height(){
-        return tiles == null ? 0 : tiles[0].length;
+        return tiles == null ? 0 : tiles.height;
     }
 
     public int toPacked(int x, int y){
@@ -139,12 +156,12 @@ public class World extends Module{
         if(tiles == null){
             return null;
         }
-        if(!Mathf.inBounds(x, y, tiles)) return null;
-        return tiles[x][y];
+        if(!tiles.inBounds(x, y)) return null;
+        return tiles.get(x, y);
     }
 
     public Tile rawTile(int x, int y){
-        return tiles[x][y];
+        return tiles.get(x, y);
     }
 
     public Tile tileWorld(float x, float y){
@@ -155,33 +172,42 @@ public class World extends Module{
         return Mathf.scl2(coord, tilesize);
     }
 
-    public Tile[][] getTiles(){
+    /** Returns the raw tile data of this world. Use this for full-map scans instead of iterating through tiles. */
+    public TileStore getTiles(){
         return tiles;
     }
 
+    /** Returns the tile state published for the renderer. See {@link RenderSnapshot}. */
+    public RenderSnapshot getSnapshot(){
+        return snapshot;
+    }
+
     private void clearTileEntities(){
-        for(int x = 0; x < tiles.length; x++){
-            for(int y = 0; y < tiles[0].length; y++){
-                if(tiles[x][y] != null && tiles[x][y].entity != null){
-                    tiles[x][y].entity.remove();
-                }
+        for(int i = 0; i < tiles.size(); i++){
+            Tile tile = tiles.get(i);
+            if(tile.entity != null){
+                tile.entity.remove();
             }
         }
     }
 
     /**
-     * Resizes the tile array to the specified size and returns the resulting tile array.
-     * Only use for loading saves!
+     * Resizes the tile store to the specified size and returns the resulting store.
+     * All data in the store is reset. Only use for loading saves!
      */
-    public Tile[][] createTiles(int width, int height){
+    public TileStore createTiles(int width, int height){
         if(tiles != null){
             clearTileEntities();
 
-            if(tiles.length != width || tiles[0].length != height){
-                tiles = new Tile[width][height];
+            if(tiles.width != width || tiles.height != height){
+                tiles = TileStore.create(width, height);
+                snapshot = new RenderSnapshot(tiles);
+            }else{
+                tiles.clear();
             }
         }else{
-            tiles = new Tile[width][height];
+            tiles = TileStore.create(width, height);
+            snapshot = new RenderSnapshot(tiles);
         }
 
         return tiles;
@@ -200,22 +226,55 @@ public class World extends Module{
      * A WorldLoadEvent will be fire.
      */
     public void endMapLoad(){
-        for(int x = 0; x < tiles.length; x++){
-            for(int y = 0; y < tiles[0].length; y++){
-                tiles[x][y].updateOcclusion();
+        updateOcclusion();
 
-                if(tiles[x][y].entity != null){
-                    tiles[x][y].entity.updateProximity();
-                }
+        for(int i = 0; i < tiles.size(); i++){
+            Tile tile = tiles.get(i);
+
+            if(tile.entity != null){
+                tile.entity.updateProximity();
             }
         }
 
-        EntityPhysics.resizeTree(0, 0, tiles.length * tilesize, tiles[0].length * tilesize);
+        EntityPhysics.resizeTree(0, 0, tiles.width * tilesize, tiles.height * tilesize);
 
         generating = false;
         Events.fire(WorldLoadEvent.class);
     }
 
+    /**
+     * Updates the cliffs and traversal costs of every tile, in parallel bands of rows.
+     * Costs depend on the cliffs of nearby tiles, so all cliffs are updated before any cost is.
+     */
+    public void updateOcclusion(){
+        updateOcclusion(tiles);
+    }
+
+    /** Updates the cliffs and traversal costs of every tile in a store, which does not have to be the store of the world. */
+    public void updateOcclusion(TileStore tiles){
+        tasks.clear();
+        for(int start = 0; start < tiles.height; start += chunkSize){
+            int from = start, to = Math.min(start + chunkSize, tiles.height);
+            tasks.add(() -> {
+                for(int i = from * tiles.width; i < to * tiles.width; i++){
+                    tiles.get(i).updateCliffs(tiles);
+                }
+            });
+        }
+        threads.runParallel(tasks);
+
+        tasks.clear();
+        for(int start = 0; start < tiles.height; start += chunkSize){
+            int from = start, to = Math.min(start + chunkSize, tiles.height);
+            tasks.add(() -> {
+                for(int i = from * tiles.width; i < to * tiles.width; i++){
+                    tiles.get(i).updateCost(tiles);
+                }
+            });
+        }
+        threads.runParallel(tasks);
+    }
+
     /**Loads up a sector map. This does not call play(), but calls reset().*/
     public void loadSector(Sector sector){
         currentSector = sector;
@@ -230,7 +289,7 @@ public class World extends Module{
 
         int width = sectorSize * sector.size, height = sectorSize * sector.size;
 
-        Tile[][] tiles = createTiles(width, height);
+        TileStore tiles = createTiles(width, height);
 
         Map map = new Map("Sector " + sector.x + ", " + sector.y, new MapMeta(0, new ObjectMap<>(), width, height, null), true, () -> null);
         setMap(map);
@@ -281,11 +340,37 @@ public class World extends Module{
     }
 
     public void notifyChanged(Tile tile){
-        if(!generating){
+        if(batchDepth > 0){
+            batched.add(tile);
+        }else if(!generating){
             threads.runDelay(() -> Events.fire(TileChangeEvent.class, tile));
         }
     }
 
+    /**
+     * Begins a batch of tile changes. Until the matching endBatch(), TileChangeEvents are collected instead of being
+     * posted for every change, and each changed tile only gets a single event. Batches may be nested.
+     */
+    public void beginBatch(){
+        batchDepth++;
+    }
+
+    /**Ends a batch of tile changes, posting the events of all changed tiles as a single task.*/
+    public void endBatch(){
+        if(--batchDepth > 0 || batched.size == 0) return;
+
+        Array<Tile> changed = new Array<>(batched.orderedItems());
+        batched.clear();
+
+        if(!generating){
+            threads.runDelay(() -> {
+                for(int i = 0; i < changed.size; i++){
+                    Events.fire(TileChangeEvent.class, changed.get(i));
+                }
+            });
+        }
+    }
+
     public void removeBlock(Tile tile){
         if(!tile.block().isMultiblock() && !tile.isLinked()){
             tile.setBlock(Blocks.air);
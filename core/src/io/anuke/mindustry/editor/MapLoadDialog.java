@@ -58,7 +58,7 @@ public class MapLoadDialog extends FloatingDialog{
         for(Map map : world.maps().all()){
 
             TextButton button = new TextButton(map.getDisplayName(), "toggle");
-            button.add(new BorderImage(map.texture, 2f)).size(16 * 4f);
+            button.add(new BorderImage(world.maps().getTexture(map), 2f)).size(16 * 4f);
             button.getCells().reverse();
             button.clicked(() -> selected = map);
             button.getLabelCell().grow().left().padLeft(5f);
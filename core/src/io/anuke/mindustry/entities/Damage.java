@@ -3,18 +3,20 @@ package io.anuke.mindustry.entities;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
 import io.anuke.mindustry.content.bullets.TurretBullets;
 import io.anuke.mindustry.content.fx.ExplosionFx;
 import io.anuke.mindustry.content.fx.Fx;
 import io.anuke.mindustry.entities.effect.Fire;
 import io.anuke.mindustry.entities.effect.Lightning;
 import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.game.TimerWheel;
+import io.anuke.mindustry.game.TimerWheel.Action;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.graphics.Palette;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.ucore.core.Effects;
 import io.anuke.ucore.core.Effects.Effect;
-import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.entities.impl.SolidEntity;
 import io.anuke.ucore.function.Consumer;
 import io.anuke.ucore.function.Predicate;
@@ -22,6 +24,8 @@ import io.anuke.ucore.util.Mathf;
 import io.anuke.ucore.util.Physics;
 import io.anuke.ucore.util.Translator;
 
+import java.util.Comparator;
+
 import static io.anuke.mindustry.Vars.*;
 
 /**
@@ -31,6 +35,52 @@ public class Damage{
     private static Rectangle rect = new Rectangle();
     private static Rectangle hitrect = new Rectangle();
     private static Translator tr = new Translator();
+    /**Creates a lightning bolt with the amount of branches in the data.*/
+    private static final Action lightningAction = (x, y, branches) ->
+            Lightning.create(Team.none, Fx.none, Palette.power, 3, x, y, Mathf.random(360f), (Integer) branches + Mathf.range(2));
+    private static final Action fireballAction = (x, y, data) -> Call.createBullet(TurretBullets.fireball, x, y, Mathf.random(360f));
+    /**Tile damage queued during tile and fire updates, and unused entries.*/
+    private static final Array<QueuedDamage> queued = new Array<>(), freeQueued = new Array<>();
+    private static final Comparator<QueuedDamage> queuedOrder = (a, b) -> {
+        int pa = a.entity.tile.packedPosition(), pb = b.entity.tile.packedPosition();
+        return pa != pb ? Integer.compare(pa, pb) : Float.compare(a.amount, b.amount);
+    };
+
+    /**
+     * Queues damage to a tile entity, which is applied by {@link #applyQueued()} once tile and fire updates are done.
+     * Updates use this instead of damaging directly, since damage may destroy the block and change the tiles around it
+     * while other tiles are still updating. Safe to call from multiple threads.
+     */
+    public static void queue(TileEntity entity, float amount){
+        synchronized(queued){
+            QueuedDamage damage = freeQueued.size == 0 ? new QueuedDamage() : freeQueued.pop();
+            damage.entity = entity;
+            damage.amount = amount;
+            queued.add(damage);
+        }
+    }
+
+    /**
+     * Applies all queued tile damage.
+     * Damage is sorted by tile position and amount first, so the result does not depend on the order it was queued in.
+     */
+    public static void applyQueued(){
+        if(queued.size == 0) return;
+
+        queued.sort(queuedOrder);
+
+        for(int i = 0; i < queued.size; i++){
+            QueuedDamage damage = queued.get(i);
+            //the block may have been replaced since the damage was queued
+            if(damage.entity.tile.entity == damage.entity){
+                damage.entity.damage(damage.amount);
+            }
+            damage.entity = null;
+            freeQueued.add(damage);
+        }
+
+        queued.clear();
+    }
 
     /**
      * Creates a dynamic explosion based on specified parameters.
@@ -38,19 +88,18 @@ public class Damage{
     public static void dynamicExplosion(float x, float y, float flammability, float explosiveness, float power, float radius, Color color){
         for(int i = 0; i < Mathf.clamp(power / 20, 0, 6); i++){
             int branches = 5 + Mathf.clamp((int) (power / 30), 1, 20);
-            Timers.run(i * 2f + Mathf.random(4f), () -> Lightning.create(Team.none, Fx.none, Palette.power, 3,
-                    x, y, Mathf.random(360f), branches + Mathf.range(2)));
+            TimerWheel.schedule(i * 2f + Mathf.random(4f), lightningAction, x, y, branches);
         }
 
         for(int i = 0; i < Mathf.clamp(flammability / 4, 0, 30); i++){
-            Timers.run(i / 2, () -> Call.createBullet(TurretBullets.fireball, x, y, Mathf.random(360f)));
+            TimerWheel.schedule(i / 2, fireballAction, x, y, null);
         }
 
         int waves = Mathf.clamp((int) (explosiveness / 4), 0, 30);
 
         for(int i = 0; i < waves; i++){
             int f = i;
-            Timers.run(i * 2f, () -> {
+            TimerWheel.schedule(i * 2f, () -> {
                 Damage.damage(x, y, Mathf.clamp(radius + explosiveness, 0, 50f) * ((f + 1f) / waves), explosiveness / 2f);
                 Effects.effect(ExplosionFx.blockExplosionSmoke, x + Mathf.range(radius), y + Mathf.range(radius));
             });
@@ -86,26 +135,9 @@ public class Damage{
      */
     public static void collideLine(SolidEntity hitter, Team team, Effect effect, float x, float y, float angle, float length){
         tr.trns(angle, length);
-        rect.setPosition(x, y).setSize(tr.x, tr.y);
         float x2 = tr.x + x, y2 = tr.y + y;
-
-        if(rect.width < 0){
-            rect.x += rect.width;
-            rect.width *= -1;
-        }
-
-        if(rect.height < 0){
-            rect.y += rect.height;
-            rect.height *= -1;
-        }
-
         float expand = 3f;
 
-        rect.y -= expand;
-        rect.x -= expand;
-        rect.width += expand * 2;
-        rect.height += expand * 2;
-
         Consumer<Unit> cons = e -> {
             e.getHitbox(hitrect);
             Rectangle other = hitrect;
@@ -123,7 +155,7 @@ public class Damage{
             }
         };
 
-        Units.getNearbyEnemies(team, rect, cons);
+        Units.getNearbyEnemies(team, x, y, x2, y2, expand, cons);
     }
 
     /**
@@ -197,4 +229,9 @@ public class Damage{
         float scaled = Mathf.lerp(1f - dist / radius, 1f, falloff);
         return damage * scaled;
     }
+
+    private static class QueuedDamage{
+        TileEntity entity;
+        float amount;
+    }
 }
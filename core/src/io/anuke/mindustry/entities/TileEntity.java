@@ -10,11 +10,15 @@ import io.anuke.mindustry.content.fx.Fx;
 import io.anuke.mindustry.entities.bullet.Bullet;
 import io.anuke.mindustry.entities.traits.TargetTrait;
 import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.game.TimerWheel;
+import io.anuke.mindustry.game.TimerWheel.Action;
 import io.anuke.mindustry.gen.Call;
+import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.world.Block;
 import io.anuke.mindustry.world.Edges;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.mindustry.world.blocks.Wall;
+import io.anuke.mindustry.world.blocks.power.PowerGraph;
 import io.anuke.mindustry.world.consumers.Consume;
 import io.anuke.mindustry.world.modules.ConsumeModule;
 import io.anuke.mindustry.world.modules.InventoryModule;
@@ -30,13 +34,22 @@ import io.anuke.ucore.util.Timer;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
-import static io.anuke.mindustry.Vars.tileGroup;
-import static io.anuke.mindustry.Vars.world;
+import static io.anuke.mindustry.Vars.*;
 
 public class TileEntity extends BaseEntity implements TargetTrait{
     public static final float timeToSleep = 60f * 4; //4 seconds to fall asleep
     private static final ObjectSet<Tile> tmpTiles = new ObjectSet<>();
+    /**Wakes up an entity that went to sleep with {@link #sleepFor(float)}.*/
+    private static final Action wakeupAction = (x, y, data) -> {
+        TileEntity entity = (TileEntity) data;
+        entity.wakeup = TimerWheel.none;
+        //the tile may have been replaced while the entity was asleep
+        if(!entity.dead && entity.tile.entity == entity){
+            entity.noSleep();
+        }
+    };
     /**This value is only used for debugging.*/
     public static int sleepingEntities = 0;
     public Tile tile;
@@ -52,12 +65,24 @@ public class TileEntity extends BaseEntity implements TargetTrait{
     private Array<Tile> proximity = new Array<>(8);
     private boolean dead = false;
     private boolean sleeping;
+    /**Whether this entity was woken up and has not been updated since. Such entities can't fall asleep yet, as their consumers are outdated.*/
+    private boolean woken;
     private float sleepTime;
+    /**Handle of the scheduled wakeup of this entity, if it is sleeping for a limited time.*/
+    private long wakeup = TimerWheel.none;
 
-    @Remote(called = Loc.server)
-    public static void onTileDamage(Tile tile, float health){
-        if(tile.entity != null){
-            tile.entity.health = health;
+    /**Applies a batch of tile health values, written by {@link io.anuke.mindustry.core.NetServer#flushTileDamage()}.*/
+    @Remote
+    public static void onTileHealth(byte[] data){
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        while(buffer.remaining() >= 6){
+            Tile tile = world.tile(buffer.getInt());
+            short health = buffer.getShort();
+
+            if(tile != null && tile.entity != null){
+                tile.entity.health = health;
+            }
         }
     }
 
@@ -87,19 +112,43 @@ public class TileEntity extends BaseEntity implements TargetTrait{
     /**Call when nothing is happening to the entity. This increments the internal sleep timer.*/
     public void sleep(){
         sleepTime += Timers.delta();
-        if(!sleeping && sleepTime >= timeToSleep){
+        if(sleepTime >= timeToSleep){
+            sleepNow();
+        }
+    }
+
+    /**
+     * Puts this entity to sleep right away. It is not updated until it is woken up with {@link #noSleep()},
+     * which happens when it receives items, liquids or power, or when its proximity changes.
+     */
+    public void sleepNow(){
+        if(!sleeping && !woken){
             remove();
             sleeping = true;
             sleepingEntities++;
         }
     }
 
+    /**
+     * Puts this entity to sleep right away, and wakes it up after a delay if nothing else does.
+     * Use for entities that wait on something that does not wake them up, such as free space in a neighbour.
+     * @param ticks The delay in ticks.
+     */
+    public void sleepFor(float ticks){
+        if(sleeping || woken) return;
+        wakeup = TimerWheel.schedule(ticks, wakeupAction, 0f, 0f, this);
+        sleepNow();
+    }
+
     /**Call when this entity is updating. This wakes it up.*/
     public void noSleep(){
         sleepTime = 0f;
         if(sleeping){
+            TimerWheel.cancel(wakeup);
+            wakeup = TimerWheel.none;
             add();
             sleeping = false;
+            woken = true;
             sleepingEntities--;
         }
     }
@@ -141,7 +190,16 @@ public class TileEntity extends BaseEntity implements TargetTrait{
     public void damage(float damage){
         if(dead) return;
 
-        Call.onTileDamage(tile, health - tile.block().handleDamage(tile, damage));
+        float amount = tile.block().handleDamage(tile, damage);
+
+        //health is only changed by the server, clients recieve it in batches
+        if(Net.client()) return;
+
+        health -= amount;
+
+        if(Net.server()){
+            netServer.handleTileDamage(this);
+        }
 
         if(health <= 0){
             Call.onTileDestroyed(tile);
@@ -169,6 +227,10 @@ public class TileEntity extends BaseEntity implements TargetTrait{
                 other.entity.proximity.removeValue(tile, true);
             }
         }
+
+        if(power != null && power.graph != null){
+            power.graph.remove(tile);
+        }
     }
 
     public void updateProximity(){
@@ -199,6 +261,10 @@ public class TileEntity extends BaseEntity implements TargetTrait{
             proximity.add(tile);
         }
 
+        if(power != null){
+            PowerGraph.join(tile);
+        }
+
         tile.block().onProximityUpdate(tile);
     }
 
@@ -234,6 +300,8 @@ public class TileEntity extends BaseEntity implements TargetTrait{
             if(cons != null){
                 cons.update(this);
             }
+
+            woken = false;
         }
     }
 
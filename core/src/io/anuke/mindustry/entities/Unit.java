@@ -19,6 +19,7 @@ import io.anuke.ucore.entities.impl.DestructibleEntity;
 import io.anuke.ucore.entities.trait.DamageTrait;
 import io.anuke.ucore.entities.trait.DrawTrait;
 import io.anuke.ucore.entities.trait.SolidTrait;
+import io.anuke.ucore.function.Consumer;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.graphics.Fill;
 import io.anuke.ucore.util.Geometry;
@@ -29,6 +30,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import static io.anuke.mindustry.Vars.playerGroup;
 import static io.anuke.mindustry.Vars.state;
 import static io.anuke.mindustry.Vars.world;
 
@@ -60,6 +62,13 @@ public abstract class Unit extends DestructibleEntity implements SaveTrait, Targ
     protected float hitTime;
     protected float drownTime;
 
+    /** Avoidance callback for unit grid queries, cached so that queries do not allocate. */
+    private final Consumer<Unit> avoider = this::avoid;
+    /** Push away from nearby units, computed by {@link #sense(float)} and applied in {@link #avoidOthers(float)}. */
+    private final Vector2 avoidance = new Vector2();
+    private float avoidRange;
+    private boolean sensed;
+
     @Override
     public UnitInventory getInventory(){
         return inventory;
@@ -203,7 +212,24 @@ public abstract class Unit extends DestructibleEntity implements SaveTrait, Targ
         return tile == null ? (Floor) Blocks.air : tile.floor();
     }
 
+    /**
+     * Computes how much this unit is pushed away from nearby units, without changing it.
+     * Only the positions of other units are read, so all units are sensed in parallel before any of them update.
+     */
+    public void sense(float avoidRange){
+        this.avoidRange = avoidRange;
+        avoidance.setZero();
+        Units.grid().within(team, x, y, avoidRange, avoider);
+        sensed = true;
+    }
+
     public void avoidOthers(float avoidRange){
+        if(getGroup() != playerGroup && Units.useGrid()){
+            if(!sensed) sense(avoidRange);
+            velocity.add(avoidance);
+            sensed = false;
+            return;
+        }
 
         EntityPhysics.getNearby(getGroup(), x, y, avoidRange * 2f, t -> {
             if(t == this || (t instanceof Unit && (((Unit) t).isDead() || (((Unit) t).isFlying() != isFlying()) || ((Unit) t).getCarrier() == this) || getCarrier() == t))
@@ -214,6 +240,18 @@ public abstract class Unit extends DestructibleEntity implements SaveTrait, Targ
         });
     }
 
+    private void avoid(Unit other){
+        if(other == this || other.getGroup() != getGroup() || other.isDead() || other.isFlying() != isFlying() || other.getCarrier() == this || getCarrier() == other)
+            return;
+        float dx = x - other.x, dy = y - other.y;
+        float dst = (float) Math.sqrt(dx * dx + dy * dy);
+        if(dst > 0f){
+            //same as setting the length of the offset to (1 - dst / range), without shared temporary vectors
+            float scale = (1f - (dst / avoidRange)) / dst;
+            avoidance.add(dx * scale, dy * scale);
+        }
+    }
+
     /**Updates velocity and status effects.*/
     public void updateVelocityStatus(float drag, float maxVelocity){
         if(isCarried()){ //carried units do not take into account velocity normally
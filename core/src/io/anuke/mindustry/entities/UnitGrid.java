@@ -0,0 +1,265 @@
+package io.anuke.mindustry.entities;
+
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import io.anuke.mindustry.entities.units.BaseUnit;
+import io.anuke.mindustry.game.Team;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.function.Consumer;
+import io.anuke.ucore.function.Predicate;
+import io.anuke.ucore.util.Mathf;
+
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * A uniform grid of unit buckets over world coordinates, partitioned by team.
+ * The grid is rebuilt once per tick from the unit and player groups. Queries only visit the buckets that overlap
+ * the queried area, so their cost depends on the local unit density instead of the total unit count.
+ * <p>
+ * Units are bucketed by their position at the time of the last rebuild. Queries are padded to account for movement
+ * since then, and every candidate is tested against its current position. Units that died or were removed since
+ * the rebuild are skipped.
+ */
+public class UnitGrid{
+    /** Size of a bucket, in world units. */
+    private static final int cellSize = tilesize * 8;
+    /** How far a unit can move between rebuilds without being missed by queries. */
+    private static final float slack = tilesize * 2f;
+
+    private final Partition[] partitions = new Partition[Team.all.length];
+    private final Rectangle hitrect = new Rectangle();
+    private final Rectangle cellrect = new Rectangle();
+    private int width = 1, height = 1;
+
+    public UnitGrid(){
+        for(int i = 0; i < partitions.length; i++){
+            partitions[i] = new Partition();
+        }
+    }
+
+    /** Rebuilds all buckets from the current unit and player positions. */
+    public void build(){
+        width = Math.max(world.width() * tilesize / cellSize + 1, 1);
+        height = Math.max(world.height() * tilesize / cellSize + 1, 1);
+
+        for(Team team : Team.all){
+            Partition part = partitions[team.ordinal()];
+            part.clear();
+
+            EntityGroup<BaseUnit> group = unitGroups[team.ordinal()];
+            if(!group.isEmpty()){
+                for(BaseUnit unit : group.all()){
+                    part.add(unit);
+                }
+            }
+        }
+
+        for(Player player : playerGroup.all()){
+            partitions[player.getTeam().ordinal()].add(player);
+        }
+
+        for(Partition part : partitions){
+            part.sort(width * height);
+        }
+    }
+
+    /**
+     * Returns the closest living unit of a team that matches the predicate, or null if there is none in range.
+     */
+    public Unit nearest(Team team, float x, float y, float range, Predicate<Unit> predicate){
+        Partition part = partitions[team.ordinal()];
+        if(part.size == 0) return null;
+
+        Unit result = null;
+        float cdist = range * range;
+
+        int minx = cellx(x - range - slack), miny = celly(y - range - slack);
+        int maxx = cellx(x + range + slack), maxy = celly(y + range + slack);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                int cell = cx + cy * width;
+                for(int i = part.starts[cell]; i < part.starts[cell + 1]; i++){
+                    Unit unit = part.units[i];
+                    float dst = Vector2.dst2(unit.x, unit.y, x, y);
+                    if(dst < cdist && !removed(unit) && predicate.test(unit)){
+                        result = unit;
+                        cdist = dst;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Iterates over all units of a team within a radius of this position.
+     */
+    public void within(Team team, float x, float y, float radius, Consumer<Unit> cons){
+        Partition part = partitions[team.ordinal()];
+        if(part.size == 0) return;
+
+        float radius2 = radius * radius;
+
+        int minx = cellx(x - radius - slack), miny = celly(y - radius - slack);
+        int maxx = cellx(x + radius + slack), maxy = celly(y + radius + slack);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                int cell = cx + cy * width;
+                for(int i = part.starts[cell]; i < part.starts[cell + 1]; i++){
+                    Unit unit = part.units[i];
+                    if(!removed(unit) && Vector2.dst2(unit.x, unit.y, x, y) <= radius2){
+                        cons.accept(unit);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterates over all units of a team whose hitbox overlaps this rectangle.
+     */
+    public void within(Team team, Rectangle rect, Consumer<Unit> cons){
+        Partition part = partitions[team.ordinal()];
+        if(part.size == 0) return;
+
+        float pad = slack + part.extent;
+
+        int minx = cellx(rect.x - pad), miny = celly(rect.y - pad);
+        int maxx = cellx(rect.x + rect.width + pad), maxy = celly(rect.y + rect.height + pad);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                int cell = cx + cy * width;
+                for(int i = part.starts[cell]; i < part.starts[cell + 1]; i++){
+                    Unit unit = part.units[i];
+                    if(removed(unit)) continue;
+
+                    unit.getHitbox(hitrect);
+                    if(hitrect.overlaps(rect)){
+                        cons.accept(unit);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterates over all units of a team in the buckets that this segment passes through.
+     * Candidates are not tested against the segment itself; callers are expected to do their own hit test.
+     *
+     * @param expand How far the segment is thickened on each side.
+     */
+    public void cast(Team team, float x, float y, float x2, float y2, float expand, Consumer<Unit> cons){
+        Partition part = partitions[team.ordinal()];
+        if(part.size == 0) return;
+
+        float pad = slack + part.extent + expand;
+
+        int minx = cellx(Math.min(x, x2) - pad), miny = celly(Math.min(y, y2) - pad);
+        int maxx = cellx(Math.max(x, x2) + pad), maxy = celly(Math.max(y, y2) + pad);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                //edge buckets are clamped and contain everything outside the world, so they are always checked
+                boolean edge = cx == 0 || cy == 0 || cx == width - 1 || cy == height - 1;
+                cellrect.set(cx * cellSize - pad, cy * cellSize - pad, cellSize + pad * 2, cellSize + pad * 2);
+                if(!edge && !Intersector.intersectSegmentRectangle(x, y, x2, y2, cellrect)){
+                    continue;
+                }
+
+                int cell = cx + cy * width;
+                for(int i = part.starts[cell]; i < part.starts[cell + 1]; i++){
+                    if(!removed(part.units[i])){
+                        cons.accept(part.units[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Whether a unit died or was removed since the last rebuild, and should not be returned by queries anymore. */
+    private boolean removed(Unit unit){
+        return unit.isDead() || !unit.isAdded();
+    }
+
+    private int cellx(float x){
+        return Mathf.clamp((int) (x / cellSize), 0, width - 1);
+    }
+
+    private int celly(float y){
+        return Mathf.clamp((int) (y / cellSize), 0, height - 1);
+    }
+
+    /** Units of a single team, sorted by bucket. */
+    private class Partition{
+        Unit[] units = new Unit[16];
+        int[] cells = new int[16];
+        /** Start index of every bucket in the sorted unit array, with one extra entry for the end of the last bucket. */
+        int[] starts = new int[2];
+        /** Buffers for sorting, kept between rebuilds. */
+        int[] offsets = new int[1];
+        Unit[] sorted = new Unit[16];
+        /** Largest hitbox half-extent of any unit in this partition. */
+        float extent;
+        int size;
+
+        void clear(){
+            Arrays.fill(units, 0, size, null);
+            size = 0;
+            extent = 0f;
+        }
+
+        void add(Unit unit){
+            if(size == units.length){
+                units = Arrays.copyOf(units, size * 2);
+                cells = Arrays.copyOf(cells, size * 2);
+            }
+
+            unit.getHitbox(hitrect);
+            extent = Math.max(extent, Math.max(hitrect.width, hitrect.height) / 2f);
+
+            cells[size] = cellx(unit.x) + celly(unit.y) * width;
+            units[size++] = unit;
+        }
+
+        /** Counting sort of all added units by bucket. */
+        void sort(int cellCount){
+            if(size == 0) return;
+
+            if(starts.length < cellCount + 1){
+                starts = new int[cellCount + 1];
+                offsets = new int[cellCount];
+            }else{
+                Arrays.fill(starts, 0, cellCount + 1, 0);
+            }
+
+            if(sorted.length < units.length){
+                sorted = new Unit[units.length];
+            }
+
+            for(int i = 0; i < size; i++){
+                starts[cells[i] + 1]++;
+            }
+
+            for(int i = 0; i < cellCount; i++){
+                starts[i + 1] += starts[i];
+            }
+
+            System.arraycopy(starts, 0, offsets, 0, cellCount);
+            for(int i = 0; i < size; i++){
+                sorted[offsets[cells[i]]++] = units[i];
+            }
+
+            Unit[] last = units;
+            units = sorted;
+            sorted = last;
+            Arrays.fill(sorted, 0, size, null);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.anuke.mindustry.entities;
 
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectSet;
 import io.anuke.mindustry.entities.traits.TargetTrait;
 import io.anuke.mindustry.entities.units.BaseUnit;
@@ -19,12 +20,61 @@ import static io.anuke.mindustry.Vars.*;
  * Utility class for unit and team interactions.
  */
 public class Units{
+    private static final UnitGrid grid = new UnitGrid();
+    /** Amount of units sensed by a single parallel task. */
+    private static final int senseChunk = 128;
+    private static final Array<SenseTask> senseTasks = new Array<>();
+    private static final Array<Runnable> senseRunnables = new Array<>();
     private static Rectangle rect = new Rectangle();
     private static Rectangle hitrect = new Rectangle();
     private static Unit result;
     private static float cdist;
     private static boolean boolResult;
 
+    /**
+     * Returns the spatial grid of all units. It is rebuilt at the start of every logic update.
+     * Only query it from the logic thread; see {@link #useGrid()}.
+     */
+    public static UnitGrid grid(){
+        return grid;
+    }
+
+    /**
+     * Whether the unit grid can be queried from the current thread.
+     * The grid is rebuilt by the logic thread, so other threads fall back to the entity groups.
+     */
+    public static boolean useGrid(){
+        return !threads.isEnabled() || threads.isOnThread();
+    }
+
+    /**
+     * Runs the read-only part of every unit's update in parallel partitions of the unit groups.
+     * Each task only writes to the units in its own partition; the results are applied when each unit updates,
+     * in the usual serial order, so the outcome does not depend on how tasks are scheduled.
+     * Must be called on the logic thread, after the grid is built and before units are updated.
+     */
+    public static void sense(){
+        senseRunnables.clear();
+        int used = 0;
+
+        for(EntityGroup<BaseUnit> group : unitGroups){
+            int size = group.size();
+            for(int start = 0; start < size; start += senseChunk){
+                if(used == senseTasks.size){
+                    senseTasks.add(new SenseTask());
+                }
+
+                SenseTask task = senseTasks.get(used++);
+                task.units = group.all();
+                task.start = start;
+                task.end = Math.min(start + senseChunk, size);
+                senseRunnables.add(task);
+            }
+        }
+
+        threads.runParallel(senseRunnables);
+    }
+
     /**
      * Validates a target.
      *
@@ -163,6 +213,18 @@ public class Units{
      * Returns the closest enemy of this team. Filter by predicate.
      */
     public static Unit getClosestEnemy(Team team, float x, float y, float range, Predicate<Unit> predicate){
+        if(useGrid()){
+            Unit closest = null;
+            for(Team other : state.teams.enemiesOf(team)){
+                Unit unit = grid.nearest(other, x, y, range, predicate);
+                if(unit != null){
+                    closest = unit;
+                    range = unit.distanceTo(x, y);
+                }
+            }
+            return closest;
+        }
+
         result = null;
         cdist = 0f;
 
@@ -188,6 +250,10 @@ public class Units{
      * Returns the closest ally of this team. Filter by predicate.
      */
     public static Unit getClosest(Team team, float x, float y, float range, Predicate<Unit> predicate){
+        if(useGrid()){
+            return grid.nearest(team, x, y, range, predicate);
+        }
+
         result = null;
         cdist = 0f;
 
@@ -213,6 +279,10 @@ public class Units{
      * Iterates over all units in a rectangle.
      */
     public static void getNearby(Team team, Rectangle rect, Consumer<Unit> cons){
+        if(useGrid()){
+            grid.within(team, rect, cons);
+            return;
+        }
 
         EntityGroup<BaseUnit> group = unitGroups[team.ordinal()];
         if(!group.isEmpty()){
@@ -229,6 +299,11 @@ public class Units{
      * Iterates over all units in a circle around this position.
      */
     public static void getNearby(Team team, float x, float y, float radius, Consumer<Unit> cons){
+        if(useGrid()){
+            grid.within(team, x, y, radius, cons);
+            return;
+        }
+
         rect.setSize(radius * 2).setCenter(x, y);
 
         EntityGroup<BaseUnit> group = unitGroups[team.ordinal()];
@@ -252,6 +327,12 @@ public class Units{
      * Iterates over all units in a rectangle.
      */
     public static void getNearby(Rectangle rect, Consumer<Unit> cons){
+        if(useGrid()){
+            for(Team team : Team.all){
+                grid.within(team, rect, cons);
+            }
+            return;
+        }
 
         for(Team team : Team.all){
             EntityGroup<BaseUnit> group = unitGroups[team.ordinal()];
@@ -270,6 +351,13 @@ public class Units{
     public static void getNearbyEnemies(Team team, Rectangle rect, Consumer<Unit> cons){
         ObjectSet<Team> targets = state.teams.enemiesOf(team);
 
+        if(useGrid()){
+            for(Team other : targets){
+                grid.within(other, rect, cons);
+            }
+            return;
+        }
+
         for(Team other : targets){
             EntityGroup<BaseUnit> group = unitGroups[other.ordinal()];
             if(!group.isEmpty()){
@@ -285,6 +373,26 @@ public class Units{
         });
     }
 
+    /**
+     * Iterates over all enemies of this team that may intersect a line segment, thickened by the specified amount.
+     * Candidates are not tested against the segment; callers are expected to do their own hit test.
+     */
+    public static void getNearbyEnemies(Team team, float x, float y, float x2, float y2, float expand, Consumer<Unit> cons){
+        if(useGrid()){
+            for(Team other : state.teams.enemiesOf(team)){
+                grid.cast(other, x, y, x2, y2, expand, cons);
+            }
+            return;
+        }
+
+        rect.set(Math.min(x, x2), Math.min(y, y2), Math.abs(x2 - x), Math.abs(y2 - y));
+        rect.x -= expand;
+        rect.y -= expand;
+        rect.width += expand * 2;
+        rect.height += expand * 2;
+        getNearbyEnemies(team, rect, cons);
+    }
+
     /**
      * Iterates over all units.
      */
@@ -303,5 +411,18 @@ public class Units{
         }
     }
 
+    private static class SenseTask implements Runnable{
+        Array<BaseUnit> units;
+        int start, end;
 
+        @Override
+        public void run(){
+            for(int i = start; i < end; i++){
+                BaseUnit unit = units.get(i);
+                if(!unit.isDead()){
+                    unit.sense(BaseUnit.avoidanceRange);
+                }
+            }
+        }
+    }
 }
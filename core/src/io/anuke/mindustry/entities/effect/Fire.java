@@ -5,7 +5,6 @@ import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.Pool.Poolable;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
-import io.anuke.mindustry.content.StatusEffects;
 import io.anuke.mindustry.content.bullets.TurretBullets;
 import io.anuke.mindustry.content.fx.EnvironmentFx;
 import io.anuke.mindustry.entities.Damage;
@@ -76,6 +75,13 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
         }
     }
 
+    /**
+     * Returns whether there is a fire on this tile. Always false on clients.
+     */
+    public static boolean has(Tile tile){
+        return map.containsKey(tile.packedPosition());
+    }
+
     @Remote(called = Loc.server)
     public static void onFireRemoved(int fireid){
         fireGroup.removeByID(fireid);
@@ -88,12 +94,14 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
 
     @Override
     public void update(){
-        if(Mathf.chance(0.1 * Timers.delta())){
-            Effects.effect(EnvironmentFx.fire, x + Mathf.range(4f), y + Mathf.range(4f));
-        }
+        if(!headless){
+            if(Mathf.chance(0.1 * Timers.delta())){
+                Effects.effect(EnvironmentFx.fire, x + Mathf.range(4f), y + Mathf.range(4f));
+            }
 
-        if(Mathf.chance(0.05 * Timers.delta())){
-            Effects.effect(EnvironmentFx.smoke, x + Mathf.range(4f), y + Mathf.range(4f));
+            if(Mathf.chance(0.05 * Timers.delta())){
+                Effects.effect(EnvironmentFx.smoke, x + Mathf.range(4f), y + Mathf.range(4f));
+            }
         }
 
         if(Net.client()){
@@ -144,10 +152,10 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
                 puddleFlammability = 0;
             }
 
+            //units standing in fires are damaged by GroundHazards
             if(damage){
-                entity.damage(0.4f);
+                Damage.queue(entity, 0.4f);
             }
-            Damage.damageUnits(null, tile.worldx(), tile.worldy(), tilesize, 3f, unit -> !unit.isFlying(), unit -> unit.applyEffect(StatusEffects.burning, 0.8f));
         }
     }
 
@@ -0,0 +1,63 @@
+package io.anuke.mindustry.entities.effect;
+
+import io.anuke.mindustry.content.StatusEffects;
+import io.anuke.mindustry.content.fx.BlockFx;
+import io.anuke.mindustry.entities.Unit;
+import io.anuke.mindustry.entities.Units;
+import io.anuke.mindustry.net.Net;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.core.Effects;
+import io.anuke.ucore.core.Timers;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Applies the effects of puddles and fires to the ground units standing in them.
+ * <p>
+ * Instead of every puddle and fire searching for units around it, every unit looks up the puddle and fire on the tile
+ * it stands on, in a single pass. The cost depends on the amount of units, no matter how many puddles and fires there are.
+ */
+public class GroundHazards{
+    /** Ticks between two passes over all units. Puddles only apply their effect on every other pass. */
+    private static final float interval = 10f;
+
+    private static float timer;
+    private static boolean puddlePass;
+
+    /** Call once per tick, after updating puddles and fires. */
+    public static void update(){
+        if(puddleGroup.isEmpty() && fireGroup.isEmpty()) return;
+
+        timer += Timers.delta();
+        if(timer < interval) return;
+
+        timer = 0f;
+        puddlePass = !puddlePass;
+
+        Units.allUnits(GroundHazards::apply);
+    }
+
+    private static void apply(Unit unit){
+        if(unit.isFlying()) return;
+
+        Tile tile = world.tileWorld(unit.x, unit.y);
+        if(tile == null) return;
+
+        if(!Net.client() && Fire.has(tile)){
+            unit.damage(3f);
+            unit.applyEffect(StatusEffects.burning, 0.8f);
+        }
+
+        if(puddlePass){
+            Puddle puddle = Puddle.getPuddle(tile);
+
+            if(puddle != null && puddle.isDeep()){
+                unit.applyEffect(puddle.getLiquid().effect, 0.5f);
+
+                if(unit.getVelocity().len() > 0.1){
+                    Effects.effect(BlockFx.ripple, puddle.getLiquid().color, unit.x, unit.y);
+                }
+            }
+        }
+    }
+}
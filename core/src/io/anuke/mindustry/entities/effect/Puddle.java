@@ -2,7 +2,6 @@ package io.anuke.mindustry.entities.effect;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.GridPoint2;
-import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.Pool.Poolable;
 import io.anuke.annotations.Annotations.Loc;
@@ -12,7 +11,6 @@ import io.anuke.mindustry.content.blocks.Blocks;
 import io.anuke.mindustry.content.bullets.TurretBullets;
 import io.anuke.mindustry.content.fx.BlockFx;
 import io.anuke.mindustry.content.fx.EnvironmentFx;
-import io.anuke.mindustry.entities.Units;
 import io.anuke.mindustry.entities.traits.SaveTrait;
 import io.anuke.mindustry.entities.traits.SyncTrait;
 import io.anuke.mindustry.gen.Call;
@@ -44,8 +42,6 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
     private static final float maxLiquid = 70f;
     private static final int maxGeneration = 2;
     private static final Color tmp = new Color();
-    private static final Rectangle rect = new Rectangle();
-    private static final Rectangle rect2 = new Rectangle();
     private static int seeds;
 
     private int loadedPosition = -1;
@@ -160,6 +156,15 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
         return liquid.flammability * amount;
     }
 
+    public Liquid getLiquid(){
+        return liquid;
+    }
+
+    /**Returns whether this puddle is large enough to affect units standing in it.*/
+    public boolean isDeep(){
+        return amount >= maxLiquid / 2f;
+    }
+
     @Override
     public void update(){
 
@@ -193,21 +198,8 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
             }
         }
 
-        //effects-only code
-        if(amount >= maxLiquid / 2f && updateTime <= 0f){
-            Units.getNearby(rect.setSize(Mathf.clamp(amount / (maxLiquid / 1.5f)) * 10f).setCenter(x, y), unit -> {
-                if(unit.isFlying()) return;
-
-                unit.getHitbox(rect2);
-                if(!rect.overlaps(rect2)) return;
-
-                unit.applyEffect(liquid.effect, 0.5f);
-
-                if(unit.getVelocity().len() > 0.1){
-                    Effects.effect(BlockFx.ripple, liquid.color, unit.x, unit.y);
-                }
-            });
-
+        //effects on units are applied by GroundHazards
+        if(isDeep() && updateTime <= 0f){
             if(liquid.temperature > 0.7f && tile.entity != null && Mathf.chance(0.3 * Timers.delta())){
                 Fire.create(tile);
             }
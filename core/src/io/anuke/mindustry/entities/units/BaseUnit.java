@@ -49,6 +49,9 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
     protected static final int timerShootLeft = timerIndex++;
     protected static final int timerShootRight = timerIndex++;
 
+    /** Distance at which units push each other apart. */
+    public static final float avoidanceRange = 8f;
+
     protected UnitType type;
     protected Timer timer = new Timer(5);
     protected StateMachine state = new StateMachine();
@@ -175,12 +178,12 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
     }
 
     public void targetClosestAllyFlag(BlockFlag flag){
-        Tile target = Geometry.findClosest(x, y, world.indexer().getAllied(team, flag));
+        Tile target = world.indexer().findClosestAllied(team, flag, x, y);
         if(target != null) this.target = target.entity;
     }
 
     public void targetClosestEnemyFlag(BlockFlag flag){
-        Tile target = Geometry.findClosest(x, y, world.indexer().getEnemy(team, flag));
+        Tile target = world.indexer().findClosestEnemy(team, flag, x, y);
         if(target != null) this.target = target.entity;
     }
 
@@ -327,7 +330,7 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
         }
 
         if(!Net.client()){
-            avoidOthers(8f);
+            avoidOthers(avoidanceRange);
 
             if(spawner != -1 && (world.tile(spawner) == null || world.tile(spawner).entity == null)){
                 damage(health);
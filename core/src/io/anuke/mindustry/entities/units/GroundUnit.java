@@ -3,6 +3,7 @@ package io.anuke.mindustry.entities.units;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
 import io.anuke.mindustry.Vars;
+import io.anuke.mindustry.ai.ClusterGraph.Route;
 import io.anuke.mindustry.entities.Predict;
 import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.entities.Units;
@@ -16,7 +17,6 @@ import io.anuke.mindustry.world.meta.BlockFlag;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.util.Angles;
-import io.anuke.ucore.util.Geometry;
 import io.anuke.ucore.util.Mathf;
 import io.anuke.ucore.util.Translator;
 
@@ -32,6 +32,9 @@ public abstract class GroundUnit extends BaseUnit{
     protected float walkTime;
     protected float baseRotation;
     protected Weapon weapon;
+    protected Route route = new Route();
+    /** Enemy block that is routed to, kept until it is destroyed or changes team. */
+    protected Tile routeTarget;
 
     public final UnitState
 
@@ -41,7 +44,7 @@ public abstract class GroundUnit extends BaseUnit{
         }
 
         public void update(){
-            Tile tile = Geometry.findClosest(x, y, world.indexer().getAllied(team, BlockFlag.resupplyPoint));
+            Tile tile = world.indexer().findClosestAllied(team, BlockFlag.resupplyPoint, x, y);
 
             if(tile != null && distanceTo(tile) > 40){
                 moveAwayFromCore();
@@ -251,9 +254,16 @@ public abstract class GroundUnit extends BaseUnit{
     protected void moveToCore(){
         Tile tile = world.tileWorld(x, y);
         if(tile == null) return;
-        Tile targetTile = world.pathfinder().getTargetTile(team, tile);
 
-        if(tile == targetTile) return;
+        if(!isRouteTarget(routeTarget)){
+            routeTarget = world.indexer().findClosestEnemy(team, BlockFlag.target, x, y);
+        }
+
+        //route along the cluster graph, which weighs breaking through walls the same way the flow field does.
+        //when it finds no route, neither would the flow field, so there is nothing to fall back to
+        Tile targetTile = routeTarget == null ? null : world.clusterGraph().nextTile(route, team, tile, routeTarget);
+
+        if(targetTile == null || tile == targetTile) return;
 
         vec.trns(baseRotation, type.speed);
 
@@ -262,6 +272,11 @@ public abstract class GroundUnit extends BaseUnit{
         velocity.add(vec);
     }
 
+    protected boolean isRouteTarget(Tile tile){
+        return tile != null && tile.block().flags != null && tile.block().flags.contains(BlockFlag.target) &&
+                Vars.state.teams.areEnemies(team, tile.getTeam());
+    }
+
     protected void moveAwayFromCore(){
         Tile tile = world.tileWorld(x, y);
         Tile targetTile = world.pathfinder().getTargetTile(Vars.state.teams.enemiesOf(team).first(), tile);
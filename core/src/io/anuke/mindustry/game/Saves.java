@@ -8,10 +8,12 @@ import io.anuke.mindustry.core.GameState.State;
 import io.anuke.mindustry.game.EventType.StateChangeEvent;
 import io.anuke.mindustry.io.SaveIO;
 import io.anuke.mindustry.io.SaveMeta;
+import io.anuke.mindustry.io.SaveSnapshot;
 import io.anuke.mindustry.maps.Map;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Settings;
 import io.anuke.ucore.core.Timers;
+import io.anuke.ucore.util.Bundles;
 import io.anuke.ucore.util.Strings;
 import io.anuke.ucore.util.ThreadArray;
 
@@ -24,7 +26,7 @@ public class Saves{
     private Array<SaveSlot> saves = new ThreadArray<>();
     private IntMap<SaveSlot> saveMap = new IntMap<>();
     private SaveSlot current;
-    private boolean saving;
+    private volatile boolean saving;
     private float time;
 
     private long totalPlaytime;
@@ -82,8 +84,8 @@ public class Saves{
                         current.save();
                     }catch(Exception e){
                         e.printStackTrace();
+                        saving = false;
                     }
-                    saving = false;
                 });
 
                 time = 0;
@@ -148,7 +150,8 @@ public class Saves{
 
     public class SaveSlot{
         public final int index;
-        SaveMeta meta;
+        //written by the background thread when a save finishes
+        volatile SaveMeta meta;
 
         public SaveSlot(int index){
             this.index = index;
@@ -163,24 +166,46 @@ public class Saves{
 
         public void save(){
             long time = totalPlaytime;
+            saving = true;
 
             threads.runGraphics(() -> {
                 //Renderer fog needs to be written on graphics thread, but save() can run on logic thread
                 //thus, runGraphics is required here
                 renderer.fog().writeFog();
 
-                //save on the logic thread
+                //capture the game state on the logic thread
                 threads.run(() -> {
                     long prev = totalPlaytime;
                     totalPlaytime = time;
 
-                    SaveIO.saveToSlot(index);
-                    meta = SaveIO.getData(index);
+                    SaveSnapshot snapshot;
+                    try{
+                        snapshot = SaveIO.capture();
+                    }catch(Throwable e){
+                        //nothing will be written, so the slot must not stay marked as saving
+                        saving = false;
+                        throw e;
+                    }finally{
+                        totalPlaytime = prev;
+                    }
+
                     if(!state.is(State.menu)){
                         current = this;
                     }
 
-                    totalPlaytime = prev;
+                    //encoding and writing the save is slow, so it is done in the background
+                    threads.runBackground(() -> {
+                        try{
+                            SaveIO.saveToSlot(index, snapshot);
+                            meta = SaveIO.getData(index);
+                        }catch(Exception e){
+                            e.printStackTrace();
+                            if(ui != null){
+                                threads.runGraphics(() -> ui.showError("[orange]" + Bundles.get("text.savefail")));
+                            }
+                        }
+                        saving = false;
+                    });
                 });
             });
         }
@@ -0,0 +1,216 @@
+package io.anuke.mindustry.game;
+
+import io.anuke.ucore.core.Timers;
+
+import java.util.Arrays;
+
+/**
+ * Delayed tasks of the logic thread, kept in a hierarchical timing wheel keyed on logic ticks.
+ * <p>
+ * Scheduling and cancelling a task are O(1), and advancing a tick only touches the tasks that are due, so the cost does
+ * not grow with the amount of pending tasks. Tasks that are due within {@value #slots} ticks are kept in a wheel with
+ * one slot per tick. Later tasks are kept in a wheel with one slot per {@value #slots} ticks, and move to the first wheel
+ * when their slot comes up.
+ * <p>
+ * Tasks are stored in pooled arrays and referred to by handles, so scheduling one does not allocate. Handles of tasks
+ * that have run or were cancelled are never reused, so it is always safe to cancel a handle.
+ * This class must only be used from the logic thread.
+ */
+public class TimerWheel{
+    /** A handle that never refers to a task. */
+    public static final long none = 0;
+
+    private static final int slotBits = 8, slots = 1 << slotBits, slotMask = slots - 1;
+    /** First task in each slot of both wheels. The slots of the coarse wheel start at {@link #slots}. */
+    private static final int[] heads = new int[slots * 2];
+
+    private static Action[] actions = new Action[64];
+    private static Object[] data = new Object[64];
+    private static float[] xs = new float[64], ys = new float[64];
+    private static long[] deadlines = new long[64];
+    private static int[] generations = new int[64];
+    private static int[] next = new int[64], prev = new int[64];
+    /** Slot that each task is in, or -1 if the task is free. */
+    private static int[] slotOf = new int[64];
+
+    private static int firstFree = -1, allocated;
+    private static long tick;
+    private static float accumulator;
+
+    static{
+        Arrays.fill(heads, -1);
+    }
+
+    /** Runs a task after a delay, in ticks. This allocates a closure if the runnable captures anything. */
+    public static long schedule(float delay, Runnable runnable){
+        return schedule(delay, RunnableAction.instance, 0f, 0f, runnable);
+    }
+
+    /**
+     * Runs a task after a delay, in ticks. Scheduling a task with an action that does not capture anything does not allocate.
+     * @return A handle that can be used to cancel the task.
+     */
+    public static long schedule(float delay, Action action, float x, float y, Object value){
+        int task = obtain();
+
+        actions[task] = action;
+        xs[task] = x;
+        ys[task] = y;
+        data[task] = value;
+        deadlines[task] = tick + Math.max((long) Math.ceil(delay), 1);
+
+        insert(task);
+        return ((long) generations[task] << 32) | task;
+    }
+
+    /** Cancels a task. Returns false if it has already run, was already cancelled or the handle is {@link #none}. */
+    public static boolean cancel(long handle){
+        int task = find(handle);
+        if(task == -1) return false;
+
+        unlink(task);
+        free(task);
+        return true;
+    }
+
+    /** Returns whether a task has yet to run. */
+    public static boolean isScheduled(long handle){
+        return find(handle) != -1;
+    }
+
+    /** Advances the wheel by the time that passed since the last update, running all tasks that are due. Call once per logic update. */
+    public static void update(){
+        accumulator += Timers.delta();
+
+        while(accumulator >= 1f){
+            accumulator -= 1f;
+            tick();
+        }
+    }
+
+    /** Drops all tasks. */
+    public static void clear(){
+        for(int i = 0; i < allocated; i++){
+            if(slotOf[i] != -1){
+                free(i);
+            }
+        }
+
+        Arrays.fill(heads, -1);
+        accumulator = 0f;
+    }
+
+    private static void tick(){
+        tick++;
+
+        //move tasks of the coarse slot that starts now into the fine wheel
+        if((tick & slotMask) == 0){
+            int slot = slots + (int) ((tick >> slotBits) & slotMask);
+            int task = heads[slot];
+            heads[slot] = -1;
+
+            while(task != -1){
+                int following = next[task];
+                insert(task);
+                task = following;
+            }
+        }
+
+        int slot = (int) (tick & slotMask);
+        int task;
+
+        //tasks are taken off the slot one at a time, since running one may cancel another one in the same slot
+        while((task = heads[slot]) != -1){
+            unlink(task);
+
+            Action action = actions[task];
+            float x = xs[task], y = ys[task];
+            Object value = data[task];
+
+            //the task is freed first, so it can't be cancelled while running and its action can schedule new tasks
+            free(task);
+            action.run(x, y, value);
+        }
+    }
+
+    private static void insert(int task){
+        long deadline = deadlines[task];
+        int slot = deadline - tick < slots ? (int) (deadline & slotMask) : slots + (int) ((deadline >> slotBits) & slotMask);
+
+        slotOf[task] = slot;
+        prev[task] = -1;
+        next[task] = heads[slot];
+        if(heads[slot] != -1){
+            prev[heads[slot]] = task;
+        }
+        heads[slot] = task;
+    }
+
+    private static void unlink(int task){
+        if(prev[task] != -1){
+            next[prev[task]] = next[task];
+        }else{
+            heads[slotOf[task]] = next[task];
+        }
+
+        if(next[task] != -1){
+            prev[next[task]] = prev[task];
+        }
+    }
+
+    private static int find(long handle){
+        int task = (int) handle;
+        if(handle == none || task < 0 || task >= allocated || slotOf[task] == -1 || generations[task] != (int) (handle >>> 32)){
+            return -1;
+        }
+        return task;
+    }
+
+    private static int obtain(){
+        if(firstFree != -1){
+            int task = firstFree;
+            firstFree = next[task];
+            return task;
+        }
+
+        if(allocated == actions.length){
+            int size = allocated * 2;
+            actions = Arrays.copyOf(actions, size);
+            data = Arrays.copyOf(data, size);
+            xs = Arrays.copyOf(xs, size);
+            ys = Arrays.copyOf(ys, size);
+            deadlines = Arrays.copyOf(deadlines, size);
+            generations = Arrays.copyOf(generations, size);
+            next = Arrays.copyOf(next, size);
+            prev = Arrays.copyOf(prev, size);
+            slotOf = Arrays.copyOf(slotOf, size);
+        }
+
+        //generations start at 1, so no handle is ever equal to none
+        generations[allocated] = 1;
+        return allocated++;
+    }
+
+    private static void free(int task){
+        actions[task] = null;
+        data[task] = null;
+        slotOf[task] = -1;
+        generations[task]++;
+        next[task] = firstFree;
+        firstFree = task;
+    }
+
+    /** A task to run. Actions that don't capture anything are created only once, so they can be scheduled without allocating. */
+    public interface Action{
+        void run(float x, float y, Object data);
+    }
+
+    private static class RunnableAction implements Action{
+        static final RunnableAction instance = new RunnableAction();
+
+        @Override
+        public void run(float x, float y, Object data){
+            ((Runnable) data).run();
+        }
+    }
+}
@@ -8,7 +8,9 @@ import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadGraphicsEvent;
 import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.world.Block;
+import io.anuke.mindustry.world.RenderSnapshot.Frame;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.ucore.core.Core;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Graphics;
@@ -104,35 +106,45 @@ public class BlockRenderer{
         int maxx = Math.min(world.width() - 1, avgx + rangex + expandr);
         int maxy = Math.min(world.height() - 1, avgy + rangey + expandr);
 
+        //blocks and teams are read from the published snapshot; the live tile is only locked to ask a block about its entity
+        Frame frame = world.getSnapshot().acquire();
+        TileStore store = world.getTiles();
+
         for(int x = minx; x <= maxx; x++){
             for(int y = miny; y <= maxy; y++){
                 boolean expanded = (Math.abs(x - avgx) > rangex || Math.abs(y - avgy) > rangey);
+                int index = store.index(x, y);
+                Block block = frame.block(index);
+
+                if(block == Blocks.air) continue;
+
+                Tile tile = store.get(index);
+                Team team = Team.all[frame.teams[index]];
+
+                if(!expanded){
+                    addRequest(tile, Layer.block);
+                    teamChecks.add(team.ordinal());
+                }
 
-                synchronized(Tile.tileSetLock){
-                    Tile tile = world.rawTile(x, y);
+                boolean shadow = !expanded && world.isAccessible(x, y);
+                boolean layers = block.expanded || !expanded;
 
-                    if(tile != null){
-                        Block block = tile.block();
-                        Team team = tile.getTeam();
+                if(shadow || (layers && (block.layer != null || block.layer2 != null))){
+                    synchronized(Tile.tileSetLock){
+                        //the tile changed after the snapshot was taken; its change event will cause another pass
+                        if(tile.block() != block) continue;
 
-                        if(!expanded && block != Blocks.air && world.isAccessible(x, y)){
-                            tile.block().drawShadow(tile);
+                        if(shadow){
+                            block.drawShadow(tile);
                         }
 
-                        if(block != Blocks.air){
-                            if(!expanded){
-                                addRequest(tile, Layer.block);
-                                teamChecks.add(team.ordinal());
+                        if(layers){
+                            if(block.layer != null && block.isLayer(tile)){
+                                addRequest(tile, block.layer);
                             }
 
-                            if(block.expanded || !expanded){
-                                if(block.layer != null && block.isLayer(tile)){
-                                    addRequest(tile, block.layer);
-                                }
-
-                                if(block.layer2 != null && block.isLayer2(tile)){
-                                    addRequest(tile, block.layer2);
-                                }
+                            if(block.layer2 != null && block.isLayer2(tile)){
+                                addRequest(tile, block.layer2);
                             }
                         }
                     }
@@ -172,17 +184,7 @@ public class BlockRenderer{
                 layerBegins(req.layer);
             }
 
-            synchronized(Tile.tileSetLock){
-                Block block = req.tile.block();
-
-                if(req.layer == Layer.block){
-                    block.draw(req.tile);
-                }else if(req.layer == block.layer){
-                    block.drawLayer(req.tile);
-                }else if(req.layer == block.layer2){
-                    block.drawLayer2(req.tile);
-                }
-            }
+            drawRequest(req);
 
             lastLayer = req.layer;
         }
@@ -200,17 +202,7 @@ public class BlockRenderer{
             BlockRequest req = requests.get(index);
             if(req.tile.getTeam() != team) continue;
 
-            synchronized(Tile.tileSetLock){
-                Block block = req.tile.block();
-
-                if(req.layer == Layer.block){
-                    block.draw(req.tile);
-                }else if(req.layer == block.layer){
-                    block.drawLayer(req.tile);
-                }else if(req.layer == block.layer2){
-                    block.drawLayer2(req.tile);
-                }
-            }
+            drawRequest(req);
         }
     }
 
@@ -241,6 +233,21 @@ public class BlockRenderer{
     private void layerEnds(Layer layer){
     }
 
+    /**Draws a single request, holding the tile lock only while the block reads its entity.*/
+    private void drawRequest(BlockRequest req){
+        synchronized(Tile.tileSetLock){
+            Block block = req.tile.block();
+
+            if(req.layer == Layer.block){
+                block.draw(req.tile);
+            }else if(req.layer == block.layer){
+                block.drawLayer(req.tile);
+            }else if(req.layer == block.layer2){
+                block.drawLayer2(req.tile);
+            }
+        }
+    }
+
     private void addRequest(Tile tile, Layer layer){
         if(requestidx >= requests.size){
             requests.add(new BlockRequest());
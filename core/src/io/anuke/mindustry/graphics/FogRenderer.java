@@ -13,7 +13,9 @@ import com.badlogic.gdx.utils.Disposable;
 import io.anuke.mindustry.entities.Unit;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadGraphicsEvent;
+import io.anuke.mindustry.world.Block;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.ucore.core.Core;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Graphics;
@@ -53,12 +55,15 @@ public class FogRenderer implements Disposable{
             Graphics.clear(0, 0, 0, 1f);
             buffer.end();
 
-            for(int x = 0; x < world.width(); x++){
-                for(int y = 0; y < world.height(); y++){
-                    Tile tile = world.tile(x, y);
-                    if(tile.getTeam() == players[0].getTeam() && tile.block().synthetic() && tile.block().viewRange > 0){
-                        changeQueue.add(tile);
-                    }
+            TileStore tiles = world.getTiles();
+            byte team = (byte) players[0].getTeam().ordinal();
+
+            for(int i = 0; i < tiles.size(); i++){
+                if(tiles.teams[i] != team) continue;
+
+                Block block = tiles.block(i);
+                if(block.synthetic() && block.viewRange > 0){
+                    changeQueue.add(tiles.get(i));
                 }
             }
 
@@ -82,12 +87,11 @@ public class FogRenderer implements Disposable{
         Gdx.gl.glReadPixels(padding, padding, world.width(), world.height(), GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, pixelBuffer);
 
         pixelBuffer.position(0);
-        for(int i = 0; i < world.width() * world.height(); i++){
-            byte r = pixelBuffer.get();
-            if(r != 0){
-                world.tile(i).setVisibility((byte)1);
+        byte[] visibility = world.getTiles().visibility;
+        for(int i = 0; i < visibility.length; i++){
+            if(pixelBuffer.get(i * 4) != 0){
+                visibility[i] = 1;
             }
-            pixelBuffer.position(pixelBuffer.position() + 3);
         }
         buffer.end();
     }
@@ -136,10 +140,10 @@ public class FogRenderer implements Disposable{
         changeQueue.clear();
 
         if(dirty){
-            for(int i = 0; i < world.width() * world.height(); i++){
-                Tile tile = world.tile(i);
-                if(tile.discovered()){
-                    Fill.rect(tile.worldx(), tile.worldy(), tilesize, tilesize);
+            TileStore tiles = world.getTiles();
+            for(int i = 0; i < tiles.size(); i++){
+                if(tiles.visibility[i] > 0){
+                    Fill.rect((i % tiles.width) * tilesize, (i / tiles.width) * tilesize, tilesize, tilesize);
                 }
             }
             dirty = false;
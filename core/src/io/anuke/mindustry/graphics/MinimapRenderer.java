@@ -14,7 +14,9 @@ import io.anuke.mindustry.entities.Units;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadGraphicsEvent;
 import io.anuke.mindustry.world.ColorMapper;
+import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.ucore.core.Core;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Graphics;
@@ -113,10 +115,11 @@ public class MinimapRenderer implements Disposable{
     }
 
     public void updateAll(){
-        for(int x = 0; x < world.width(); x++){
-            for(int y = 0; y < world.height(); y++){
-                pixmap.drawPixel(x, pixmap.getHeight() - 1 - y, colorFor(world.tile(x, y)));
-            }
+        TileStore tiles = world.getTiles();
+        for(int i = 0; i < tiles.size(); i++){
+            int target = tiles.target(i);
+            int color = ColorMapper.colorFor(tiles.floor(target), tiles.block(target), Team.all[tiles.teams[target]], tiles.elevations[target], tiles.cliffs[target]);
+            pixmap.drawPixel(i % tiles.width, pixmap.getHeight() - 1 - i / tiles.width, color);
         }
         texture.draw(pixmap, 0, 0);
     }
@@ -7,6 +7,7 @@ import com.badlogic.gdx.utils.IntIntMap;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.ObjectMap.Entry;
 import io.anuke.mindustry.content.blocks.Blocks;
+import io.anuke.mindustry.core.Platform;
 import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.maps.Map;
 import io.anuke.mindustry.maps.MapMeta;
@@ -20,6 +21,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Reads and writes map files.
@@ -119,8 +121,21 @@ public class MapIO{
 
     /**
      * Reads tile data, skipping meta tags.
+     * Read-only data of bundled maps is mapped into memory if the platform supports it, instead of being read.
+     * Custom maps are always read, since a mapped file can't be overwritten or deleted on some systems, and reading it
+     * fails if it is changed while mapped.
      */
     public static MapTileData readTileData(Map map, boolean readOnly){
+        //tile data is always the last part of a map file, so it can be found without reading the meta tags again
+        if(readOnly && map.file != null && !map.custom){
+            int length = map.meta.width * map.meta.height * MapTileData.TILE_SIZE;
+            ByteBuffer buffer = Platform.instance.mapFile(map.file, length);
+            if(buffer == null){
+                throw new RuntimeException("Map file '" + map.file.name() + "' is shorter than its tile data.");
+            }
+            return new MapTileData(buffer, map.meta.width, map.meta.height, map.meta.blockMap, true);
+        }
+
         try(DataInputStream ds = new DataInputStream(map.stream.get())){
             return MapIO.readTileData(ds, readOnly);
         }catch(IOException e){
@@ -27,5 +27,10 @@ public abstract class SaveFileVersion{
 
     public abstract void read(DataInputStream stream) throws IOException;
 
-    public abstract void write(DataOutputStream stream) throws IOException;
+    /**Captures everything that is written to a save. Must be called on the logic thread.*/
+    public abstract SaveSnapshot capture() throws IOException;
+
+    public void write(DataOutputStream stream) throws IOException{
+        capture().write(stream, null);
+    }
 }
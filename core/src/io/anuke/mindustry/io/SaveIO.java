@@ -21,6 +21,12 @@ public class SaveIO{
     public static final Array<SaveFileVersion> versionArray = Array.with(
         new Save16()
     );
+    /**Whether map regions that have not changed since the last save are copied instead of being encoded again.*/
+    public static boolean incrementalSaves = true;
+    /**Encoded map regions of the last save.*/
+    private static final TileSnapshot.Cache saveCache = new TileSnapshot.Cache();
+    /**Whether a save that is being written is using the cache.*/
+    private static boolean cacheTaken;
 
     static{
         for(SaveFileVersion version : versionArray){
@@ -29,21 +35,41 @@ public class SaveIO{
     }
 
     public static void saveToSlot(int slot){
+        saveToSlot(slot, capture());
+    }
+
+    /**
+     * Writes a captured save to a slot. Can be called from any thread, but not from several threads at once.
+     * The save is written to a temporary file first, so a failed save never replaces the last valid one.
+     * The previous save is copied to the backup before it is replaced, so there is always a complete file to load.
+     */
+    public static void saveToSlot(int slot, SaveSnapshot snapshot){
         if(gwt){
             ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            write(stream);
+            write(stream, snapshot);
             Settings.putString("save-" + slot + "-data", new String(Base64Coder.encode(stream.toByteArray())));
             Settings.save();
         }else{
             FileHandle file = fileFor(slot);
-            boolean exists = file.exists();
-            if(exists) file.moveTo(file.sibling(file.name() + "-backup." + file.extension()));
+            FileHandle temp = file.sibling(file.name() + "-temp." + file.extension());
             try{
-                write(fileFor(slot));
+                write(temp, snapshot);
             }catch(Exception e){
-                if(exists) file.sibling(file.name() + "-backup." + file.extension()).moveTo(file);
+                temp.delete();
                 throw new RuntimeException(e);
             }
+
+            if(file.exists()) file.copyTo(file.sibling(file.name() + "-backup." + file.extension()));
+            temp.moveTo(file);
+        }
+    }
+
+    /**Captures the current game state for saving. Must be called on the logic thread.*/
+    public static SaveSnapshot capture(){
+        try{
+            return getVersion().capture();
+        }catch(IOException e){
+            throw new RuntimeException(e);
         }
     }
 
@@ -111,21 +137,45 @@ public class SaveIO{
     }
 
     public static void write(FileHandle file){
-        write(new DeflaterOutputStream(file.write(false)));
+        write(file, capture());
+    }
+
+    public static void write(FileHandle file, SaveSnapshot snapshot){
+        write(new DeflaterOutputStream(file.write(false)), snapshot);
     }
 
     public static void write(OutputStream os){
+        write(os, capture());
+    }
+
+    public static void write(OutputStream os, SaveSnapshot snapshot){
         DataOutputStream stream;
+        TileSnapshot.Cache cache = takeCache();
 
         try{
             stream = new DataOutputStream(os);
-            getVersion().write(stream);
+            snapshot.write(stream, cache);
             stream.close();
         }catch(Exception e){
+            //the cache may only be partially updated
+            if(cache != null) cache.clear();
             throw new RuntimeException(e);
+        }finally{
+            if(cache != null) releaseCache();
         }
     }
 
+    /**Returns the incremental save cache, or null if it is disabled or another save is using it right now.*/
+    private static synchronized TileSnapshot.Cache takeCache(){
+        if(!incrementalSaves || cacheTaken) return null;
+        cacheTaken = true;
+        return saveCache;
+    }
+
+    private static synchronized void releaseCache(){
+        cacheTaken = false;
+    }
+
     public static void load(FileHandle file){
         try{
             load(new InflaterInputStream(file.read()));
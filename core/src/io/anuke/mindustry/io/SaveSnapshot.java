@@ -0,0 +1,24 @@
+package io.anuke.mindustry.io;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A copy of everything that is written to a save file, captured at a tick boundary.
+ * The save is written from the copy, which can be done on any thread.
+ */
+public class SaveSnapshot{
+    /** Everything that comes before the map data. */
+    private final byte[] header;
+    private final TileSnapshot tiles;
+
+    public SaveSnapshot(byte[] header, TileSnapshot tiles){
+        this.header = header;
+        this.tiles = tiles;
+    }
+
+    public void write(DataOutputStream stream, TileSnapshot.Cache cache) throws IOException{
+        stream.write(header);
+        tiles.write(stream, cache);
+    }
+}
@@ -0,0 +1,219 @@
+package io.anuke.mindustry.io;
+
+import com.badlogic.gdx.utils.IntArray;
+import io.anuke.mindustry.content.blocks.Blocks;
+import io.anuke.mindustry.world.Block;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.TileStore;
+import io.anuke.mindustry.world.blocks.BlockPart;
+import io.anuke.ucore.util.Bits;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static io.anuke.mindustry.Vars.world;
+
+/**
+ * A copy of all tile data in the world, used to write map data off the logic thread.
+ * <p>
+ * Capturing a snapshot copies the tile arrays and serializes every tile entity, which is cheap compared to writing
+ * the whole map. The map data can then be written from the copy on any thread, in the format that is read by
+ * {@link io.anuke.mindustry.io.versions.Save16} and {@link io.anuke.mindustry.net.NetworkIO#loadWorld(java.io.InputStream)}.
+ */
+public class TileSnapshot{
+    /** Amount of tile rows in a region that can be reused by a {@link Cache}. */
+    private static final int bandSize = 16;
+
+    private final int width, height;
+    private final short[] floors, blocks;
+    private final byte[] elevations, links, visibility;
+
+    /** Serialized tile entities, in tile order. */
+    private byte[] entities;
+    /** Tile indices of all serialized entities, in order. */
+    private final IntArray entityTiles = new IntArray();
+    /** End offset of each serialized entity. */
+    private final IntArray entityEnds = new IntArray();
+
+    private TileSnapshot(TileStore tiles){
+        width = tiles.width;
+        height = tiles.height;
+        floors = tiles.floors.clone();
+        blocks = tiles.blocks.clone();
+        elevations = tiles.elevations.clone();
+        links = tiles.links.clone();
+        visibility = tiles.visibility.clone();
+    }
+
+    /** Captures the current tiles of the world. Must be called on the logic thread. */
+    public static TileSnapshot capture(){
+        TileStore tiles = world.getTiles();
+        TileSnapshot snapshot = new TileSnapshot(tiles);
+
+        try{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream stream = new DataOutputStream(bytes);
+
+            for(int i = 0; i < tiles.size(); i++){
+                Tile tile = tiles.get(i);
+                if(tile.entity == null || tiles.block(i) instanceof BlockPart) continue;
+
+                stream.writeByte(Bits.packByte(tile.getTeamID(), tile.getRotation())); //team + rotation
+                stream.writeShort((short) tile.entity.health); //health
+
+                if(tile.entity.items != null) tile.entity.items.write(stream);
+                if(tile.entity.power != null) tile.entity.power.write(stream);
+                if(tile.entity.liquids != null) tile.entity.liquids.write(stream);
+                if(tile.entity.cons != null) tile.entity.cons.write(stream);
+
+                tile.entity.write(stream);
+
+                snapshot.entityTiles.add(i);
+                snapshot.entityEnds.add(bytes.size());
+            }
+
+            snapshot.entities = bytes.toByteArray();
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+
+        return snapshot;
+    }
+
+    /** Writes the map size, all tiles and their visibility. Safe to call from any thread. */
+    public void write(DataOutputStream stream) throws IOException{
+        write(stream, null);
+    }
+
+    /**
+     * Writes the map size, all tiles and their visibility. Safe to call from any thread.
+     *
+     * @param cache Encoded regions of the last write. Regions without tile entities that have not changed since then
+     * are copied from the cache instead of being encoded again. May be null.
+     */
+    public void write(DataOutputStream stream, Cache cache) throws IOException{
+        //write world size
+        stream.writeShort(width);
+        stream.writeShort(height);
+
+        int size = width * height;
+
+        if(cache == null){
+            writeTiles(stream, 0, 0, size);
+        }else{
+            TileSnapshot last = cache.last != null && cache.last.width == width && cache.last.height == height ? cache.last : null;
+            int bands = (height + bandSize - 1) / bandSize;
+
+            if(cache.bands.length != bands){
+                cache.bands = new byte[bands][];
+            }
+
+            int entity = 0;
+
+            for(int band = 0; band < bands; band++){
+                int from = band * bandSize * width, to = Math.min(from + bandSize * width, size);
+                boolean hasEntities = entity < entityTiles.size && entityTiles.get(entity) < to;
+
+                if(!hasEntities && last != null && cache.bands[band] != null && last.equals(this, from, to)){
+                    stream.write(cache.bands[band]);
+                }else if(hasEntities){
+                    cache.bands[band] = null;
+                    entity = writeTiles(stream, entity, from, to);
+                }else{
+                    cache.buffer.reset();
+                    writeTiles(cache.data, entity, from, to);
+                    cache.bands[band] = cache.buffer.toByteArray();
+                    stream.write(cache.bands[band]);
+                }
+            }
+
+            cache.last = this;
+        }
+
+        //write visibility, length-run encoded
+        for(int i = 0; i < size; i++){
+            boolean discovered = visibility[i] > 0;
+
+            int consecutives = 0;
+
+            for(int j = i + 1; j < size && consecutives < 32767*2-1; j++){
+                if((visibility[j] > 0) != discovered){
+                    break;
+                }
+
+                consecutives++;
+            }
+
+            stream.writeBoolean(discovered);
+            stream.writeShort(consecutives);
+            i += consecutives;
+        }
+    }
+
+    /**
+     * Writes all tiles in a range. Runs of air never extend past the end of the range.
+     *
+     * @param entity Index of the first serialized entity in this range.
+     * @return Index of the first serialized entity after this range.
+     */
+    private int writeTiles(DataOutputStream stream, int entity, int from, int to) throws IOException{
+        for(int i = from; i < to; i++){
+            Block block = Block.getByID(blocks[i]);
+
+            stream.writeByte(floors[i]);
+            stream.writeByte(blocks[i]);
+            stream.writeByte(elevations[i]);
+
+            if(block instanceof BlockPart){
+                stream.writeByte(links[i]);
+            }else if(entity < entityTiles.size && entityTiles.get(entity) == i){
+                int start = entity == 0 ? 0 : entityEnds.get(entity - 1);
+                stream.write(entities, start, entityEnds.get(entity) - start);
+                entity++;
+            }else if(block == Blocks.air){
+                int consecutives = 0;
+
+                for(int j = i + 1; j < to && consecutives < 255; j++){
+                    if(floors[j] != floors[i] || blocks[j] != Blocks.air.id || elevations[j] != elevations[i]){
+                        break;
+                    }
+
+                    consecutives++;
+                }
+
+                stream.writeByte(consecutives);
+                i += consecutives;
+            }
+        }
+
+        return entity;
+    }
+
+    /** Returns whether the tiles in this range are the same in both snapshots. Entities are not compared. */
+    private boolean equals(TileSnapshot other, int from, int to){
+        for(int i = from; i < to; i++){
+            if(floors[i] != other.floors[i] || blocks[i] != other.blocks[i] || elevations[i] != other.elevations[i] || links[i] != other.links[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encoded tile regions from the last write, used to skip encoding regions that have not changed.
+     * A cache must only be used by one thread at a time.
+     */
+    public static class Cache{
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(buffer);
+        private TileSnapshot last;
+        private byte[][] bands = {};
+
+        /** Drops all cached regions. */
+        public void clear(){
+            last = null;
+            bands = new byte[0][];
+        }
+    }
+}
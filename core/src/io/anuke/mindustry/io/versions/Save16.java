@@ -10,15 +10,17 @@ import io.anuke.mindustry.game.GameMode;
 import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.game.Version;
 import io.anuke.mindustry.io.SaveFileVersion;
+import io.anuke.mindustry.io.SaveSnapshot;
+import io.anuke.mindustry.io.TileSnapshot;
 import io.anuke.mindustry.maps.Map;
 import io.anuke.mindustry.world.Tile;
-import io.anuke.mindustry.world.blocks.BlockPart;
-import io.anuke.ucore.core.Timers;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.ucore.entities.Entities;
 import io.anuke.ucore.entities.EntityGroup;
 import io.anuke.ucore.entities.trait.Entity;
 import io.anuke.ucore.util.Bits;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -82,19 +84,19 @@ public class Save16 extends SaveFileVersion{
 
         world.beginMapLoad();
 
-        Tile[][] tiles = world.createTiles(width, height);
+        TileStore tiles = world.createTiles(width, height);
 
         for(int i = 0; i < width * height; i++){
-            int x = i % width, y = i / width;
             byte floorid = stream.readByte();
             byte wallid = stream.readByte();
             byte elevation = stream.readByte();
 
-            Tile tile = new Tile(x, y, floorid, wallid);
-            tile.setElevation(elevation);
+            Tile tile = tiles.get(i);
+            tile.init(floorid, wallid);
+            tiles.elevations[i] = elevation;
 
             if(wallid == Blocks.blockpart.id){
-                tile.link = stream.readByte();
+                tile.setLink(stream.readByte());
             }else if(tile.entity != null){
                 byte tr = stream.readByte();
                 short health = stream.readShort();
@@ -123,16 +125,12 @@ public class Save16 extends SaveFileVersion{
                 int consecutives = stream.readUnsignedByte();
 
                 for(int j = i + 1; j < i + 1 + consecutives; j++){
-                    int newx = j % width, newy = j / width;
-                    Tile newTile = new Tile(newx, newy, floorid, wallid);
-                    newTile.setElevation(elevation);
-                    tiles[newx][newy] = newTile;
+                    tiles.get(j).init(floorid, wallid);
+                    tiles.elevations[j] = elevation;
                 }
 
                 i += consecutives;
             }
-
-            tiles[x][y] = tile;
         }
 
         for(int i = 0; i < width * height; i++){
@@ -140,8 +138,7 @@ public class Save16 extends SaveFileVersion{
             int consecutives = stream.readUnsignedShort();
             if(discovered){
                 for(int j = i + 1; j < i + 1 + consecutives; j++){
-                    int newx = j % width, newy = j / width;
-                    tiles[newx][newy].setVisibility((byte) 1);
+                    tiles.visibility[j] = 1;
                 }
             }
             i += consecutives;
@@ -151,7 +148,10 @@ public class Save16 extends SaveFileVersion{
     }
 
     @Override
-    public void write(DataOutputStream stream) throws IOException{
+    public SaveSnapshot capture() throws IOException{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream stream = new DataOutputStream(bytes);
+
         //--META--
         stream.writeInt(version); //version id
         stream.writeLong(TimeUtils.millis()); //last saved
@@ -193,69 +193,6 @@ public class Save16 extends SaveFileVersion{
 
         //--MAP DATA--
 
-        Timers.mark();
-
-        //write world size
-        stream.writeShort(world.width());
-        stream.writeShort(world.height());
-
-        for(int i = 0; i < world.width() * world.height(); i++){
-            Tile tile = world.tile(i);
-
-            stream.writeByte(tile.getFloorID());
-            stream.writeByte(tile.getBlockID());
-            stream.writeByte(tile.getElevation());
-
-            if(tile.block() instanceof BlockPart){
-                stream.writeByte(tile.link);
-            }else if(tile.entity != null){
-                stream.writeByte(Bits.packByte(tile.getTeamID(), tile.getRotation())); //team + rotation
-                stream.writeShort((short) tile.entity.health); //health
-
-                if(tile.entity.items != null) tile.entity.items.write(stream);
-                if(tile.entity.power != null) tile.entity.power.write(stream);
-                if(tile.entity.liquids != null) tile.entity.liquids.write(stream);
-                if(tile.entity.cons != null) tile.entity.cons.write(stream);
-
-                tile.entity.write(stream);
-            }else if(tile.block() == Blocks.air){
-                int consecutives = 0;
-
-                for(int j = i + 1; j < world.width() * world.height() && consecutives < 255; j++){
-                    Tile nextTile = world.tile(j);
-
-                    if(nextTile.getFloorID() != tile.getFloorID() || nextTile.block() != Blocks.air || nextTile.getElevation() != tile.getElevation()){
-                        break;
-                    }
-
-                    consecutives++;
-                }
-
-                stream.writeByte(consecutives);
-                i += consecutives;
-            }
-        }
-
-        //write visibility, length-run encoded
-        for(int i = 0; i < world.width() * world.height(); i++){
-            Tile tile = world.tile(i);
-            boolean discovered = tile.discovered();
-
-            int consecutives = 0;
-
-            for(int j = i + 1; j < world.width() * world.height() && consecutives < 32767*2-1; j++){
-                Tile nextTile = world.tile(j);
-
-                if(nextTile.discovered() != discovered){
-                    break;
-                }
-
-                consecutives++;
-            }
-
-            stream.writeBoolean(discovered);
-            stream.writeShort(consecutives);
-            i += consecutives;
-        }
+        return new SaveSnapshot(bytes.toByteArray(), TileSnapshot.capture());
     }
 }
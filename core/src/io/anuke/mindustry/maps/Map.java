@@ -1,5 +1,6 @@
 package io.anuke.mindustry.maps;
 
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.utils.ObjectMap;
 import io.anuke.ucore.function.Supplier;
@@ -15,14 +16,21 @@ public class Map{
     public final MapMeta meta;
     /** Supplies a new input stream with the data of this map.*/
     public final Supplier<InputStream> stream;
-    /** Preview texture.*/
+    /** File of this map, used to map its tile data into memory. Null if the map is not stored in a file.*/
+    public final FileHandle file;
+    /** Preview texture. Created on first use, see {@link Maps#getTexture(Map)}.*/
     public Texture texture;
 
     public Map(String name, MapMeta meta, boolean custom, Supplier<InputStream> streamSupplier){
+        this(name, meta, custom, streamSupplier, null);
+    }
+
+    public Map(String name, MapMeta meta, boolean custom, Supplier<InputStream> streamSupplier, FileHandle file){
         this.name = name;
         this.custom = custom;
         this.meta = meta;
         this.stream = streamSupplier;
+        this.file = file;
     }
 
     public Map(String unknownName, int width, int height){
@@ -5,6 +5,11 @@ import io.anuke.ucore.util.Bits;
 
 import java.nio.ByteBuffer;
 
+/**
+ * Tile data of a map, stored in the same format as in map files.
+ * Data read from a file may be mapped into memory, and may use block IDs of another version of the game.
+ * IDs are translated as tiles are read; the whole buffer is only copied and translated once it is written to.
+ */
 public class MapTileData{
     /**
      * Tile size: 4 bytes. <br>
@@ -14,12 +19,13 @@ public class MapTileData{
      * 3: link (x/y) <br>
      * 4: elevation <br>
      */
-    private final static int TILE_SIZE = 5;
+    public final static int TILE_SIZE = 5;
 
-    private final ByteBuffer buffer;
     private final int width, height;
     private final boolean readOnly;
 
+    private ByteBuffer buffer;
+    /**Maps block IDs in the buffer to current block IDs. Null if the buffer uses current IDs.*/
     private IntIntMap map;
 
     public MapTileData(int width, int height){
@@ -31,25 +37,23 @@ public class MapTileData{
     }
 
     public MapTileData(byte[] bytes, int width, int height, IntIntMap mapping, boolean readOnly){
-        buffer = ByteBuffer.wrap(bytes);
+        this(ByteBuffer.wrap(bytes), width, height, mapping, readOnly);
+    }
+
+    /**
+     * @param buffer Tile data, starting at position 0. May be a read-only buffer.
+     * @param mapping Maps block IDs in the data to current block IDs, or null if no translation is needed.
+     */
+    public MapTileData(ByteBuffer buffer, int width, int height, IntIntMap mapping, boolean readOnly){
+        this.buffer = buffer;
         this.width = width;
         this.height = height;
         this.map = mapping;
         this.readOnly = readOnly;
-
-        if(mapping != null && !readOnly){
-            for(int i = 0; i < width * height; i++){
-                TileDataMarker marker = new TileDataMarker();
-                read(marker);
-                buffer.position(i * TILE_SIZE);
-                write(marker);
-            }
-            buffer.position(0);
-            this.map = null;
-        }
     }
 
     public byte[] toArray(){
+        decode();
         return buffer.array();
     }
 
@@ -65,6 +69,7 @@ public class MapTileData{
      * Write a byte to a specific position.
      */
     public void write(int x, int y, DataPosition position, byte data){
+        decode();
         buffer.put((x + width * y) * TILE_SIZE + position.ordinal(), data);
     }
 
@@ -72,7 +77,8 @@ public class MapTileData{
      * Gets a byte at a specific position.
      */
     public byte read(int x, int y, DataPosition position){
-        return buffer.get((x + width * y) * TILE_SIZE + position.ordinal());
+        byte value = buffer.get((x + width * y) * TILE_SIZE + position.ordinal());
+        return map != null && (position == DataPosition.floor || position == DataPosition.wall) ? (byte) map.get(value, value) : value;
     }
 
     /**
@@ -87,6 +93,7 @@ public class MapTileData{
      * Writes this tile data marker.
      */
     public void write(TileDataMarker marker){
+        decode();
         marker.write(buffer);
     }
 
@@ -101,6 +108,29 @@ public class MapTileData{
         return new TileDataMarker();
     }
 
+    /**Copies the data into a writable array if it isn't in one already, and translates all block IDs in place.*/
+    private void decode(){
+        if(map == null && buffer.hasArray() && !buffer.isReadOnly()) return;
+
+        if(!buffer.hasArray() || buffer.isReadOnly()){
+            int position = buffer.position();
+            ByteBuffer copy = ByteBuffer.allocate(buffer.capacity());
+            buffer.position(0);
+            copy.put(buffer);
+            copy.position(position);
+            buffer = copy;
+        }
+
+        if(map != null){
+            for(int i = 0; i < width * height; i++){
+                int floor = i * TILE_SIZE + DataPosition.floor.ordinal(), wall = i * TILE_SIZE + DataPosition.wall.ordinal();
+                buffer.put(floor, (byte) map.get(buffer.get(floor), buffer.get(floor)));
+                buffer.put(wall, (byte) map.get(buffer.get(wall), buffer.get(wall)));
+            }
+            map = null;
+        }
+    }
+
     public enum DataPosition{
         floor, wall, link, rotationTeam, elevation
     }
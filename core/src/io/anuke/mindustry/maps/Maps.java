@@ -59,6 +59,14 @@ public class Maps implements Disposable{
         return returnArray;
     }
 
+    /**Returns the preview texture of a map, creating it if needed. Previews are only created once they are shown.*/
+    public Texture getTexture(Map map){
+        if(map.texture == null){
+            map.texture = new Texture(MapIO.generatePixmap(MapIO.readTileData(map, true)));
+        }
+        return map.texture;
+    }
+
     /**Returns map by internal name.*/
     public Map getByName(String name){
         return maps.get(name);
@@ -69,7 +77,7 @@ public class Maps implements Disposable{
         try {
             for (String name : defaultMapNames) {
                 FileHandle file = Gdx.files.internal("maps/" + name + "." + mapExtension);
-                loadMap(file.nameWithoutExtension(), file::read, false);
+                loadMap(file.nameWithoutExtension(), file::read, file, false);
             }
         }catch (IOException e){
             throw new RuntimeException(e);
@@ -103,7 +111,7 @@ public class Maps implements Disposable{
                 allMaps.removeValue(maps.get(name), true);
             }
 
-            Map map = new Map(name, new MapMeta(version, tags, data.width(), data.height(), null), true, getStreamFor(name));
+            Map map = new Map(name, new MapMeta(version, tags, data.width(), data.height(), null), true, getStreamFor(name), gwt ? null : customMapDirectory.child(name + "." + mapExtension));
             if (!headless){
                 map.texture = new Texture(MapIO.generatePixmap(data));
             }
@@ -135,14 +143,11 @@ public class Maps implements Disposable{
         }
     }
 
-    private void loadMap(String name, Supplier<InputStream> supplier, boolean custom) throws IOException{
-        try(DataInputStream ds = new DataInputStream(supplier.get())) {
+    /**Loads the meta tags of a map. Tile data is not read until the map is played or its preview is shown.*/
+    private void loadMap(String name, Supplier<InputStream> supplier, FileHandle file, boolean custom) throws IOException{
+        try(DataInputStream ds = new DataInputStream(new BufferedInputStream(supplier.get()))) {
             MapMeta meta = MapIO.readMapMeta(ds);
-            Map map = new Map(name, meta, custom, supplier);
-
-            if (!headless){
-                map.texture = new Texture(MapIO.generatePixmap(MapIO.readTileData(ds, meta, true)));
-            }
+            Map map = new Map(name, meta, custom, supplier, file);
 
             maps.put(map.name, map);
             allMaps.add(map);
@@ -154,7 +159,7 @@ public class Maps implements Disposable{
             for(FileHandle file : customMapDirectory.list()){
                 try{
                     if(file.extension().equalsIgnoreCase(mapExtension)){
-                        loadMap(file.nameWithoutExtension(), file::read, true);
+                        loadMap(file.nameWithoutExtension(), file::read, file, true);
                     }
                 }catch (Exception e){
                     Log.err("Failed to load custom map file '{0}'!", file);
@@ -169,7 +174,7 @@ public class Maps implements Disposable{
                 try{
                     String data = Settings.getString("map-data-" + name, "");
                     byte[] bytes = Base64Coder.decode(data);
-                    loadMap(name, () -> new ByteArrayInputStream(bytes), true);
+                    loadMap(name, () -> new ByteArrayInputStream(bytes), null, true);
                 }catch (Exception e){
                     Log.err("Failed to load custom map '{0}'!", name);
                     Log.err(e);
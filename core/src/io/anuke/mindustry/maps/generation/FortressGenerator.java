@@ -145,10 +145,10 @@ public class FortressGenerator{
         float baseChance = 0.8f / selected.size;
 
         used.add(new Rectangle(enemyX - base.width()/2, enemyY - base.height()/2, base.width(), base.height()));
-        int elev = gen.tiles[enemyX][enemyY].getElevation();
+        int elev = gen.tiles.get(enemyX, enemyY).getElevation();
         for(int x = 0; x < base.width(); x++){
             for(int y = 0; y < base.height(); y++){
-                Tile tile = gen.tiles[enemyX - base.width()/2 + x][enemyY - base.height()/2 + y];
+                Tile tile = gen.tiles.get(enemyX - base.width()/2 + x, enemyY - base.height()/2 + y);
                 StructBlock block = base.layout[x][y];
                 Block result = fixBlock(block.block);
                 tile.setElevation(elev);
@@ -163,7 +163,7 @@ public class FortressGenerator{
                 for(int y = padding; y < gen.height - padding; y++){
                     rect.set(x - struct.layout.length, y - struct.layout[0].length, struct.layout.length, struct.layout[0].length);
                     if(Vector2.dst(x, y, coreX, coreY) > minCoreDst && Vector2.dst(x, y, enemyX, enemyY) > 30 && world.tile(x, y).floor().liquidDrop == null &&
-                    (struct.ore == null || gen.tiles[x][y].floor().dropsItem(struct.ore)) && gen.random.chance(struct.chance * baseChance)){
+                    (struct.ore == null || gen.tiles.get(x, y).floor().dropsItem(struct.ore)) && gen.random.chance(struct.chance * baseChance)){
                         for(Rectangle other : used){
                             if(other.overlaps(rect)){
                                 continue loop;
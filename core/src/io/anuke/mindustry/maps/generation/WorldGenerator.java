@@ -17,6 +17,7 @@ import io.anuke.mindustry.maps.missions.Mission;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.world.Block;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.mindustry.world.blocks.Floor;
 import io.anuke.mindustry.world.blocks.OreBlock;
 import io.anuke.ucore.noise.RidgedPerlin;
@@ -28,24 +29,25 @@ import io.anuke.ucore.util.SeedRandom;
 
 import static io.anuke.mindustry.Vars.*;
 
-
+/**
+ * Generates sector terrain and ores.
+ * Full-map passes are split into bands of {@value #chunkSize} rows, which are generated in parallel.
+ * Every band has its own noise generators and a random generator seeded by its position,
+ * so the result is the same no matter how many threads are used.
+ */
 public class WorldGenerator{
     private static final int baseSeed = 0;
-    private int oreIndex = 0;
+    /**Amount of rows in a band of tiles that is generated by one task.*/
+    private static final int chunkSize = 32;
 
-    private Simplex sim = new Simplex(baseSeed);
-    private Simplex sim2 = new Simplex(baseSeed + 1);
-    private Simplex sim3 = new Simplex(baseSeed + 2);
-    private RidgedPerlin rid = new RidgedPerlin(baseSeed + 4, 1);
-    private VoronoiNoise vn = new VoronoiNoise(baseSeed + 2, (short)0);
+    private TerrainNoise noise = new TerrainNoise();
     private SeedRandom random = new SeedRandom(baseSeed + 3);
 
     private GenResult result = new GenResult();
     private ObjectMap<Block, Block> decoration;
+    private Array<Runnable> tasks = new Array<>();
 
     public WorldGenerator(){
-        vn.setUseDistance(true);
-
         decoration = Mathf.map(
             Blocks.grass, Blocks.shrub,
             Blocks.stone, Blocks.rock,
@@ -55,8 +57,8 @@ public class WorldGenerator{
         );
     }
 
-    /**Loads raw map tile data into a Tile[][] array, setting up multiblocks, cliffs and ores. */
-    public void loadTileData(Tile[][] tiles, MapTileData data, boolean genOres, int seed){
+    /**Loads raw map tile data into a tile store, setting up multiblocks, cliffs and ores. */
+    public void loadTileData(TileStore tiles, MapTileData data, boolean genOres, int seed){
         data.position(0, 0);
         TileDataMarker marker = data.newDataMarker();
 
@@ -64,7 +66,7 @@ public class WorldGenerator{
             for(int x = 0; x < data.width(); x++){
                 data.read(marker);
 
-                tiles[x][y] = new Tile(x, y, marker.floor, marker.wall == Blocks.blockpart.id ? 0 : marker.wall, marker.rotation, marker.team, marker.elevation);
+                tiles.get(x, y).init(marker.floor, marker.wall == Blocks.blockpart.id ? 0 : marker.wall, marker.rotation, marker.team, marker.elevation);
             }
         }
 
@@ -73,25 +75,24 @@ public class WorldGenerator{
         generateOres(tiles, seed, genOres, null);
     }
 
-    public void prepareTiles(Tile[][] tiles){
+    public void prepareTiles(TileStore tiles){
 
         //find multiblocks
         IntArray multiblocks = new IntArray();
 
-        for(int x = 0; x < tiles.length; x++){
-            for(int y = 0; y < tiles[0].length; y++){
-                Tile tile = tiles[x][y];
+        for(int i = 0; i < tiles.size(); i++){
+            Block block = tiles.block(i);
 
-                Team team = tile.getTeam();
+            if(block == StorageBlocks.core){
+                Team team = Team.all[tiles.teams[i]];
 
-                if(tile.block() == StorageBlocks.core &&
-                        state.teams.has(team)){
-                    state.teams.get(team).cores.add(tile);
+                if(state.teams.has(team)){
+                    state.teams.get(team).cores.add(tiles.get(i));
                 }
+            }
 
-                if(tiles[x][y].block().isMultiblock()){
-                    multiblocks.add(tiles[x][y].packedPosition());
-                }
+            if(block.isMultiblock()){
+                multiblocks.add(i);
             }
         }
 
@@ -99,11 +100,11 @@ public class WorldGenerator{
         for(int i = 0; i < multiblocks.size; i++){
             int pos = multiblocks.get(i);
 
-            int x = pos % tiles.length;
-            int y = pos / tiles[0].length;
+            int x = pos % tiles.width;
+            int y = pos / tiles.width;
 
-            Block result = tiles[x][y].block();
-            Team team = tiles[x][y].getTeam();
+            Block result = tiles.block(pos);
+            Team team = Team.all[tiles.teams[pos]];
 
             int offsetx = -(result.size - 1) / 2;
             int offsety = -(result.size - 1) / 2;
@@ -113,8 +114,8 @@ public class WorldGenerator{
                     int worldx = dx + offsetx + x;
                     int worldy = dy + offsety + y;
                     if(!(worldx == x && worldy == y)){
-                        Tile toplace = world.tile(worldx, worldy);
-                        if(toplace != null){
+                        if(tiles.inBounds(worldx, worldy)){
+                            Tile toplace = tiles.get(worldx, worldy);
                             toplace.setLinked((byte) (dx + offsetx), (byte) (dy + offsety));
                             toplace.setTeam(team);
                         }
@@ -124,104 +125,146 @@ public class WorldGenerator{
         }
 
         //update cliffs, occlusion data
-        for(int x = 0; x < tiles.length; x++){
-            for(int y = 0; y < tiles[0].length; y++){
-                Tile tile = tiles[x][y];
+        world.updateOcclusion(tiles);
 
-                tile.updateOcclusion();
+        for(int i = 0; i < tiles.size(); i++){
+            if(tiles.cliffs[i] == 0) continue;
 
-                //fix things on cliffs that shouldn't be
-                if(tile.block() != Blocks.air && tile.hasCliffs() && !tile.block().isMultiblock() && tile.block() != Blocks.blockpart){
-                    tile.setBlock(Blocks.air);
-                }
+            Tile tile = tiles.get(i);
 
-                if(tile.floor() instanceof OreBlock && tile.hasCliffs()){
-                    tile.setFloor(((OreBlock)tile.floor()).base);
-                }
+            //fix things on cliffs that shouldn't be
+            Block block = tiles.block(i);
+            if(block != Blocks.air && !block.isMultiblock() && block != Blocks.blockpart){
+                tile.setBlock(Blocks.air);
+            }
+
+            Floor floor = tiles.floor(i);
+            if(floor instanceof OreBlock){
+                tile.setFloor(((OreBlock)floor).base);
             }
         }
     }
 
-    public void generateOres(Tile[][] tiles, long seed, boolean genOres, Array<Item> usedOres){
-        oreIndex = 0;
-
-        if(genOres){
-            Array<OreEntry> baseOres = Array.with(
-            new OreEntry(Items.tungsten, 0.3f, seed),
-            new OreEntry(Items.coal, 0.284f, seed),
-            new OreEntry(Items.lead, 0.28f, seed),
-            new OreEntry(Items.titanium, 0.27f, seed),
-            new OreEntry(Items.thorium, 0.26f, seed)
-            );
-
-            Array<OreEntry> ores = new Array<>();
-            if(usedOres == null){
-                ores.addAll(baseOres);
-            }else{
-                for(Item item : usedOres){
-                    ores.add(baseOres.select(entry -> entry.item == item).iterator().next());
-                }
-            }
+    public void generateOres(TileStore tiles, long seed, boolean genOres, Array<Item> usedOres){
+        if(!genOres) return;
 
-            for(int x = 0; x < tiles.length; x++){
-                for(int y = 0; y < tiles[0].length; y++){
+        tasks.clear();
+        for(int start = 0; start < tiles.height; start += chunkSize){
+            int from = start, to = Math.min(start + chunkSize, tiles.height);
+            tasks.add(() -> generateOres(tiles, createOres(seed, usedOres), from, to));
+        }
+        threads.runParallel(tasks);
+    }
 
-                    Tile tile = tiles[x][y];
+    /**Creates the noise for every ore that is generated. Each band of rows needs its own instances.*/
+    private Array<OreEntry> createOres(long seed, Array<Item> usedOres){
+        Array<OreEntry> baseOres = Array.with(
+        new OreEntry(Items.tungsten, 0.3f, seed, 0),
+        new OreEntry(Items.coal, 0.284f, seed, 1),
+        new OreEntry(Items.lead, 0.28f, seed, 2),
+        new OreEntry(Items.titanium, 0.27f, seed, 3),
+        new OreEntry(Items.thorium, 0.26f, seed, 4)
+        );
 
-                    if(!tile.floor().hasOres || tile.hasCliffs() || tile.block() != Blocks.air){
-                        continue;
-                    }
+        if(usedOres == null) return baseOres;
 
-                    for(int i = ores.size - 1; i >= 0; i--){
-                        OreEntry entry = ores.get(i);
-                        if(entry.noise.octaveNoise2D(1, 0.7, 1f / (4 + i * 2), x, y) / 4f +
-                        Math.abs(0.5f - entry.noise.octaveNoise2D(2, 0.7, 1f / (50 + i * 2), x, y)) > 0.48f &&
-                        Math.abs(0.5f - entry.noise.octaveNoise2D(1, 1, 1f / (55 + i * 4), x, y)) > 0.22f){
-                            tile.setFloor((Floor) OreBlocks.get(tile.floor(), entry.item));
-                            break;
-                        }
+        //indexed, since the iterators of an array are shared between threads
+        Array<OreEntry> ores = new Array<>();
+        for(int i = 0; i < usedOres.size; i++){
+            Item item = usedOres.get(i);
+            ores.add(baseOres.select(entry -> entry.item == item).iterator().next());
+        }
+        return ores;
+    }
+
+    private void generateOres(TileStore tiles, Array<OreEntry> ores, int fromY, int toY){
+        for(int y = fromY; y < toY; y++){
+            for(int x = 0; x < tiles.width; x++){
+                int index = tiles.index(x, y);
+                Floor floor = tiles.floor(index);
+
+                if(!floor.hasOres || tiles.cliffs[index] != 0 || tiles.blocks[index] != Blocks.air.id){
+                    continue;
+                }
+
+                for(int i = ores.size - 1; i >= 0; i--){
+                    OreEntry entry = ores.get(i);
+                    if(entry.noise.octaveNoise2D(1, 0.7, 1f / (4 + i * 2), x, y) / 4f +
+                    Math.abs(0.5f - entry.noise.octaveNoise2D(2, 0.7, 1f / (50 + i * 2), x, y)) > 0.48f &&
+                    Math.abs(0.5f - entry.noise.octaveNoise2D(1, 1, 1f / (55 + i * 4), x, y)) > 0.22f){
+                        tiles.floors[index] = (short) OreBlocks.get(floor, entry.item).id;
+                        break;
                     }
                 }
             }
         }
     }
 
-    public void generateMap(Tile[][] tiles, Sector sector){
-        int width = tiles.length, height = tiles[0].length;
+    public void generateMap(TileStore tiles, Sector sector){
+        int width = tiles.width, height = tiles.height;
         SeedRandom rnd = new SeedRandom(sector.getSeed());
-        Generation gena = new Generation(sector, tiles, tiles.length, tiles[0].length, rnd);
+        Generation gena = new Generation(sector, tiles, width, height, rnd);
         Array<GridPoint2> spawnpoints = sector.currentMission().getSpawnPoints(gena);
-
-        for(int x = 0; x < width; x++){
-            for(int y = 0; y < height; y++){
-                GenResult result = generateTile(this.result, sector.x, sector.y, x, y, true, spawnpoints);
-                Tile tile = new Tile(x, y, (byte)result.floor.id, (byte)result.wall.id, (byte)0, (byte)0, result.elevation);
-                tiles[x][y] = tile;
-            }
+        boolean[] slopes = new boolean[tiles.size()];
+
+        //terrain only contains floors and decoration blocks, which have no entities, so it is written to the tile store directly
+        tasks.clear();
+        for(int start = 0; start < height; start += chunkSize){
+            int from = start, to = Math.min(start + chunkSize, height);
+            tasks.add(() -> {
+                TerrainNoise noise = new TerrainNoise();
+                SeedRandom random = new SeedRandom(sector.getSeed() * 31 + from);
+                GenResult result = new GenResult();
+
+                for(int y = from; y < to; y++){
+                    for(int x = 0; x < width; x++){
+                        generateTile(noise, random, result, sector.x, sector.y, x, y, true, spawnpoints);
+
+                        int index = tiles.index(x, y);
+                        tiles.floors[index] = (short) result.floor.id;
+                        tiles.blocks[index] = (short) result.wall.id;
+                        tiles.elevations[index] = result.elevation;
+                    }
+                }
+            });
         }
-
-        for(int x = 0; x < width; x++){
-            for(int y = 0; y < height; y++){
-                Tile tile = tiles[x][y];
-
-                byte elevation = tile.getElevation();
-
-                for(GridPoint2 point : Geometry.d4){
-                    if(!Mathf.inBounds(x + point.x, y + point.y, width, height)) continue;
-                    if(tiles[x + point.x][y + point.y].getElevation() < elevation){
-
-                        if(sim2.octaveNoise2D(1, 1, 1.0 / 8, x, y) > 0.8){
-                            tile.setElevation(-1);
+        threads.runParallel(tasks);
+
+        //slopes are found first and placed afterwards, so that no band sees slopes placed by another one
+        tasks.clear();
+        for(int start = 0; start < height; start += chunkSize){
+            int from = start, to = Math.min(start + chunkSize, height);
+            tasks.add(() -> {
+                TerrainNoise noise = new TerrainNoise();
+
+                for(int y = from; y < to; y++){
+                    for(int x = 0; x < width; x++){
+                        int index = tiles.index(x, y);
+                        byte elevation = tiles.elevations[index];
+
+                        for(GridPoint2 point : Geometry.d4){
+                            if(!Mathf.inBounds(x + point.x, y + point.y, width, height)) continue;
+                            if(tiles.elevations[tiles.index(x + point.x, y + point.y)] < elevation){
+
+                                if(noise.sim2.octaveNoise2D(1, 1, 1.0 / 8, x, y) > 0.8){
+                                    slopes[index] = true;
+                                }
+                                break;
+                            }
                         }
-                        break;
                     }
                 }
-            }
+            });
+        }
+        threads.runParallel(tasks);
+
+        for(int i = 0; i < slopes.length; i++){
+            if(slopes[i]) tiles.elevations[i] = -1;
         }
 
         generateOres(tiles, sector.getSeed(), true, sector.ores);
 
-        Generation gen = new Generation(sector, tiles, tiles.length, tiles[0].length, random);
+        Generation gen = new Generation(sector, tiles, width, height, random);
 
         for(Mission mission : sector.missions){
             mission.generate(gen);
@@ -239,29 +282,35 @@ public class WorldGenerator{
     }
 
     public GenResult generateTile(GenResult result, int sectorX, int sectorY, int localX, int localY, boolean detailed, Array<GridPoint2> spawnpoints){
+        return generateTile(noise, random, result, sectorX, sectorY, localX, localY, detailed, spawnpoints);
+    }
+
+    private GenResult generateTile(TerrainNoise noise, SeedRandom random, GenResult result, int sectorX, int sectorY, int localX, int localY, boolean detailed, Array<GridPoint2> spawnpoints){
         int x = sectorX * sectorSize + localX + Short.MAX_VALUE;
         int y = sectorY * sectorSize + localY + Short.MAX_VALUE;
 
         Block floor;
         Block wall = Blocks.air;
 
-        double ridge = rid.getValue(x, y, 1f / 400f);
-        double iceridge = rid.getValue(x+99999, y, 1f / 300f) + sim3.octaveNoise2D(2, 1f, 1f/14f, x, y)/11f;
-        double elevation = elevationOf(x, y, detailed);
-        double temp = vn.noise(x, y, 1f / 300f) * sim3.octaveNoise2D(detailed ? 2 : 1, 1, 1f / 13f, x, y)/13f
-            + sim3.octaveNoise2D(detailed ? 12 : 6, 0.6, 1f / 920f, x, y);
+        double ridge = noise.rid.getValue(x, y, 1f / 400f);
+        double iceridge = noise.rid.getValue(x+99999, y, 1f / 300f) + noise.sim3.octaveNoise2D(2, 1f, 1f/14f, x, y)/11f;
+        double elevation = noise.elevationOf(x, y, detailed);
+        double temp = noise.vn.noise(x, y, 1f / 300f) * noise.sim3.octaveNoise2D(detailed ? 2 : 1, 1, 1f / 13f, x, y)/13f
+            + noise.sim3.octaveNoise2D(detailed ? 12 : 6, 0.6, 1f / 920f, x, y);
 
         int lerpDst = 20;
         lerpDst *= lerpDst;
         float minDst = Float.MAX_VALUE;
 
         if(detailed && spawnpoints != null){
-            for(GridPoint2 p : spawnpoints){
+            //indexed, since the iterators of an array are shared between threads
+            for(int i = 0; i < spawnpoints.size; i++){
+                GridPoint2 p = spawnpoints.get(i);
                 float dst = Vector2.dst2(p.x, p.y, localX, localY);
                 minDst = Math.min(minDst, dst);
 
                 if(dst < lerpDst){
-                    float targetElevation = Math.max(0.86f, (float)elevationOf(sectorX * sectorSize + p.x + Short.MAX_VALUE, sectorY * sectorSize + p.y + Short.MAX_VALUE, true));
+                    float targetElevation = Math.max(0.86f, (float)noise.elevationOf(sectorX * sectorSize + p.x + Short.MAX_VALUE, sectorY * sectorSize + p.y + Short.MAX_VALUE, true));
                     elevation = Mathf.lerp((float)elevation, targetElevation, Mathf.clamp(1.5f*(1f-(dst / lerpDst))));
                 }
             }
@@ -314,9 +363,22 @@ public class WorldGenerator{
         return result;
     }
 
-    double elevationOf(int x, int y, boolean detailed){
-        double ridge = rid.getValue(x, y, 1f / 400f);
-        return sim.octaveNoise2D(detailed ? 7 : 2, 0.62, 1f / 640, x, y) * 6.1 - 1 - ridge;
+    /**Noise generators for terrain. Generators keep state while sampling, so every thread uses its own instances.*/
+    private static class TerrainNoise{
+        final Simplex sim = new Simplex(baseSeed);
+        final Simplex sim2 = new Simplex(baseSeed + 1);
+        final Simplex sim3 = new Simplex(baseSeed + 2);
+        final RidgedPerlin rid = new RidgedPerlin(baseSeed + 4, 1);
+        final VoronoiNoise vn = new VoronoiNoise(baseSeed + 2, (short)0);
+
+        TerrainNoise(){
+            vn.setUseDistance(true);
+        }
+
+        double elevationOf(int x, int y, boolean detailed){
+            double ridge = rid.getValue(x, y, 1f / 400f);
+            return sim.octaveNoise2D(detailed ? 7 : 2, 0.62, 1f / 640, x, y) * 6.1 - 1 - ridge;
+        }
     }
 
     public static class GenResult{
@@ -331,12 +393,12 @@ public class WorldGenerator{
         final RidgedPerlin ridge;
         final int index;
 
-        OreEntry(Item item, float frequency, long seed){
+        OreEntry(Item item, float frequency, long seed, int index){
             this.frequency = frequency;
             this.item = item;
-            this.noise = new Simplex(seed + oreIndex);
-            this.ridge = new RidgedPerlin((int)(seed + oreIndex), 2);
-            this.index = oreIndex++;
+            this.noise = new Simplex(seed + index);
+            this.ridge = new RidgedPerlin((int)(seed + index), 2);
+            this.index = index;
         }
     }
 }
@@ -27,7 +27,7 @@ public interface Mission{
     default void generate(Generation gen){}
 
     default void generateCoreAt(Generation gen, int coreX, int coreY, Team team){
-        gen.tiles[coreX][coreY].setBlock(StorageBlocks.core);
-        gen.tiles[coreX][coreY].setTeam(team);
+        gen.tiles.get(coreX, coreY).setBlock(StorageBlocks.core);
+        gen.tiles.get(coreX, coreY).setTeam(team);
     }
 }
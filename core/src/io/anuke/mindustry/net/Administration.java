@@ -1,7 +1,6 @@
 package io.anuke.mindustry.net;
 
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.ucore.core.Settings;
@@ -16,8 +15,8 @@ public class Administration{
     private ObjectMap<String, PlayerInfo> playerInfo = new ObjectMap<>();
     /**Maps UUIDs to trace infos. This is wiped when a player logs off.*/
     private ObjectMap<String, TraceInfo> traceInfo = new ObjectMap<>();
-    /** Maps packed coordinates to logs for that coordinate*/
-    private IntMap<Array<EditLog>> editLogs = new IntMap<>();
+    /**Bounded history of block edits by players. This is wiped when the game resets.*/
+    private EditJournal edits = new EditJournal();
 
     private Array<String> bannedIPs = new Array<>();
 
@@ -59,59 +58,10 @@ public class Administration{
         Settings.save();
     }
 
-    public IntMap<Array<EditLog>> getEditLogs(){
-        return editLogs;
+    public EditJournal getEdits(){
+        return edits;
     }
 
-    /*
-    public void rollbackWorld(int rollbackTimes) {
-        for(IntMap.Entry<Array<EditLog>> editLog : editLogs.entries()) {
-            int coords = editLog.key;
-            Array<EditLog> logs = editLog.value;
-
-            for(int i = 0; i < rollbackTimes; i++) {
-
-                EditLog log = logs.get(logs.size - 1);
-
-                int x = coords % world.width();
-                int y = coords / world.width();
-                Block result = log.block;
-                int rotation = log.rotation;
-
-                //TODO fix this mess, broken with 4.0
-
-                if(log.action == EditLog.EditAction.PLACE) {
-                   // Build.breakBlock(x, y, false, false);
-
-                    Packets.BreakPacket packet = new Packets.BreakPacket();
-                    packet.x = (short) x;
-                    packet.y = (short) y;
-                    packet.playerid = 0;
-
-                    Net.send(packet, Net.SendMode.tcp);
-                }
-                else if(log.action == EditLog.EditAction.BREAK) {
-                    //Build.placeBlock(x, y, result, rotation, false, false);
-
-                    Packets.PlacePacket packet = new Packets.PlacePacket();
-                    packet.x = (short) x;
-                    packet.y = (short) y;
-                    packet.rotation = (byte) rotation;
-                    packet.playerid = 0;
-                    //packet.block = result.id;
-
-                    Net.send(packet, Net.SendMode.tcp);
-                }
-
-                logs.removeIndex(logs.size - 1);
-                if(logs.size == 0) {
-                    editLogs.remove(coords);
-                    break;
-                }
-            }
-        }
-    }*/
-
     public boolean validateBreak(String id, String ip){
         if(!isAntiGrief() || isAdmin(id, ip)) return true;
 
@@ -0,0 +1,137 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntMap.Entries;
+import com.badlogic.gdx.utils.IntMap.Entry;
+import io.anuke.mindustry.net.Net.SendMode;
+import io.anuke.mindustry.net.Packets.InvokeBatchPacket;
+import io.anuke.ucore.util.Pooling;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Outbound queue for the remote method calls in {@link io.anuke.mindustry.gen.Call}.
+ * <p>
+ * Calls are packed into an {@link InvokeBatchPacket} for each connection instead of being sent one by one.
+ * Batches are sent once per frame by {@link #flush()}, before any other packet is sent, or as soon as they are full.
+ * Reliable and unreliable calls are queued separately. A batch only holds calls of one priority; queueing a call of another
+ * priority sends the current batch first, so calls of each kind always arrive in the order they were made.
+ */
+public class CallQueue{
+    /** Maximum size of the calls in a batch, in bytes. Reliable batches must fit into a single serialized packet. */
+    private static final int maxReliableSize = 4000, maxUnreliableSize = 1200;
+    /** Key of the queue for calls sent to the server. */
+    private static final int serverKey = -1;
+
+    private static final IntMap<Batch[]> queues = new IntMap<>();
+
+    /** Queues a call to all clients, or to the server if this is a client. */
+    public static synchronized void send(byte type, byte priority, ByteBuffer data, SendMode mode){
+        if(Net.server()){
+            for(NetConnection connection : Net.getConnections()){
+                add(connection.id, type, priority, data, mode);
+            }
+        }else{
+            add(serverKey, type, priority, data, mode);
+        }
+    }
+
+    /** Queues a call to a single client. Server-side only. */
+    public static synchronized void sendTo(int id, byte type, byte priority, ByteBuffer data, SendMode mode){
+        add(id, type, priority, data, mode);
+    }
+
+    /** Queues a call to every client except one. Server-side only. */
+    public static synchronized void sendExcept(int id, byte type, byte priority, ByteBuffer data, SendMode mode){
+        for(NetConnection connection : Net.getConnections()){
+            if(connection.id != id){
+                add(connection.id, type, priority, data, mode);
+            }
+        }
+    }
+
+    /** Sends all queued calls. */
+    public static synchronized void flush(){
+        if(queues.size == 0) return;
+
+        Entries<Batch[]> entries = queues.entries();
+        while(entries.hasNext()){
+            Entry<Batch[]> entry = entries.next();
+
+            //drop queues of connections that no longer exist
+            if(entry.key != serverKey && (!Net.server() || Net.getConnection(entry.key) == null)){
+                entries.remove();
+                continue;
+            }
+
+            for(Batch batch : entry.value){
+                send(entry.key, batch);
+            }
+        }
+    }
+
+    /** Discards all queued calls. */
+    public static synchronized void clear(){
+        queues.clear();
+    }
+
+    private static void add(int key, byte type, byte priority, ByteBuffer data, SendMode mode){
+        Batch[] batches = queues.get(key);
+        if(batches == null){
+            queues.put(key, batches = new Batch[]{new Batch(SendMode.tcp), new Batch(SendMode.udp)});
+        }
+
+        Batch batch = batches[mode.ordinal()];
+        int length = data.position();
+
+        //the batch is sent first if this call does not fit into it, or has a different priority
+        if(batch.buffer.position() > 0 && (batch.priority != priority || batch.buffer.position() + 3 + length > batch.maxSize)){
+            send(key, batch);
+        }
+
+        //calls that are too large for an empty batch are sent on their own
+        if(batch.buffer.remaining() < length + 3){
+            batch.buffer = ByteBuffer.allocate(length + 3);
+        }
+
+        batch.priority = priority;
+        batch.buffer.put(type);
+        batch.buffer.putShort((short) length);
+        batch.buffer.put(data.array(), 0, length);
+    }
+
+    private static void send(int key, Batch batch){
+        if(batch.buffer.position() == 0) return;
+
+        InvokeBatchPacket packet = Pooling.obtain(InvokeBatchPacket.class);
+        packet.priority = batch.priority;
+        packet.writeBuffer = batch.buffer;
+        packet.writeLength = batch.buffer.position();
+
+        if(key == serverKey){
+            Net.send(packet, batch.mode);
+        }else{
+            Net.sendTo(key, packet, batch.mode);
+        }
+
+        //packets are serialized when they are sent, so the buffer can be reused right away
+        if(batch.buffer.capacity() > batch.maxSize){
+            batch.buffer = ByteBuffer.allocate(batch.maxSize);
+        }else{
+            batch.buffer.position(0);
+        }
+    }
+
+    private static class Batch{
+        final SendMode mode;
+        final int maxSize;
+        ByteBuffer buffer;
+        byte priority;
+
+        Batch(SendMode mode){
+            this.mode = mode;
+            this.maxSize = mode == SendMode.tcp ? maxReliableSize : maxUnreliableSize;
+            this.buffer = ByteBuffer.allocate(maxSize);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import io.anuke.annotations.Annotations.Loc;
+import io.anuke.annotations.Annotations.Remote;
+import io.anuke.mindustry.content.blocks.Blocks;
+import io.anuke.mindustry.entities.Player;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.gen.Call;
+import io.anuke.mindustry.world.Block;
+import io.anuke.mindustry.world.Tile;
+
+import java.nio.ByteBuffer;
+
+import static io.anuke.mindustry.Vars.world;
+
+/**
+ * Bounded history of the blocks players have built and deconstructed, used to roll edits back.
+ * Each edit holds the packed position, the block before and after it, rotation, team and an interned player index.
+ * <p>
+ * Edits are stored in a ring buffer of primitive arrays, so the journal never grows beyond its capacity; the oldest
+ * edits are overwritten first. Every edit is identified by its sequence number, which only increases.
+ * Each edit also links to the previous edit of the same player and of the same region, so that the edits of one
+ * player or region can be found without going through the whole journal.
+ */
+public class EditJournal{
+    public static final int defaultCapacity = 1 << 16;
+    /** Size of the regions edits are indexed by, in tiles. */
+    public static final int regionSize = 32;
+    /** Bytes used by one restored tile: position, block, rotation and team. */
+    private static final int restoreSize = 8;
+    /** Maximum amount of tiles restored by a single remote call, so that each call fits in one packet. */
+    private static final int restoresPerCall = 450;
+
+    private final int capacity;
+    private final int[] positions, prevByPlayer, prevByRegion;
+    private final short[] blocks, results, players;
+    private final byte[] rotations, teams;
+
+    /** Latest edit of each player, by player index. */
+    private final IntArray playerHeads = new IntArray();
+    /** Latest edit of each region, by region key. */
+    private final IntIntMap regionHeads = new IntIntMap();
+    /** Maps player UUIDs to their index in the journal. */
+    private final ObjectIntMap<String> playerIndices = new ObjectIntMap<>();
+    private final Array<String> playerNames = new Array<>();
+
+    /** Blocks that tiles will have once the current rollback is applied, by packed position. */
+    private final IntIntMap pending = new IntIntMap();
+    /** Maps positions covered by blocks that the current rollback restores to the position of their origin. */
+    private final IntIntMap claimed = new IntIntMap();
+    private final ByteBuffer restores = ByteBuffer.allocate(restoresPerCall * restoreSize);
+    /** Sequence number of the next edit. */
+    private int written;
+
+    public EditJournal(){
+        this(defaultCapacity);
+    }
+
+    public EditJournal(int capacity){
+        this.capacity = capacity;
+        positions = new int[capacity];
+        prevByPlayer = new int[capacity];
+        prevByRegion = new int[capacity];
+        blocks = new short[capacity];
+        results = new short[capacity];
+        players = new short[capacity];
+        rotations = new byte[capacity];
+        teams = new byte[capacity];
+    }
+
+    /** Restores a chunk of tiles written by a rollback. Tile change events are posted once for the whole chunk. */
+    @Remote(called = Loc.server)
+    public static void onTilesRestored(byte[] data){
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        world.beginBatch();
+        while(buffer.hasRemaining()){
+            Tile tile = world.tile(buffer.getInt());
+            Block block = Block.getByID(buffer.getShort());
+            byte rotation = buffer.get();
+            Team team = Team.all[buffer.get()];
+
+            if(tile == null) continue;
+
+            world.removeBlock(tile);
+            if(block != Blocks.air){
+                world.setBlock(tile, block, team);
+                tile.setRotation(rotation);
+                tile.setTeam(team);
+            }
+        }
+        world.endBatch();
+    }
+
+    /**
+     * Logs an edit of a tile by a player.
+     * @param before The block the tile had before the edit.
+     * @param after The block the tile has after the edit.
+     * @param rotation The rotation of the edited block.
+     * @param team The team of the edited block.
+     */
+    public void log(Player player, Tile tile, Block before, Block after, int rotation, Team team){
+        int seq = written++;
+        int index = seq % capacity;
+        int playerIndex = intern(player);
+        int region = region(tile.x, tile.y);
+
+        positions[index] = tile.packedPosition();
+        blocks[index] = (short) before.id;
+        results[index] = (short) after.id;
+        rotations[index] = (byte) rotation;
+        teams[index] = (byte) team.ordinal();
+        players[index] = (short) playerIndex;
+
+        prevByPlayer[index] = playerHeads.get(playerIndex);
+        playerHeads.set(playerIndex, seq);
+        prevByRegion[index] = regionHeads.get(region, -1);
+        regionHeads.put(region, seq);
+    }
+
+    /** Rolls back the latest edits of all players. Returns the amount of edits that were undone. */
+    public int rollback(int amount){
+        return rollback(amount, written - 1, null);
+    }
+
+    /** Rolls back the latest edits of a player. Returns the amount of edits that were undone. */
+    public int rollback(String uuid, int amount){
+        int playerIndex = playerIndices.get(uuid, -1);
+        if(playerIndex == -1) return 0;
+
+        return rollback(amount, playerHeads.get(playerIndex), prevByPlayer);
+    }
+
+    /** Rolls back the latest edits in the region containing a tile position. Returns the amount of edits that were undone. */
+    public int rollback(int x, int y, int amount){
+        return rollback(amount, regionHeads.get(region(x, y), -1), prevByRegion);
+    }
+
+    /** Returns the UUID of the player with this name who last edited a block, or null if there is none. */
+    public String findPlayer(String name){
+        for(int i = playerNames.size - 1; i >= 0; i--){
+            if(playerNames.get(i).equalsIgnoreCase(name)){
+                return playerIndices.findKey(i);
+            }
+        }
+        return null;
+    }
+
+    /** Amount of edits currently stored, including edits that were rolled back. */
+    public int size(){
+        return Math.min(written, capacity);
+    }
+
+    public void clear(){
+        written = 0;
+        playerHeads.clear();
+        regionHeads.clear();
+        playerIndices.clear();
+        playerNames.clear();
+    }
+
+    /**
+     * Undoes edits newest first, starting at a sequence number and following a chain of links.
+     * An edit is only undone if its tile still has the block the edit resulted in, and if a restored multiblock would
+     * not overlap anything built since; otherwise, the edit is skipped.
+     * @param links The links to follow, or null to go through every edit.
+     */
+    private int rollback(int amount, int seq, int[] links){
+        int undone = 0;
+        pending.clear();
+        claimed.clear();
+        restores.clear();
+
+        world.beginBatch();
+
+        for(int checked = 0; checked < amount && seq >= 0 && seq >= written - capacity; checked++){
+            int index = seq % capacity;
+            int position = positions[index];
+            seq = links == null ? seq - 1 : links[index];
+
+            Tile tile = position == -1 ? null : world.tile(position);
+            if(tile == null || pending.get(position, tile.block().id) != results[index]) continue;
+
+            Block block = Block.getByID(blocks[index]);
+            if(block != Blocks.air && !fits(tile, block)) continue;
+
+            pending.put(position, blocks[index]);
+            positions[index] = -1;
+            undone++;
+
+            restores.putInt(position);
+            restores.putShort(blocks[index]);
+            restores.put(rotations[index]);
+            restores.put(teams[index]);
+
+            if(!restores.hasRemaining()){
+                flushRestores();
+            }
+        }
+
+        flushRestores();
+        world.endBatch();
+
+        return undone;
+    }
+
+    /**
+     * Whether a block can be restored at this origin, once the blocks restored so far in this rollback are applied.
+     * Every tile it covers must be empty, part of the block at the origin, or part of a block that is being removed.
+     * The covered tiles are claimed, so that older edits in the same rollback cannot restore over them.
+     */
+    private boolean fits(Tile origin, Block block){
+        int offset = -(block.size - 1) / 2;
+        int originPosition = origin.packedPosition();
+
+        for(int dx = 0; dx < block.size; dx++){
+            for(int dy = 0; dy < block.size; dy++){
+                Tile other = world.tile(origin.x + dx + offset, origin.y + dy + offset);
+                if(other == null) return false;
+
+                int owner = claimed.get(other.packedPosition(), other.target().packedPosition());
+                if(owner == originPosition) continue;
+
+                Block current = Block.getByID(pending.get(owner, world.tile(owner).block().id));
+                if(current != Blocks.air && !current.alwaysReplace) return false;
+            }
+        }
+
+        for(int dx = 0; dx < block.size; dx++){
+            for(int dy = 0; dy < block.size; dy++){
+                claimed.put(world.toPacked(origin.x + dx + offset, origin.y + dy + offset), originPosition);
+            }
+        }
+        return true;
+    }
+
+    private void flushRestores(){
+        if(restores.position() == 0) return;
+
+        byte[] data = new byte[restores.position()];
+        restores.flip();
+        restores.get(data);
+        restores.clear();
+
+        Call.onTilesRestored(data);
+    }
+
+    private int intern(Player player){
+        int index = playerIndices.get(player.uuid, -1);
+        if(index == -1){
+            index = playerNames.size;
+            playerIndices.put(player.uuid, index);
+            playerNames.add(player.name);
+            playerHeads.add(-1);
+        }else{
+            playerNames.set(index, player.name);
+        }
+        return index;
+    }
+
+    private int region(int x, int y){
+        return (x / regionSize) << 16 | (y / regionSize);
+    }
+}
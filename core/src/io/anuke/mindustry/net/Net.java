@@ -10,6 +10,7 @@ import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import io.anuke.mindustry.core.Platform;
+import io.anuke.mindustry.net.Packets.InvokeBatchPacket;
 import io.anuke.mindustry.net.Packets.StreamBegin;
 import io.anuke.mindustry.net.Packets.StreamChunk;
 import io.anuke.mindustry.net.Streamable.StreamBuilder;
@@ -102,12 +103,14 @@ public class Net{
      * Closes the server.
      */
     public static void closeServer(){
+        CallQueue.clear();
         serverProvider.close();
         server = false;
         active = false;
     }
 
     public static void disconnect(){
+        CallQueue.clear();
         clientProvider.disconnect();
         server = false;
         active = false;
@@ -139,6 +142,8 @@ public class Net{
      * Send an object to all connected clients, or to the server if this is a client.
      */
     public static void send(Object object, SendMode mode){
+        flushCalls(object);
+
         if(server){
             if(serverProvider != null) serverProvider.send(object, mode);
         }else{
@@ -150,6 +155,7 @@ public class Net{
      * Send an object to a certain client. Server-side only
      */
     public static void sendTo(int id, Object object, SendMode mode){
+        flushCalls(object);
         serverProvider.sendTo(id, object, mode);
     }
 
@@ -157,6 +163,7 @@ public class Net{
      * Send an object to everyone EXCEPT certain client. Server-side only
      */
     public static void sendExcept(int id, Object object, SendMode mode){
+        flushCalls(object);
         serverProvider.sendExcept(id, object, mode);
     }
 
@@ -164,9 +171,19 @@ public class Net{
      * Send a stream to a specific client. Server-side only.
      */
     public static void sendStream(int id, Streamable stream){
+        CallQueue.flush();
         serverProvider.sendStream(id, stream);
     }
 
+    /**
+     * Sends all queued remote calls before another packet, so that packets arrive in the order they were sent.
+     */
+    private static void flushCalls(Object object){
+        if(!(object instanceof InvokeBatchPacket)){
+            CallQueue.flush();
+        }
+    }
+
     /**
      * Sets the net clientProvider, e.g. what handles sending, recieving and connecting to a server.
      */
@@ -29,6 +29,11 @@ public abstract class NetConnection{
      * Timestamp of last recieved snapshot.
      */
     public long lastRecievedClientTime;
+    /**
+     * Center and size of the area the client's camera shows, from its last snapshot.
+     * The size is 0 until the first snapshot is recieved.
+     */
+    public float viewX, viewY, viewWidth, viewHeight;
 
     public boolean hasConnected = false;
     public boolean hasBegunConnecting = false;
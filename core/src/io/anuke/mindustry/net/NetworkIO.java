@@ -1,19 +1,17 @@
 package io.anuke.mindustry.net;
 
 import com.badlogic.gdx.utils.ObjectMap;
-import com.badlogic.gdx.utils.ObjectMap.Entry;
 import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.mindustry.content.blocks.Blocks;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.game.GameMode;
 import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.game.TeamInfo;
-import io.anuke.mindustry.game.TeamInfo.TeamData;
 import io.anuke.mindustry.maps.Map;
 import io.anuke.mindustry.maps.MapMeta;
 import io.anuke.mindustry.game.Version;
 import io.anuke.mindustry.world.Tile;
-import io.anuke.mindustry.world.blocks.BlockPart;
+import io.anuke.mindustry.world.TileStore;
 import io.anuke.ucore.core.Core;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.entities.Entities;
@@ -28,107 +26,8 @@ public class NetworkIO{
 
     public static void writeWorld(Player player, OutputStream os){
 
-        try(DataOutputStream stream = new DataOutputStream(os)){
-
-            stream.writeFloat(Timers.time()); //timer time
-            stream.writeLong(TimeUtils.millis()); //timestamp
-
-            //--GENERAL STATE--
-            stream.writeByte(state.mode.ordinal()); //gamemode
-            stream.writeUTF(world.getMap().name); //map name
-
-            //write tags
-            ObjectMap<String, String> tags = world.getMap().meta.tags;
-            stream.writeByte(tags.size);
-            for(Entry<String, String> entry : tags.entries()){
-                stream.writeUTF(entry.key);
-                stream.writeUTF(entry.value);
-            }
-
-            stream.writeInt(state.wave); //wave
-            stream.writeFloat(state.wavetime); //wave countdown
-
-            stream.writeBoolean(state.friendlyFire); //friendly fire state
-
-            stream.writeInt(player.id);
-            player.write(stream);
-
-            //--MAP DATA--
-
-            //map size
-            stream.writeShort(world.width());
-            stream.writeShort(world.height());
-
-            for(int i = 0; i < world.width() * world.height(); i++){
-                Tile tile = world.tile(i);
-
-                stream.writeByte(tile.getFloorID());
-                stream.writeByte(tile.getBlockID());
-                stream.writeByte(tile.getElevation());
-
-                if(tile.block() instanceof BlockPart){
-                    stream.writeByte(tile.link);
-                }else if(tile.entity != null){
-                    stream.writeByte(Bits.packByte(tile.getTeamID(), tile.getRotation())); //team + rotation
-                    stream.writeShort((short) tile.entity.health); //health
-
-                    if(tile.entity.items != null) tile.entity.items.write(stream);
-                    if(tile.entity.power != null) tile.entity.power.write(stream);
-                    if(tile.entity.liquids != null) tile.entity.liquids.write(stream);
-                    if(tile.entity.cons != null) tile.entity.cons.write(stream);
-
-                    tile.entity.write(stream);
-                }else if(tile.block() == Blocks.air){
-                    int consecutives = 0;
-
-                    for(int j = i + 1; j < world.width() * world.height() && consecutives < 255; j++){
-                        Tile nextTile = world.tile(j);
-
-                        if(nextTile.getFloorID() != tile.getFloorID() || nextTile.block() != Blocks.air || nextTile.getElevation() != tile.getElevation()){
-                            break;
-                        }
-
-                        consecutives++;
-                    }
-
-                    stream.writeByte(consecutives);
-                    i += consecutives;
-                }
-            }
-
-            //write visibility, length-run encoded
-            for(int i = 0; i < world.width() * world.height(); i++){
-                Tile tile = world.tile(i);
-                boolean discovered = tile.discovered();
-
-                int consecutives = 0;
-
-                for(int j = i + 1; j < world.width() * world.height() && consecutives < 32767*2-1; j++){
-                    Tile nextTile = world.tile(j);
-
-                    if(nextTile.discovered() != discovered){
-                        break;
-                    }
-
-                    consecutives++;
-                }
-
-                stream.writeBoolean(discovered);
-                stream.writeShort(consecutives);
-                i += consecutives;
-            }
-
-            //write team data
-            stream.writeByte(state.teams.getTeams().size);
-            for(TeamData data : state.teams.getTeams()){
-                stream.writeByte(data.team.ordinal());
-                stream.writeBoolean(data.ally);
-                stream.writeShort(data.cores.size);
-                for(Tile tile : data.cores){
-                    stream.writeInt(tile.packedPosition());
-                }
-            }
-
+        try(OutputStream stream = os){
+            WorldSnapshot.capture(player).write(stream);
         }catch(IOException e){
             throw new RuntimeException(e);
         }
@@ -191,19 +90,19 @@ public class NetworkIO{
             currentMap.meta.tags.putAll(tags);
             world.setMap(currentMap);
 
-            Tile[][] tiles = world.createTiles(width, height);
+            TileStore tiles = world.createTiles(width, height);
 
             for(int i = 0; i < width * height; i++){
-                int x = i % width, y = i / width;
                 byte floorid = stream.readByte();
                 byte wallid = stream.readByte();
                 byte elevation = stream.readByte();
 
-                Tile tile = new Tile(x, y, floorid, wallid);
-                tile.setElevation(elevation);
+                Tile tile = tiles.get(i);
+                tile.init(floorid, wallid);
+                tiles.elevations[i] = elevation;
 
                 if(wallid == Blocks.blockpart.id){
-                    tile.link = stream.readByte();
+                    tile.setLink(stream.readByte());
                 }else if(tile.entity != null){
                     byte tr = stream.readByte();
                     short health = stream.readShort();
@@ -225,16 +124,12 @@ public class NetworkIO{
                     int consecutives = stream.readUnsignedByte();
 
                     for(int j = i + 1; j < i + 1 + consecutives; j++){
-                        int newx = j % width, newy = j / width;
-                        Tile newTile = new Tile(newx, newy, floorid, wallid);
-                        newTile.setElevation(elevation);
-                        tiles[newx][newy] = newTile;
+                        tiles.get(j).init(floorid, wallid);
+                        tiles.elevations[j] = elevation;
                     }
 
                     i += consecutives;
                 }
-
-                tiles[x][y] = tile;
             }
 
             for(int i = 0; i < width * height; i++){
@@ -242,8 +137,7 @@ public class NetworkIO{
                 int consecutives = stream.readUnsignedShort();
                 if(discovered){
                     for(int j = i + 1; j < i + 1 + consecutives; j++){
-                        int newx = j % width, newy = j / width;
-                        tiles[newx][newy].setVisibility((byte) 1);
+                        tiles.visibility[j] = 1;
                     }
                 }
                 i += consecutives;
@@ -9,10 +9,17 @@ import io.anuke.mindustry.entities.traits.BuilderTrait.BuildRequest;
 import io.anuke.mindustry.game.Version;
 import io.anuke.mindustry.type.Recipe;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.core.Core;
 import io.anuke.ucore.io.IOUtils;
+import io.anuke.ucore.util.Log;
 import io.anuke.ucore.util.Mathf;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import static io.anuke.mindustry.Vars.world;
 
@@ -58,7 +65,30 @@ public class Packets{
     }
 
     public static class WorldStream extends Streamable{
+        /**World data to send. Only set on the server.*/
+        public transient WorldSnapshot snapshot;
 
+        @Override
+        public void prepare(){
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater();
+
+            try(DeflaterOutputStream output = new DeflaterOutputStream(bytes, deflater, 8192)){
+                snapshot.write(output);
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+
+            Log.info("Packed {0} bytes of WORLD data ({1} uncompressed).", bytes.size(), deflater.getBytesRead());
+            deflater.end();
+
+            stream = new ByteArrayInputStream(bytes.toByteArray());
+        }
+
+        @Override
+        public boolean isCompressed(){
+            return true;
+        }
     }
 
     public static class ConnectPacket implements Packet{
@@ -90,17 +120,17 @@ public class Packets{
         }
     }
 
-    public static class InvokePacket implements Packet{
-        public byte type, priority;
+    /**A batch of remote method calls of the same priority. See {@link CallQueue}.*/
+    public static class InvokeBatchPacket implements Packet{
+        public byte priority;
 
         public ByteBuffer writeBuffer;
         public int writeLength;
 
         @Override
         public void read(ByteBuffer buffer){
-            type = buffer.get();
             priority = buffer.get();
-            writeLength = buffer.getShort();
+            writeLength = buffer.getShort() & 0xffff;
             byte[] bytes = new byte[writeLength];
             buffer.get(bytes);
             writeBuffer = ByteBuffer.wrap(bytes);
@@ -108,14 +138,9 @@ public class Packets{
 
         @Override
         public void write(ByteBuffer buffer){
-            buffer.put(type);
             buffer.put(priority);
             buffer.putShort((short) writeLength);
-
-            writeBuffer.position(0);
-            for(int i = 0; i < writeLength; i++){
-                buffer.put(writeBuffer.get());
-            }
+            buffer.put(writeBuffer.array(), 0, writeLength);
         }
 
         @Override
@@ -141,6 +166,8 @@ public class Packets{
         public long timeSent;
         //player snapshot data
         public float x, y, pointerX, pointerY, rotation, baseRotation, xv, yv;
+        /** Center and size of the area the client's camera shows, in world units. */
+        public float viewX, viewY, viewWidth, viewHeight;
         public Tile mining;
         public boolean boosting, shooting;
         public BuildRequest currentRequest;
@@ -168,6 +195,11 @@ public class Packets{
 
             buffer.putInt(player.getMineTile() == null ? -1 : player.getMineTile().packedPosition());
 
+            buffer.putFloat(Core.camera.position.x);
+            buffer.putFloat(Core.camera.position.y);
+            buffer.putFloat(Core.camera.viewportWidth * Core.camera.zoom);
+            buffer.putFloat(Core.camera.viewportHeight * Core.camera.zoom);
+
             BuildRequest request = player.getCurrentRequest();
 
             if(request != null){
@@ -200,6 +232,11 @@ public class Packets{
             baseRotation = buffer.getShort() / 2f;
             mining = world.tile(buffer.getInt());
 
+            viewX = buffer.getFloat();
+            viewY = buffer.getFloat();
+            viewWidth = buffer.getFloat();
+            viewHeight = buffer.getFloat();
+
             byte type = buffer.get();
             if(type != -1){
                 int position = buffer.getInt();
@@ -11,7 +11,7 @@ public class Registrator{
             WorldStream.class,
             ConnectPacket.class,
             ClientSnapshotPacket.class,
-            InvokePacket.class
+            InvokeBatchPacket.class
     };
     private static ObjectIntMap<Class<?>> ids = new ObjectIntMap<>();
 
@@ -0,0 +1,233 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.content.Mechs;
+import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.entities.Player;
+import io.anuke.mindustry.entities.traits.BuilderTrait.BuildRequest;
+import io.anuke.mindustry.gen.RemoteReadServer;
+import io.anuke.mindustry.io.SaveIO;
+import io.anuke.mindustry.net.Net.SendMode;
+import io.anuke.mindustry.type.Recipe;
+import io.anuke.ucore.io.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static io.anuke.mindustry.Vars.*;
+import static io.anuke.mindustry.net.ReplayRecorder.*;
+
+/**
+ * Re-simulates a session recorded by a {@link ReplayRecorder}, without networking.
+ * The shared random number generator is reseeded with the recorded seed once the world is loaded.
+ * Records are applied in the same order and at the same tick they were recorded, so updating the replay once per logic
+ * update plays the session back as fast as the logic can run.
+ * Player movement is interpolated using the real time between updates, so positions are only approximately the same.
+ */
+public class ReplayPlayer{
+    private final DataInputStream input;
+    private final Inflater inflater = new Inflater();
+    private final IntMap<Player> players = new IntMap<>();
+    private ByteBuffer block;
+    private int tick, nextTick;
+    private boolean done;
+
+    /** Loads the world the replay starts with. Must be called on the logic thread. */
+    public ReplayPlayer(FileHandle file){
+        input = new DataInputStream(new BufferedInputStream(file.read()));
+
+        try{
+            int fileVersion = input.readInt();
+            if(fileVersion != ReplayRecorder.version){
+                throw new IOException("Unsupported replay version: " + fileVersion);
+            }
+
+            long seed = input.readLong();
+
+            ByteBuffer save = readBlock();
+            if(save == null) throw new IOException("Replay does not contain a world.");
+
+            SaveIO.load(new ByteArrayInputStream(save.array(), 0, save.limit()));
+            MathUtils.random.setSeed(seed);
+            state.set(State.playing);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Applies all records of the current tick, then advances to the next one. */
+    public void update(){
+        while(!done && nextTick <= tick){
+            readRecord();
+        }
+        tick++;
+    }
+
+    /** Whether every record has been applied. */
+    public boolean isDone(){
+        return done;
+    }
+
+    public int getTick(){
+        return tick;
+    }
+
+    private void readRecord(){
+        if(block == null || !block.hasRemaining()){
+            try{
+                block = readBlock();
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+
+            if(block == null){
+                done = true;
+                close();
+                return;
+            }
+        }
+
+        byte type = block.get();
+
+        if(type == recordTick){
+            nextTick += block.getInt();
+        }else if(type == recordJoin){
+            int connection = block.getInt();
+
+            Player player = new Player();
+            player.con = new ReplayConnection(connection);
+            player.name = IOUtils.readString(block);
+            player.uuid = IOUtils.readString(block);
+            player.usid = IOUtils.readString(block);
+            player.isMobile = block.get() == 1;
+            player.mech = player.isMobile ? Mechs.starterMobile : Mechs.starterDesktop;
+            player.dead = true;
+            player.setNet(player.x, player.y);
+            player.color.set(block.getInt());
+            player.color.a = 1f;
+
+            //players that had finished connecting when recording started never confirm their connection
+            if(block.get() == 1){
+                player.add();
+                player.con.hasConnected = true;
+            }
+
+            players.put(connection, player);
+        }else if(type == recordLeave){
+            Player player = players.remove(block.getInt());
+            if(player != null) player.remove();
+        }else if(type == recordSnapshot){
+            Player player = players.get(block.getInt());
+
+            float x = block.getFloat(), y = block.getFloat();
+            float pointerX = block.getFloat(), pointerY = block.getFloat();
+            float rotation = block.getFloat(), baseRotation = block.getFloat();
+            byte flags = block.get();
+            int mining = block.getInt();
+
+            BuildRequest request = null;
+            byte requestType = block.get();
+            if(requestType != -1){
+                int position = block.getInt();
+
+                if(requestType == 1){
+                    request = new BuildRequest(position % world.width(), position / world.width());
+                }else{
+                    byte recipe = block.get();
+                    byte requestRotation = block.get();
+                    request = new BuildRequest(position % world.width(), position / world.width(), requestRotation, Recipe.getByID(recipe));
+                }
+            }
+
+            if(player == null) return;
+
+            player.pointerX = pointerX;
+            player.pointerY = pointerY;
+            player.setMineTile(mining == -1 ? null : world.tile(mining));
+            player.isBoosting = (flags & 1) != 0;
+            player.isShooting = (flags & 2) != 0;
+            player.getPlaceQueue().clear();
+            if(request != null){
+                player.getPlaceQueue().addLast(request);
+            }
+
+            player.getInterpolator().read(player.x, player.y, x, y, TimeUtils.millis(), rotation, baseRotation);
+        }else if(type == recordInvoke){
+            Player player = players.get(block.getInt());
+            int length = block.getShort() & 0xffff;
+
+            if(player != null){
+                ByteBuffer calls = block.slice();
+                calls.limit(length);
+                RemoteReadServer.readBatch(calls, player);
+            }
+
+            block.position(block.position() + length);
+        }else{
+            throw new RuntimeException("Invalid replay record type: " + type);
+        }
+    }
+
+    /** Reads and decompresses the next block, or returns null at the end of the file. */
+    private ByteBuffer readBlock() throws IOException{
+        int length, size;
+        try{
+            length = input.readInt();
+            size = input.readInt();
+        }catch(EOFException e){
+            return null;
+        }
+
+        byte[] compressed = new byte[size];
+        byte[] bytes = new byte[length];
+        input.readFully(compressed);
+
+        inflater.reset();
+        inflater.setInput(compressed);
+        try{
+            int read = 0;
+            while(!inflater.finished()){
+                int inflated = inflater.inflate(bytes, read, length - read);
+                if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary() || read == length)) break;
+                read += inflated;
+            }
+
+            if(read != length || !inflater.finished()){
+                throw new IOException("Replay block is truncated: expected " + length + " bytes, got " + read + ".");
+            }
+        }catch(DataFormatException e){
+            throw new IOException(e);
+        }
+
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private void close(){
+        try{
+            input.close();
+        }catch(IOException ignored){
+        }
+        inflater.end();
+    }
+
+    /** Stands in for the connection of a recorded player. Nothing is sent. */
+    private static class ReplayConnection extends NetConnection{
+
+        ReplayConnection(int id){
+            super(id, "replay");
+        }
+
+        @Override
+        public void send(Object object, SendMode mode){
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.entities.Player;
+import io.anuke.mindustry.entities.traits.BuilderTrait.BuildRequest;
+import io.anuke.mindustry.io.SaveIO;
+import io.anuke.mindustry.io.SaveSnapshot;
+import io.anuke.mindustry.net.Packets.ClientSnapshotPacket;
+import io.anuke.ucore.io.IOUtils;
+import io.anuke.ucore.util.Log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Records the inputs of a server session to a file, so that it can be re-simulated with a {@link ReplayPlayer}.
+ * <p>
+ * A replay starts with the seed of the shared random number generator, which is reseeded when recording begins, and
+ * a save of the world at that time. It is followed by every player join and leave, every client snapshot as applied by
+ * the server, and every batch of remote calls from clients.
+ * Records are appended to a buffer on the logic thread; full buffers are compressed and written as separate blocks
+ * on a background thread.
+ */
+public class ReplayRecorder{
+    public static final int version = 2;
+
+    static final byte recordTick = 0, recordJoin = 1, recordLeave = 2, recordSnapshot = 3, recordInvoke = 4;
+
+    /** Records are compressed in blocks of at least this many bytes. */
+    private static final int blockSize = 64 * 1024;
+    /** Largest possible record: a full remote call batch and its header. */
+    private static final int maxRecordSize = 0xffff + 16;
+
+    private final DataOutputStream output;
+    private final ByteBuffer buffer = ByteBuffer.allocate(blockSize + maxRecordSize);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[blockSize];
+    private int tick, lastTick;
+
+    /** Starts recording to a file. Must be called on the logic thread while a game is running. */
+    public ReplayRecorder(FileHandle file){
+        output = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+
+        SaveSnapshot snapshot = SaveIO.capture();
+
+        //the player reseeds with the same value once the world is loaded, so that random events play out the same way
+        long seed = TimeUtils.nanoTime();
+        MathUtils.random.setSeed(seed);
+
+        threads.runBackground(() -> {
+            try{
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                //the incremental save cache is not used, since it may be in use by a regular save at the same time
+                snapshot.write(new DataOutputStream(bytes), null);
+
+                output.writeInt(version);
+                output.writeLong(seed);
+                writeBlock(bytes.toByteArray(), bytes.size());
+            }catch(IOException e){
+                Log.err(e);
+            }
+        });
+    }
+
+    /** Advances the tick that new records are marked with. Called once per update. */
+    public void update(){
+        tick++;
+    }
+
+    public void recordJoin(int connection, Player player){
+        begin(recordJoin);
+        buffer.putInt(connection);
+        IOUtils.writeString(buffer, player.name);
+        IOUtils.writeString(buffer, player.uuid);
+        IOUtils.writeString(buffer, player.usid);
+        buffer.put(player.isMobile ? (byte) 1 : 0);
+        buffer.putInt(Color.rgba8888(player.color));
+        buffer.put(player.con.hasConnected ? (byte) 1 : 0);
+        end();
+    }
+
+    public void recordLeave(int connection){
+        begin(recordLeave);
+        buffer.putInt(connection);
+        end();
+    }
+
+    /**
+     * Records a client snapshot.
+     * @param x The position the server accepted, after it was checked against the player's speed.
+     * @param y The position the server accepted, after it was checked against the player's speed.
+     */
+    public void recordSnapshot(int connection, ClientSnapshotPacket packet, float x, float y){
+        begin(recordSnapshot);
+        buffer.putInt(connection);
+        buffer.putFloat(x);
+        buffer.putFloat(y);
+        buffer.putFloat(packet.pointerX);
+        buffer.putFloat(packet.pointerY);
+        buffer.putFloat(packet.rotation);
+        buffer.putFloat(packet.baseRotation);
+        buffer.put((byte) ((packet.boosting ? 1 : 0) | (packet.shooting ? 2 : 0)));
+        buffer.putInt(packet.mining == null ? -1 : packet.mining.packedPosition());
+
+        BuildRequest request = packet.currentRequest;
+
+        if(request != null){
+            buffer.put(request.remove ? (byte) 1 : 0);
+            buffer.putInt(world.toPacked(request.x, request.y));
+            if(!request.remove){
+                buffer.put((byte) request.recipe.id);
+                buffer.put((byte) request.rotation);
+            }
+        }else{
+            buffer.put((byte) -1);
+        }
+        end();
+    }
+
+    /** Records a batch of remote calls. The position of the buffer is not changed. */
+    public void recordInvoke(int connection, ByteBuffer calls, int length){
+        begin(recordInvoke);
+        buffer.putInt(connection);
+        buffer.putShort((short) length);
+        buffer.put(calls.array(), calls.arrayOffset(), length);
+        end();
+    }
+
+    /** Writes the remaining records and closes the file. */
+    public void close(){
+        flush();
+
+        threads.runBackground(() -> {
+            try{
+                output.close();
+            }catch(IOException e){
+                Log.err(e);
+            }
+            deflater.end();
+        });
+    }
+
+    private void begin(byte type){
+        if(tick != lastTick){
+            buffer.put(recordTick);
+            buffer.putInt(tick - lastTick);
+            lastTick = tick;
+        }
+
+        buffer.put(type);
+    }
+
+    private void end(){
+        if(buffer.position() >= blockSize){
+            flush();
+        }
+    }
+
+    private void flush(){
+        if(buffer.position() == 0) return;
+
+        byte[] block = Arrays.copyOf(buffer.array(), buffer.position());
+        buffer.clear();
+
+        threads.runBackground(() -> {
+            try{
+                writeBlock(block, block.length);
+            }catch(IOException e){
+                Log.err(e);
+            }
+        });
+    }
+
+    /** Compresses and writes a block. Only called on the background thread. */
+    private void writeBlock(byte[] bytes, int length) throws IOException{
+        deflater.reset();
+        deflater.setInput(bytes, 0, length);
+        deflater.finish();
+
+        int size = 0;
+        while(!deflater.finished()){
+            if(size == compressed.length){
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+
+        output.writeInt(length);
+        output.writeInt(size);
+        output.write(compressed, 0, size);
+    }
+}
@@ -3,12 +3,20 @@ package io.anuke.mindustry.net;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 import io.anuke.mindustry.net.Packets.StreamBegin;
+import io.anuke.ucore.util.Mathf;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 public class Streamable implements Packet{
+    /**Smallest size of a chunk that a stream is split into.*/
+    public static final int minChunkSize = 512;
+    /**Largest size of a chunk. Chunks must fit into a single serialized packet.*/
+    public static final int maxChunkSize = 4000;
+
     public transient ByteArrayInputStream stream;
 
     @Override
@@ -16,39 +24,78 @@ public class Streamable implements Packet{
         return true;
     }
 
+    /**Fills the stream before it is sent. This is called off the main thread, so it must not access the world.*/
+    public void prepare(){
+
+    }
+
+    /**Whether the stream data is deflated. Compressed streams are inflated as their chunks arrive.*/
+    public boolean isCompressed(){
+        return false;
+    }
+
+    /**Returns the size of the chunks that a stream with this amount of bytes is split into.*/
+    public static int chunkSize(int total){
+        return Mathf.clamp(total / 64, minChunkSize, maxChunkSize);
+    }
+
     public static class StreamBuilder{
         public final int id;
         public final Class<? extends Streamable> type;
         public final int total;
         public final ByteArrayOutputStream stream;
 
+        private final Streamable result;
+        private final Inflater inflater;
+        private final byte[] buffer;
+        private int received;
+
         public StreamBuilder(StreamBegin begin){
             id = begin.id;
             type = begin.type;
             total = begin.total;
             stream = new ByteArrayOutputStream();
+
+            try{
+                result = ClassReflection.newInstance(type);
+            }catch(ReflectionException e){
+                throw new RuntimeException(e);
+            }
+
+            inflater = result.isCompressed() ? new Inflater() : null;
+            buffer = result.isCompressed() ? new byte[4096] : null;
         }
 
         public void add(byte[] bytes){
+            received += bytes.length;
+
             try{
-                stream.write(bytes);
-            }catch(IOException e){
+                if(inflater != null){
+                    inflater.setInput(bytes);
+
+                    int length;
+                    while((length = inflater.inflate(buffer)) > 0){
+                        stream.write(buffer, 0, length);
+                    }
+                }else{
+                    stream.write(bytes);
+                }
+            }catch(IOException | DataFormatException e){
                 throw new RuntimeException(e);
             }
         }
 
         public Streamable build(){
-            try{
-                Streamable s = ClassReflection.newInstance(type);
-                s.stream = new ByteArrayInputStream(stream.toByteArray());
-                return s;
-            }catch(ReflectionException e){
-                throw new RuntimeException(e);
+            if(inflater != null){
+                inflater.end();
             }
+
+            result.stream = new ByteArrayInputStream(stream.toByteArray());
+            return result;
         }
 
         public boolean isDone(){
-            return stream.size() >= total;
+            return received >= total;
         }
     }
 }
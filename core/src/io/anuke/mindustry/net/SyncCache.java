@@ -0,0 +1,183 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.entities.traits.SyncTrait;
+import io.anuke.ucore.entities.Entities;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.entities.trait.Entity;
+import io.anuke.ucore.io.CountableByteArrayOutputStream;
+import io.anuke.ucore.util.Mathf;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Entity sync data for a single server tick, shared by every connection.
+ * Each syncing entity is serialized once per tick into a shared buffer and bucketed by position.
+ * Snapshots for each player then copy only the already serialized entities in or near the area that player can see.
+ */
+public class SyncCache{
+    /** Size of a bucket, in world units. */
+    private static final int cellSize = tilesize * 16;
+
+    private final CountableByteArrayOutputStream stream = new CountableByteArrayOutputStream();
+    private final DataOutputStream data = new DataOutputStream(stream);
+    private final Array<GroupData> groups = new Array<>();
+    private int totalGroups;
+    private int width = 1, height = 1;
+    private byte[] bytes = {};
+
+    /** Serializes every syncing entity. Call once per tick, before writing any snapshots. */
+    public void build() throws IOException{
+        stream.reset();
+        totalGroups = 0;
+
+        width = Math.max(world.width() * tilesize / cellSize + 1, 1);
+        height = Math.max(world.height() * tilesize / cellSize + 1, 1);
+
+        for(EntityGroup<?> group : Entities.getAllGroups()){
+            if(group.isEmpty() || !(group.all().get(0) instanceof SyncTrait)) continue;
+
+            //make sure mapping is enabled for this group
+            if(!group.mappingEnabled()){
+                throw new RuntimeException("Entity group '" + group.getType() + "' contains SyncTrait entities, yet mapping is not enabled. In order for syncing to work, you must enable mapping for this group.");
+            }
+
+            if(groups.size <= totalGroups){
+                groups.add(new GroupData());
+            }
+
+            GroupData groupData = groups.get(totalGroups++);
+            groupData.group = group;
+            groupData.size = 0;
+
+            for(Entity entity : group.all()){
+                SyncTrait sync = (SyncTrait) entity;
+                if(!sync.isSyncing()) continue;
+
+                int position = stream.position();
+                data.writeInt(entity.getID()); //write id
+                data.writeByte(sync.getTypeID()); //write type ID
+                sync.write(data); //write entity
+                int length = stream.position() - position; //length must always be less than 127 bytes
+                if(length > 127)
+                    throw new RuntimeException("Write size for entity of type " + group.getType() + " must not exceed 127!");
+                data.writeByte(length);
+
+                groupData.add(position, stream.position() - position, cellx(sync.getX()) + celly(sync.getY()) * width);
+            }
+
+            groupData.sort(width * height);
+        }
+
+        bytes = stream.toByteArray();
+    }
+
+    /**
+     * Writes all serialized entities in a rectangle around this position, in the snapshot format.
+     * Players are always written, regardless of their position.
+     * @param rangex Half the width of the rectangle.
+     * @param rangey Half the height of the rectangle.
+     */
+    public void write(DataOutputStream output, float x, float y, float rangex, float rangey) throws IOException{
+        int minx = cellx(x - rangex), miny = celly(y - rangey);
+        int maxx = cellx(x + rangex), maxy = celly(y + rangey);
+
+        //write total amount of serializable groups
+        output.writeByte(totalGroups);
+
+        for(int i = 0; i < totalGroups; i++){
+            GroupData groupData = groups.get(i);
+            boolean everything = groupData.group == playerGroup;
+
+            int amount = 0;
+            if(everything){
+                amount = groupData.size;
+            }else{
+                for(int cy = miny; cy <= maxy; cy++){
+                    amount += groupData.starts[maxx + cy * width + 1] - groupData.starts[minx + cy * width];
+                }
+            }
+
+            //write group ID + group size
+            output.writeByte(groupData.group.getID());
+            output.writeShort(amount);
+
+            if(everything){
+                for(int j = 0; j < groupData.size; j++){
+                    output.write(bytes, groupData.offsets[j], groupData.lengths[j]);
+                }
+            }else{
+                //rows of buckets are contiguous in the sorted entries, so each row is written at once
+                for(int cy = miny; cy <= maxy; cy++){
+                    for(int j = groupData.starts[minx + cy * width]; j < groupData.starts[maxx + cy * width + 1]; j++){
+                        int entry = groupData.sorted[j];
+                        output.write(bytes, groupData.offsets[entry], groupData.lengths[entry]);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellx(float x){
+        return Mathf.clamp((int) (x / cellSize), 0, width - 1);
+    }
+
+    private int celly(float y){
+        return Mathf.clamp((int) (y / cellSize), 0, height - 1);
+    }
+
+    /** Serialized entities of a single group. Entries are kept in group order, and indexed by bucket. */
+    private static class GroupData{
+        EntityGroup<?> group;
+        int size;
+        int[] offsets = new int[16];
+        int[] lengths = new int[16];
+        int[] cells = new int[16];
+        /** Entry indices, sorted by bucket. */
+        int[] sorted = new int[16];
+        /** Start index of every bucket in the sorted entries, with one extra entry for the end of the last bucket. */
+        int[] starts = new int[2];
+        int[] cursors = new int[1];
+
+        void add(int offset, int length, int cell){
+            if(size == offsets.length){
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                cells = Arrays.copyOf(cells, size * 2);
+                sorted = new int[size * 2];
+            }
+
+            offsets[size] = offset;
+            lengths[size] = length;
+            cells[size] = cell;
+            size++;
+        }
+
+        /** Counting sort of all entries by bucket. Entries in the same bucket stay in group order. */
+        void sort(int cellCount){
+            if(starts.length < cellCount + 1){
+                starts = new int[cellCount + 1];
+                cursors = new int[cellCount];
+            }else{
+                Arrays.fill(starts, 0, cellCount + 1, 0);
+            }
+
+            for(int i = 0; i < size; i++){
+                starts[cells[i] + 1]++;
+            }
+
+            for(int i = 0; i < cellCount; i++){
+                starts[i + 1] += starts[i];
+            }
+
+            System.arraycopy(starts, 0, cursors, 0, cellCount);
+            for(int i = 0; i < size; i++){
+                sorted[cursors[cells[i]]++] = i;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectMap.Entry;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.entities.Player;
+import io.anuke.mindustry.game.TeamInfo.TeamData;
+import io.anuke.mindustry.io.TileSnapshot;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.core.Timers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * A copy of the world state that is sent to joining players.
+ * The world data is written from the copy, which can be done on any thread.
+ * The written data is the same as what {@link NetworkIO#loadWorld(java.io.InputStream)} reads.
+ */
+public class WorldSnapshot{
+    /** Everything that comes before the map data. */
+    private byte[] header;
+    private TileSnapshot tiles;
+    /** Everything that comes after the map data. */
+    private byte[] footer;
+
+    /** Captures the current world state for a player. Must be called on the logic thread. */
+    public static WorldSnapshot capture(Player player){
+        WorldSnapshot snapshot = new WorldSnapshot();
+
+        try{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream stream = new DataOutputStream(bytes);
+
+            stream.writeFloat(Timers.time()); //timer time
+            stream.writeLong(TimeUtils.millis()); //timestamp
+
+            //--GENERAL STATE--
+            stream.writeByte(state.mode.ordinal()); //gamemode
+            stream.writeUTF(world.getMap().name); //map name
+
+            //write tags
+            ObjectMap<String, String> tags = world.getMap().meta.tags;
+            stream.writeByte(tags.size);
+            for(Entry<String, String> entry : tags.entries()){
+                stream.writeUTF(entry.key);
+                stream.writeUTF(entry.value);
+            }
+
+            stream.writeInt(state.wave); //wave
+            stream.writeFloat(state.wavetime); //wave countdown
+
+            stream.writeBoolean(state.friendlyFire); //friendly fire state
+
+            stream.writeInt(player.id);
+            player.write(stream);
+
+            snapshot.header = bytes.toByteArray();
+            bytes.reset();
+
+            snapshot.tiles = TileSnapshot.capture();
+
+            //write team data
+            stream.writeByte(state.teams.getTeams().size);
+            for(TeamData data : state.teams.getTeams()){
+                stream.writeByte(data.team.ordinal());
+                stream.writeBoolean(data.ally);
+                stream.writeShort(data.cores.size);
+                for(Tile tile : data.cores){
+                    stream.writeInt(tile.packedPosition());
+                }
+            }
+
+            snapshot.footer = bytes.toByteArray();
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+
+        return snapshot;
+    }
+
+    /** Writes the full world data. Safe to call from any thread. */
+    public void write(OutputStream os) throws IOException{
+        DataOutputStream stream = new DataOutputStream(os);
+
+        stream.write(header);
+
+        //--MAP DATA--
+        tiles.write(stream);
+
+        stream.write(footer);
+        stream.flush();
+    }
+}
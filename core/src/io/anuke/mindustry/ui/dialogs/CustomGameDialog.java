@@ -90,7 +90,7 @@ public class CustomGameDialog extends FloatingDialog{
                 maps.row();
             }
 
-            ImageButton image = new ImageButton(new TextureRegion(map.texture), "clear");
+            ImageButton image = new ImageButton(new TextureRegion(world.maps().getTexture(map)), "clear");
             image.margin(5);
             image.getImageCell().size(images);
             image.top();
@@ -99,7 +99,7 @@ public class CustomGameDialog extends FloatingDialog{
             image.row();
             image.label((() -> Bundles.format("text.level.highscore", Settings.getInt("hiscore" + map.name, 0)))).pad(3f);
 
-            BorderImage border = new BorderImage(map.texture, 3f);
+            BorderImage border = new BorderImage(world.maps().getTexture(map), 3f);
             image.replaceImage(border);
 
             image.clicked(() -> {
@@ -2,6 +2,7 @@ package io.anuke.mindustry.world;
 
 import com.badlogic.gdx.utils.Array;
 import io.anuke.mindustry.content.fx.EnvironmentFx;
+import io.anuke.mindustry.entities.Damage;
 import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.entities.Unit;
 import io.anuke.mindustry.entities.effect.Puddle;
@@ -80,6 +81,7 @@ public abstract class BaseBlock{
     }
 
     public void handleItem(Item item, Tile tile, Tile source){
+        tile.entity.noSleep();
         tile.entity.items.add(item, 1);
     }
 
@@ -94,6 +96,7 @@ public abstract class BaseBlock{
     }
 
     public void handleLiquid(Tile tile, Tile source, Liquid liquid, float amount){
+        tile.entity.noSleep();
         tile.entity.liquids.add(liquid, amount);
     }
 
@@ -165,8 +168,8 @@ public abstract class BaseBlock{
                     Liquid other = next.entity.liquids.current();
                     if((other.flammability > 0.3f && liquid.temperature > 0.7f) ||
                             (liquid.flammability > 0.3f && other.temperature > 0.7f)){
-                        tile.entity.damage(1 * Timers.delta());
-                        next.entity.damage(1 * Timers.delta());
+                        Damage.queue(tile.entity, 1 * Timers.delta());
+                        Damage.queue(next.entity, 1 * Timers.delta());
                         if(Mathf.chance(0.1 * Timers.delta())){
                             Effects.effect(EnvironmentFx.fire, (tile.worldx() + next.worldx()) / 2f, (tile.worldy() + next.worldy()) / 2f);
                         }
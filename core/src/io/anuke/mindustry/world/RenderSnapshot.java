@@ -0,0 +1,96 @@
+package io.anuke.mindustry.world;
+
+import static io.anuke.mindustry.Vars.threads;
+
+/**
+ * Render-relevant tile state, published by the logic thread once per update and read by the renderer without
+ * taking {@link Tile#tileSetLock}.
+ * <p>
+ * Three frames are kept: the logic thread writes one, the renderer reads another, and the third holds the latest
+ * published state. Publishing and acquiring only swap frame references, so neither thread waits for the other to
+ * finish copying or reading. When the logic does not run on its own thread, the renderer reads the live tile data instead.
+ * <p>
+ * Each frame remembers the {@link TileStore#version()} it was last written at, and publishing only copies the rows
+ * that changed since then. Only blocks, teams and rotations are covered; blocks still read their entity and everything
+ * else about a tile while drawing, so the renderer keeps holding {@link Tile#tileSetLock} for each drawn tile.
+ */
+public class RenderSnapshot{
+    private final TileStore tiles;
+    private final Frame live;
+    private final Object swapLock = new Object();
+    private Frame write, latest, read;
+    private boolean fresh;
+
+    public RenderSnapshot(TileStore tiles){
+        this.tiles = tiles;
+        this.live = new Frame(tiles.blocks, tiles.teams, tiles.rotations);
+    }
+
+    /** Copies the render-relevant state of changed tiles and publishes it. Called by the logic thread at the end of an update. */
+    public void publish(){
+        if(write == null){
+            write = new Frame(tiles.size());
+            latest = new Frame(tiles.size());
+        }
+
+        if(write.version != tiles.version()){
+            for(int y = 0; y < tiles.height; y++){
+                if(tiles.rowVersion(y) > write.version){
+                    int offset = y * tiles.width;
+                    System.arraycopy(tiles.blocks, offset, write.blocks, offset, tiles.width);
+                    System.arraycopy(tiles.teams, offset, write.teams, offset, tiles.width);
+                    System.arraycopy(tiles.rotations, offset, write.rotations, offset, tiles.width);
+                }
+            }
+            write.version = tiles.version();
+        }
+
+        synchronized(swapLock){
+            Frame published = write;
+            write = latest;
+            latest = published;
+            fresh = true;
+        }
+    }
+
+    /**
+     * Returns the latest published frame, which is not modified until the next call.
+     * Returns the live tile data if the logic runs on this thread or nothing has been published yet.
+     */
+    public Frame acquire(){
+        if(!threads.isEnabled()) return live;
+
+        synchronized(swapLock){
+            if(fresh){
+                Frame acquired = latest;
+                latest = read == null ? new Frame(tiles.size()) : read;
+                read = acquired;
+                fresh = false;
+            }
+        }
+        return read == null ? live : read;
+    }
+
+    /** Tile state at the end of one update, indexed like {@link TileStore}. */
+    public static class Frame{
+        public final short[] blocks;
+        public final byte[] teams;
+        public final byte[] rotations;
+        /** Store version this frame was last written at, or -1 if it was never written. */
+        int version = -1;
+
+        Frame(int size){
+            this(new short[size], new byte[size], new byte[size]);
+        }
+
+        Frame(short[] blocks, byte[] teams, byte[] rotations){
+            this.blocks = blocks;
+            this.teams = teams;
+            this.rotations = rotations;
+        }
+
+        public Block block(int index){
+            return Block.all().get(blocks[index] & 0xffff);
+        }
+    }
+}
@@ -23,54 +23,51 @@ import static io.anuke.mindustry.Vars.world;
 
 
 public class Tile implements PosTrait, TargetTrait{
-    public static final Object tileSetLock = new Object();
     /**
-     * The coordinates of the core tile this is linked to, in the form of two bytes packed into one.
-     * This is relative to the block it is linked to; negate coords to find the link.
+     * Guards blocks and tile entities between the logic and render threads.
+     * It is only held around a single tile: its entity update, a block change, or drawing it.
+     * Whole-map scans on the render thread read the {@link RenderSnapshot} instead.
+     * Drawing a single block still holds it, as blocks read their entity and other tile data that is not in the snapshot.
      */
-    public byte link = 0;
-    /** Tile traversal cost. */
-    public byte cost = 1;
+    public static final Object tileSetLock = new Object();
     /** Tile entity, usually null. */
     public TileEntity entity;
     public short x, y;
-    /** Position of cliffs around the tile, packed into bits 0-8. */
-    private byte cliffs;
-    private Block wall;
-    private Floor floor;
-    /** Rotation, 0-3. Also used to store offload location, in which case it can be any number. */
-    private byte rotation;
-    /** Team ordinal. */
-    private byte team;
-    /** Tile elevation. -1 means slope.*/
-    private byte elevation;
-    /** Visibility status: 3 states, but saved as a single bit. 0 = unexplored, 1 = visited, 2 = currently visible (saved as 1)*/
-    private byte visibility;
+    /** Store that holds all data of this tile. */
+    private final TileStore store;
+    /** Index of this tile's data in the store. */
+    private final int index;
 
+    /** Creates a tile that is not part of the world, backed by its own single-tile store. */
     public Tile(int x, int y){
+        this(new TileStore(1, 1), 0, x, y);
+    }
+
+    Tile(TileStore store, int index, int x, int y){
+        this.store = store;
+        this.index = index;
         this.x = (short) x;
         this.y = (short) y;
     }
 
-    public Tile(int x, int y, byte floor, byte wall){
-        this(x, y);
-        this.floor = (Floor) Block.getByID(floor);
-        this.wall = Block.getByID(wall);
-        changed();
+    /** Sets up this tile's floor and block, creating its entity. Only use for loading worlds! */
+    public void init(byte floor, byte wall){
+        init(floor, wall, (byte) 0, (byte) 0, (byte) 0);
     }
 
-    public Tile(int x, int y, byte floor, byte wall, byte rotation, byte team, byte elevation){
-        this(x, y);
-        this.floor = (Floor) Block.getByID(floor);
-        this.wall = Block.getByID(wall);
-        this.rotation = rotation;
-        this.setElevation(elevation);
+    /** Sets up all of this tile's data, creating its entity. Only use for loading worlds! */
+    public void init(byte floor, byte wall, byte rotation, byte team, byte elevation){
+        store.floors[index] = (short) (floor & 0xff);
+        store.blocks[index] = (short) (wall & 0xff);
+        store.links[index] = 0;
+        setRotation(rotation);
+        setElevation(elevation);
         changed();
-        this.team = team;
+        store.teams[index] = team;
     }
 
     public boolean discovered(){
-        return visibility > 0;
+        return store.visibility[index] > 0;
     }
 
     public int packedPosition(){
@@ -78,11 +75,11 @@ public class Tile implements PosTrait, TargetTrait{
     }
 
     public byte getBlockID(){
-        return (byte) wall.id;
+        return (byte) store.blocks[index];
     }
 
     public byte getFloorID(){
-        return (byte) floor.id;
+        return (byte) store.floors[index];
     }
 
     /** Return relative rotation to a coordinate. Returns -1 if the coordinate is not near this tile. */
@@ -135,31 +132,32 @@ public class Tile implements PosTrait, TargetTrait{
     }
 
     public Floor floor(){
-        return floor;
+        return store.floor(index);
     }
 
     public Block block(){
-        return wall;
+        return store.block(index);
     }
 
     public Team getTeam(){
-        return Team.all[team];
+        return Team.all[store.teams[index]];
     }
 
     public void setTeam(Team team){
-        this.team = (byte) team.ordinal();
+        store.teams[index] = (byte) team.ordinal();
+        store.markChanged(index);
     }
 
     public byte getTeamID(){
-        return team;
+        return store.teams[index];
     }
 
     public void setBlock(Block type, int rotation){
         synchronized(tileSetLock){
             preChanged();
             if(rotation < 0) rotation = (-rotation + 2);
-            this.wall = type;
-            this.link = 0;
+            store.blocks[index] = (short) type.id;
+            store.links[index] = 0;
             setRotation((byte) (rotation % 4));
             changed();
         }
@@ -173,54 +171,73 @@ public class Tile implements PosTrait, TargetTrait{
     public void setBlock(Block type){
         synchronized(tileSetLock){
             preChanged();
-            this.wall = type;
-            this.link = 0;
+            store.blocks[index] = (short) type.id;
+            store.links[index] = 0;
             changed();
         }
     }
 
     public void setFloor(Floor type){
-        this.floor = type;
+        store.floors[index] = (short) type.id;
     }
 
     public byte getVisibility(){
-        return visibility;
+        return store.visibility[index];
     }
 
     public void setVisibility(byte visibility){
-        this.visibility = visibility;
+        store.visibility[index] = visibility;
     }
 
     public byte getRotation(){
-        return rotation;
+        return store.rotations[index];
     }
 
     public void setRotation(byte rotation){
-        this.rotation = rotation;
+        store.rotations[index] = rotation;
+        store.markChanged(index);
     }
 
     public byte getDump(){
-        return rotation;
+        return store.rotations[index];
     }
 
+    /** Dump positions share the rotation array, but are not drawn, so they are not marked as changed. */
     public void setDump(byte dump){
-        this.rotation = dump;
+        store.rotations[index] = dump;
     }
 
     public byte getElevation(){
-        return elevation;
+        return store.elevations[index];
     }
 
     public void setElevation(int elevation){
-        this.elevation = (byte)elevation;
+        store.elevations[index] = (byte)elevation;
     }
 
     public byte getCliffs(){
-        return cliffs;
+        return store.cliffs[index];
     }
 
     public void setCliffs(byte cliffs){
-        this.cliffs = cliffs;
+        store.cliffs[index] = cliffs;
+    }
+
+    /**
+     * The coordinates of the core tile this is linked to, in the form of two bytes packed into one.
+     * This is relative to the block it is linked to; negate coords to find the link.
+     */
+    public byte getLink(){
+        return store.links[index];
+    }
+
+    public void setLink(byte link){
+        store.links[index] = link;
+    }
+
+    /** Tile traversal cost. */
+    public byte getCost(){
+        return store.costs[index];
     }
 
     public boolean hasCliffs(){
@@ -248,7 +265,7 @@ public class Tile implements PosTrait, TargetTrait{
 
     public boolean breakable(){
         Block block = block();
-        if(link == 0){
+        if(getLink() == 0){
             return (block.destructible || block.breakable || block.update);
         }else{
             return getLinked().breakable();
@@ -256,13 +273,13 @@ public class Tile implements PosTrait, TargetTrait{
     }
 
     public boolean isLinked(){
-        return link != 0;
+        return store.links[index] != 0;
     }
 
     /** Sets this to a linked tile, which sets the block to a blockpart. dx and dy can only be -8-7. */
     public void setLinked(byte dx, byte dy){
         setBlock(Blocks.blockpart);
-        link = Bits.packByte((byte) (dx + 8), (byte) (dy + 8));
+        store.links[index] = Bits.packByte((byte) (dx + 8), (byte) (dy + 8));
     }
 
     /**
@@ -310,6 +327,7 @@ public class Tile implements PosTrait, TargetTrait{
 
     /** Returns the block the multiblock is linked to, or null if it is not linked to any block. */
     public Tile getLinked(){
+        byte link = getLink();
         if(link == 0){
             return null;
         }else{
@@ -359,32 +377,64 @@ public class Tile implements PosTrait, TargetTrait{
     }
 
     public void updateOcclusion(){
-        cost = 1;
-        cliffs = 0;
+        updateCliffs();
+        updateCost();
+    }
+
+    /** Updates the cliff bitmask of this tile, which only depends on the elevation of nearby tiles. */
+    public void updateCliffs(){
+        updateCliffs(null);
+    }
+
+    /**
+     * Updates the cliff bitmask of this tile, looking up nearby tiles in a store.
+     * @param tiles The store that contains this tile, or null to look up nearby tiles in the world.
+     */
+    public void updateCliffs(TileStore tiles){
+        byte cliffs = 0;
+        byte elevation = getElevation();
+
+        //check for bitmasking cliffs
+        for(int i = 0; i < 4; i++){
+            GridPoint2 point = Geometry.d4[i];
+            Tile tc = nearby(tiles, x + point.x, y + point.y);
+
+            //check for cardinal direction elevation changes and bitmask that
+            if(tc != null && ((tc.getElevation() < elevation && tc.getElevation() != -1))){
+                cliffs |= (1 << (i * 2));
+            }
+        }
+        store.cliffs[index] = cliffs;
+    }
+
+    /** Updates the traversal cost of this tile. Depends on the cliffs of nearby tiles, so those must be up to date. */
+    public void updateCost(){
+        updateCost(null);
+    }
+
+    /**
+     * Updates the traversal cost of this tile, looking up nearby tiles in a store.
+     * @param tiles The store that contains this tile, or null to look up nearby tiles in the world.
+     */
+    public void updateCost(TileStore tiles){
         boolean occluded = false;
 
         //check for occlusion
         for(int i = 0; i < 8; i++){
             GridPoint2 point = Geometry.d8[i];
-            Tile tile = world.tile(x + point.x, y + point.y);
+            Tile tile = nearby(tiles, x + point.x, y + point.y);
             if(tile != null && tile.solid()){
                 occluded = true;
                 break;
             }
         }
 
-        //check for bitmasking cliffs
-        for(int i = 0; i < 4; i++){
-            Tile tc = getNearby(i);
+        store.costs[index] = (byte) (occluded ? 2 : 1);
+    }
 
-            //check for cardinal direction elevation changes and bitmask that
-            if(tc != null && ((tc.elevation < elevation && tc.elevation != -1))){
-                cliffs |= (1 << (i * 2));
-            }
-        }
-        if(occluded){
-            cost += 1;
-        }
+    private Tile nearby(TileStore tiles, int x, int y){
+        if(tiles == null) return world.tile(x, y);
+        return tiles.inBounds(x, y) ? tiles.get(x, y) : null;
     }
 
     private void preChanged(){
@@ -403,7 +453,8 @@ public class Tile implements PosTrait, TargetTrait{
                 entity = null;
             }
 
-            team = 0;
+            store.teams[index] = 0;
+            store.markChanged(index);
 
             Block block = block();
 
@@ -465,6 +516,6 @@ public class Tile implements PosTrait, TargetTrait{
         Block floor = floor();
 
         return floor.name() + ":" + block.name() + "[" + x + "," + y + "] " + "entity=" + (entity == null ? "null" : ClassReflection.getSimpleName(entity.getClass())) +
-        (link != 0 ? " link=[" + (Bits.getLeftByte(link) - 8) + ", " + (Bits.getRightByte(link) - 8) + "]" : "");
+        (isLinked() ? " link=[" + (Bits.getLeftByte(getLink()) - 8) + ", " + (Bits.getRightByte(getLink()) - 8) + "]" : "");
     }
 }
\ No newline at end of file
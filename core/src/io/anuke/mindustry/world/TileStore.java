@@ -0,0 +1,136 @@
+package io.anuke.mindustry.world;
+
+import io.anuke.mindustry.world.blocks.Floor;
+import io.anuke.ucore.util.Bits;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for all tile data in a world.
+ * Every field is kept in its own primitive array, indexed by {@code x + y * width}.
+ * {@link Tile} instances are thin views into this store; full-map scans should read the arrays directly.
+ */
+public class TileStore{
+    public final int width, height;
+    /** Floor block IDs. */
+    public final short[] floors;
+    /** Wall block IDs. */
+    public final short[] blocks;
+    /** Rotation, 0-3. Also used to store offload location. */
+    public final byte[] rotations;
+    /** Team ordinals. */
+    public final byte[] teams;
+    /** Tile elevations. -1 means slope. */
+    public final byte[] elevations;
+    /** Visibility status. 0 = unexplored, 1 = visited. */
+    public final byte[] visibility;
+    /** Position of cliffs around each tile, packed into bits 0-8. */
+    public final byte[] cliffs;
+    /** Packed multiblock link offsets. See {@link Tile#getLink()}. */
+    public final byte[] links;
+    /** Tile traversal costs. */
+    public final byte[] costs;
+
+    private final Tile[] views;
+    /** Version of the last change to a block, team or rotation, and of the last such change in each row. */
+    private int version;
+    private final int[] rowVersions;
+
+    public TileStore(int width, int height){
+        this.width = width;
+        this.height = height;
+
+        int size = width * height;
+        floors = new short[size];
+        blocks = new short[size];
+        rotations = new byte[size];
+        teams = new byte[size];
+        elevations = new byte[size];
+        visibility = new byte[size];
+        cliffs = new byte[size];
+        links = new byte[size];
+        costs = new byte[size];
+        views = new Tile[size];
+        rowVersions = new int[height];
+
+        Arrays.fill(costs, (byte) 1);
+    }
+
+    /** Creates a store with a tile view for every position. */
+    public static TileStore create(int width, int height){
+        TileStore store = new TileStore(width, height);
+        for(int i = 0; i < store.views.length; i++){
+            store.views[i] = new Tile(store, i, i % width, i / width);
+        }
+        return store;
+    }
+
+    public int size(){
+        return views.length;
+    }
+
+    public int index(int x, int y){
+        return x + y * width;
+    }
+
+    public boolean inBounds(int x, int y){
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public Tile get(int index){
+        return views[index];
+    }
+
+    public Tile get(int x, int y){
+        return views[x + y * width];
+    }
+
+    public Block block(int index){
+        return Block.all().get(blocks[index] & 0xffff);
+    }
+
+    public Floor floor(int index){
+        return (Floor) Block.all().get(floors[index] & 0xffff);
+    }
+
+    /** Marks the block, team or rotation of a tile as changed. See {@link RenderSnapshot}. */
+    public void markChanged(int index){
+        rowVersions[index / width] = ++version;
+    }
+
+    public int version(){
+        return version;
+    }
+
+    /** Returns the version of the last change in a row. */
+    public int rowVersion(int y){
+        return rowVersions[y];
+    }
+
+    /** Returns the index of the tile that the tile at this index is linked to, or the index itself if it is not linked. */
+    public int target(int index){
+        byte link = links[index];
+        if(link == 0) return index;
+        int x = index % width - (Bits.getLeftByte(link) - 8);
+        int y = index / width - (Bits.getRightByte(link) - 8);
+        return inBounds(x, y) ? index(x, y) : index;
+    }
+
+    /** Resets all data to its defaults. Tile entities are dropped, but not removed. */
+    public void clear(){
+        Arrays.fill(floors, (short) 0);
+        Arrays.fill(blocks, (short) 0);
+        Arrays.fill(rotations, (byte) 0);
+        Arrays.fill(teams, (byte) 0);
+        Arrays.fill(elevations, (byte) 0);
+        Arrays.fill(visibility, (byte) 0);
+        Arrays.fill(cliffs, (byte) 0);
+        Arrays.fill(links, (byte) 0);
+        Arrays.fill(costs, (byte) 1);
+        Arrays.fill(rowVersions, ++version);
+
+        for(Tile tile : views){
+            tile.entity = null;
+        }
+    }
+}
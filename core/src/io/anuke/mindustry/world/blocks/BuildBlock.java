@@ -3,6 +3,7 @@ package io.anuke.mindustry.world.blocks;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
+import io.anuke.mindustry.content.blocks.Blocks;
 import io.anuke.mindustry.content.fx.ExplosionFx;
 import io.anuke.mindustry.content.fx.Fx;
 import io.anuke.mindustry.entities.Player;
@@ -16,6 +17,7 @@ import io.anuke.mindustry.graphics.Layer;
 import io.anuke.mindustry.graphics.Palette;
 import io.anuke.mindustry.graphics.Shaders;
 import io.anuke.mindustry.input.CursorType;
+import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.type.ItemStack;
 import io.anuke.mindustry.type.Recipe;
 import io.anuke.mindustry.world.BarType;
@@ -209,6 +211,9 @@ public class BuildBlock extends Block{
             }
             
             if(progress >= 1f || debug || state.mode.infiniteResources){
+                if(Net.server() && builder instanceof Player){
+                    netServer.admins.getEdits().log((Player) builder, tile, previous == null ? Blocks.air : previous, recipe.result, tile.getRotation(), builder.getTeam());
+                }
                 Call.onConstructFinish(tile, recipe.result, builderID, tile.getRotation(), builder.getTeam());
             }
         }
@@ -237,6 +242,10 @@ public class BuildBlock extends Block{
             progress = Mathf.clamp(progress - amount);
 
             if(progress <= 0 || debug || state.mode.infiniteResources){
+                //when a construction site is cancelled, 'previous' is the block it replaced, not the unfinished block
+                if(Net.server() && builder instanceof Player && previous != null && previous != Blocks.air){
+                    netServer.admins.getEdits().log((Player) builder, tile, previous, Blocks.air, tile.getRotation(), tile.getTeam());
+                }
                 Call.onDeconstructFinish(tile, this.recipe == null ? previous : this.recipe.result);
             }
         }
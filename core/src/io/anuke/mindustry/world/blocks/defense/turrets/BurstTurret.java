@@ -1,8 +1,9 @@
 package io.anuke.mindustry.world.blocks.defense.turrets;
 
+import io.anuke.mindustry.game.TimerWheel;
+import io.anuke.mindustry.game.TimerWheel.Action;
 import io.anuke.mindustry.type.AmmoType;
 import io.anuke.mindustry.world.Tile;
-import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.util.Mathf;
 
 import static io.anuke.mindustry.Vars.tilesize;
@@ -10,6 +11,19 @@ import static io.anuke.mindustry.Vars.tilesize;
 public class BurstTurret extends ItemTurret{
     protected float burstSpacing = 5;
     protected float xRand = 0f;
+    /**Fires a single shot of a burst from the turret in the data.*/
+    protected final Action burstAction = (x, y, data) -> {
+        Tile tile = (Tile) data;
+        if(!(tile.entity instanceof TurretEntity) || !hasAmmo(tile)) return;
+
+        TurretEntity entity = tile.entity();
+        entity.recoil = recoil;
+
+        tr.trns(entity.rotation, size * tilesize / 2, Mathf.range(xRand));
+        bullet(tile, peekAmmo(tile).bullet, entity.rotation + Mathf.range(inaccuracy));
+        effects(tile);
+        useAmmo(tile);
+    };
 
     public BurstTurret(String name){
         super(name);
@@ -22,17 +36,7 @@ public class BurstTurret extends ItemTurret{
         entity.heat = 1f;
 
         for(int i = 0; i < shots; i++){
-            Timers.run(burstSpacing * i, () -> {
-                if(!(tile.entity instanceof TurretEntity) ||
-                        !hasAmmo(tile)) return;
-
-                entity.recoil = recoil;
-
-                tr.trns(entity.rotation, size * tilesize / 2, Mathf.range(xRand));
-                bullet(tile, ammo.bullet, entity.rotation + Mathf.range(inaccuracy));
-                effects(tile);
-                useAmmo(tile);
-            });
+            TimerWheel.schedule(burstSpacing * i, burstAction, 0f, 0f, tile);
         }
     }
 }
@@ -63,6 +63,7 @@ public class ItemTurret extends CooledTurret{
         TurretEntity entity = tile.entity();
 
         AmmoType type = ammoMap.get(item);
+        entity.noSleep();
         entity.totalAmmo += type.quantityMultiplier;
         entity.items.add(item, 1);
 
@@ -11,6 +11,8 @@ import io.anuke.mindustry.entities.Unit;
 import io.anuke.mindustry.entities.Units;
 import io.anuke.mindustry.entities.bullet.Bullet;
 import io.anuke.mindustry.entities.bullet.BulletType;
+import io.anuke.mindustry.game.TimerWheel;
+import io.anuke.mindustry.game.TimerWheel.Action;
 import io.anuke.mindustry.graphics.Layer;
 import io.anuke.mindustry.graphics.Palette;
 import io.anuke.mindustry.type.AmmoEntry;
@@ -26,6 +28,7 @@ import io.anuke.ucore.core.Effects.Effect;
 import io.anuke.ucore.core.Graphics;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.function.BiConsumer;
+import io.anuke.ucore.function.Predicate;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.graphics.Lines;
 import io.anuke.ucore.util.*;
@@ -40,6 +43,8 @@ public abstract class Turret extends Block{
     protected static final int targetInterval = 15;
 
     protected final int timerTarget = timers++;
+    /**Shows the ammo use effect of the turret in the data.*/
+    protected final Action ejectAction = (x, y, tile) -> ejectEffects((Tile) tile);
 
     protected Color heatColor = Palette.turretHeat;
     protected Effect shootEffect = Fx.none;
@@ -63,6 +68,8 @@ public abstract class Turret extends Block{
     protected Translator tr = new Translator();
     protected Translator tr2 = new Translator();
 
+    protected Predicate<Unit> targetFilter = unit -> !unit.isFlying() || targetAir;
+
     protected TextureRegion baseRegion;
     protected TextureRegion heatRegion;
     protected TextureRegion baseTopRegion;
@@ -188,8 +195,7 @@ public abstract class Turret extends Block{
         if(hasAmmo(tile)){
 
             if(entity.timer.get(timerTarget, targetInterval)){
-                entity.target = Units.getClosestEnemy(tile.getTeam(),
-                        tile.drawx(), tile.drawy(), range, e -> !e.isDead() && (!e.isFlying() || targetAir));
+                entity.target = Units.getClosestEnemy(tile.getTeam(), tile.drawx(), tile.drawy(), range, targetFilter);
             }
 
             if(entity.target != null){
@@ -215,6 +221,15 @@ public abstract class Turret extends Block{
                 }
             }
         }
+
+        //idle turrets only need to look for targets every once in a while, or wait for ammo
+        if(entity.target == null && entity.heat < 0.01f && entity.recoil < 0.01f){
+            if(hasAmmo(tile)){
+                entity.sleepFor(targetInterval);
+            }else{
+                entity.sleepNow();
+            }
+        }
     }
 
     /**
@@ -226,7 +241,7 @@ public abstract class Turret extends Block{
         entry.amount -= ammoPerShot;
         if(entry.amount == 0) entity.ammo.pop();
         entity.totalAmmo -= ammoPerShot;
-        Timers.run(reload / 2f, () -> ejectEffects(tile));
+        TimerWheel.schedule(reload / 2f, ejectAction, 0f, 0f, tile);
         return entry.type;
     }
 
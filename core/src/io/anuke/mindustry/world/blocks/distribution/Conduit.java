@@ -14,8 +14,6 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 public class Conduit extends LiquidBlock{
-    protected final int timerFlow = timers++;
-
     protected TextureRegion[] topRegions = new TextureRegion[7];
     protected TextureRegion[] botRegions = new TextureRegion[7];
 
@@ -70,6 +68,8 @@ public class Conduit extends LiquidBlock{
             entity.blendbits = 1;
             entity.blendshadowrot = 1;
         }
+
+        ConduitNetwork.rebuild(tile);
     }
 
     private boolean blends(Tile tile, int direction){
@@ -90,7 +90,10 @@ public class Conduit extends LiquidBlock{
         Draw.colorl(0.34f);
         Draw.rect(botRegions[entity.blendbits], tile.drawx(), tile.drawy(), rotation);
 
-        Draw.color(mod.current().color);
+        float fraction = entity.network == null ? mod.total() / liquidCapacity : entity.network.fraction();
+        entity.smoothLiquid = Mathf.lerpDelta(entity.smoothLiquid, fraction, 0.05f);
+
+        Draw.color(entity.network == null ? mod.current().color : entity.network.liquid.color);
         Draw.alpha(entity.smoothLiquid);
         Draw.rect(botRegions[entity.blendbits], tile.drawx(), tile.drawy(), rotation);
         Draw.color();
@@ -101,13 +104,16 @@ public class Conduit extends LiquidBlock{
     @Override
     public void update(Tile tile){
         ConduitEntity entity = tile.entity();
-        entity.smoothLiquid = Mathf.lerpDelta(entity.smoothLiquid, entity.liquids.total() / liquidCapacity, 0.05f);
 
-        if(tile.entity.liquids.total() > 0.001f && tile.entity.timer.get(timerFlow, 1)){
-            tryMoveLiquid(tile, tile.getNearby(tile.getRotation()), true, tile.entity.liquids.current());
-            entity.noSleep();
+        if(entity.network == null){
+            ConduitNetwork.rebuild(tile);
+        }
+
+        //the head of a network updates all of it; the others only receive liquid
+        if(entity.network.head == entity){
+            entity.network.update(this);
         }else{
-            entity.sleep();
+            entity.sleepNow();
         }
     }
 
@@ -121,8 +127,21 @@ public class Conduit extends LiquidBlock{
 
     @Override
     public boolean acceptLiquid(Tile tile, Tile source, Liquid liquid, float amount){
-        tile.entity.noSleep();
-        return super.acceptLiquid(tile, source, liquid, amount) && ((2 + source.relativeTo(tile.x, tile.y)) % 4 != tile.getRotation());
+        ConduitEntity entity = tile.entity();
+        return super.acceptLiquid(tile, source, liquid, amount) && ((2 + source.relativeTo(tile.x, tile.y)) % 4 != tile.getRotation())
+                && (entity.network == null || entity.network.accepts(liquid, amount));
+    }
+
+    @Override
+    public void handleLiquid(Tile tile, Tile source, Liquid liquid, float amount){
+        ConduitEntity entity = tile.entity();
+        entity.liquids.add(liquid, amount);
+
+        if(entity.network != null){
+            entity.network.received(entity, liquid, amount);
+        }else{
+            entity.noSleep();
+        }
     }
 
     @Override
@@ -132,6 +151,8 @@ public class Conduit extends LiquidBlock{
 
     public static class ConduitEntity extends TileEntity{
         public float smoothLiquid;
+        /** The network this conduit is part of, which moves its liquid. */
+        ConduitNetwork network;
 
         byte blendbits;
         int blendshadowrot;
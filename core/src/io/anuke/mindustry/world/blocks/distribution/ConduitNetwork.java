@@ -0,0 +1,197 @@
+package io.anuke.mindustry.world.blocks.distribution;
+
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.type.Liquid;
+import io.anuke.mindustry.world.Block;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.distribution.Conduit.ConduitEntity;
+
+/**
+ * A connected system of conduits of the same type, simulated as a single body of liquid.
+ * <p>
+ * Conduits are connected when one of them outputs into the other. Since every conduit has a single output, a network
+ * is a tree of conduits that all flow towards one head, which is the only conduit that passes liquid on to other blocks.
+ * Liquid that a member receives beyond its share is passed on to the head at once. The head updates the whole network:
+ * it evens out a few members against itself, so that over time it holds its share of the running total of the network,
+ * and pushes liquid out. Other members don't update at all.
+ * Liquid always stays in the modules of the members, so the sum over all members is the total of the network.
+ * <p>
+ * Networks are rebuilt whenever the proximity of one of their conduits changes.
+ */
+class ConduitNetwork{
+    private static final Array<ConduitEntity> queue = new Array<>();
+    /** Amount of members that the head evens out against itself per update. */
+    private static final int balancePerUpdate = 8;
+
+    /** All conduits in this network. */
+    final Array<ConduitEntity> members = new Array<>();
+    /** The conduit that outputs out of this network. In a loop of conduits, this is an arbitrary member. */
+    ConduitEntity head;
+    /** The liquid that this network moves. Other liquids in its conduits stay where they are. */
+    Liquid liquid;
+
+    /** Total amount of {@link #liquid} held by all members. */
+    private float total;
+    /** Index of the next member to even out. */
+    private int balanceIndex;
+
+    /** Rebuilds the network of a conduit, and the networks of all conduits that it connected to. */
+    static void rebuild(Tile tile){
+        ConduitEntity entity = tile.entity();
+
+        if(entity.network != null){
+            for(ConduitEntity member : entity.network.members){
+                member.network = null;
+            }
+        }
+
+        //old networks of all neighbours are dropped, since this conduit may have connected or split them
+        for(int i = 0; i < 4; i++){
+            ConduitEntity other = member(tile.block(), tile.getNearby(i));
+            if(other != null && other.network != null){
+                for(ConduitEntity member : other.network.members){
+                    member.network = null;
+                }
+            }
+        }
+
+        form(entity);
+        for(int i = 0; i < 4; i++){
+            ConduitEntity other = member(tile.block(), tile.getNearby(i));
+            if(other != null && other.network == null){
+                form(other);
+            }
+        }
+    }
+
+    /** Returns the conduit of this type that this conduit outputs into, or null if there is none. */
+    static ConduitEntity next(Tile tile){
+        ConduitEntity other = member(tile.block(), tile.getNearby(tile.getRotation()));
+        return other != null && other.tile.getRotation() != (tile.getRotation() + 2) % 4 ? other : null;
+    }
+
+    private static ConduitEntity member(Block block, Tile other){
+        if(other == null || other.block() != block || !(other.entity instanceof ConduitEntity)) return null;
+        return other.entity();
+    }
+
+    /** Creates a new network out of all conduits connected to this one. */
+    private static void form(ConduitEntity start){
+        ConduitNetwork network = new ConduitNetwork();
+        queue.clear();
+        queue.add(start);
+        start.network = network;
+
+        while(queue.size > 0){
+            ConduitEntity entity = queue.pop();
+            network.members.add(entity);
+
+            ConduitEntity next = next(entity.tile);
+            if(next == null){
+                network.head = entity;
+            }else if(next.network != network){
+                next.network = network;
+                queue.add(next);
+            }
+
+            for(int i = 0; i < 4; i++){
+                ConduitEntity other = member(entity.tile.block(), entity.tile.getNearby(i));
+                if(other != null && other.network != network && next(other.tile) == entity){
+                    other.network = network;
+                    queue.add(other);
+                }
+            }
+        }
+
+        if(network.head == null){
+            network.head = start;
+        }
+
+        network.liquid = network.head.liquids.current();
+        for(ConduitEntity member : network.members){
+            network.total += member.liquids.get(network.liquid);
+        }
+        network.head.noSleep();
+    }
+
+    /**
+     * Whether this network can take in an amount of liquid, which depends on the fill level of the whole network.
+     * A network only switches liquids once it is empty, so that none is left behind.
+     */
+    boolean accepts(Liquid liquid, float amount){
+        return (liquid == this.liquid || total < 0.01f) && total + amount < members.size * head.tile.block().liquidCapacity;
+    }
+
+    /**
+     * Called after a member received liquid. Anything the member holds above its share is passed on to the head right
+     * away, so that the member can keep receiving at the rate of the whole network instead of waiting to be balanced.
+     */
+    void received(ConduitEntity member, Liquid liquid, float amount){
+        if(liquid != this.liquid){
+            this.liquid = liquid;
+            total = 0f;
+        }
+        total += amount;
+
+        float excess = member.liquids.get(liquid) - total / members.size;
+        if(member != head && excess > 0f){
+            member.liquids.remove(liquid, excess);
+            head.liquids.add(liquid, excess);
+        }
+
+        head.noSleep();
+    }
+
+    /** Fill level of the whole network, from 0 to 1. */
+    float fraction(){
+        return total / members.size / head.tile.block().liquidCapacity;
+    }
+
+    void update(Conduit block){
+        balance();
+
+        if(total <= 0.001f){
+            head.sleepNow();
+            return;
+        }
+
+        ConduitEntity next = next(head.tile);
+        float before = head.liquids.get(liquid);
+
+        //a loop of conduits has nowhere to output to
+        if(next == null || next.network != this){
+            block.tryMoveLiquid(head.tile, head.tile.getNearby(head.tile.getRotation()), true, liquid);
+        }
+
+        float moved = before - head.liquids.get(liquid);
+
+        if(moved > 0f){
+            total -= moved;
+            head.noSleep();
+        }else{
+            //the output is blocked, which nothing reports, so check again later
+            head.sleepFor(10f);
+        }
+    }
+
+    /**
+     * Evens out the next few members against the head, so that the head holds its share of the network when it outputs.
+     * Liquid is only moved between the head and a member, never created or removed, and members that still hold
+     * another liquid are left alone, so that it is not hidden by switching their current liquid.
+     */
+    private void balance(){
+        float share = total / members.size;
+
+        for(int i = 0; i < balancePerUpdate && i < members.size; i++){
+            ConduitEntity member = members.get(balanceIndex = (balanceIndex + 1) % members.size);
+            if(member == head || (member.liquids.current() != liquid && member.liquids.currentAmount() >= 0.01f)) continue;
+
+            //a positive amount moves liquid from the head to the member
+            float amount = Math.min(share - member.liquids.get(liquid), head.liquids.get(liquid));
+            if(Math.abs(amount) > 0.0001f){
+                member.liquids.add(liquid, amount);
+                head.liquids.remove(liquid, amount);
+            }
+        }
+    }
+}
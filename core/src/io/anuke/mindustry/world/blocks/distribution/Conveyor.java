@@ -24,12 +24,9 @@ import static io.anuke.mindustry.Vars.itemSize;
 import static io.anuke.mindustry.Vars.tilesize;
 
 public class Conveyor extends Block{
-    private static final float itemSpace = 0.135f * 2.2f;
-    private static final float offsetScl = 128f * 3f;
-    private static final float minmove = 1f / (Short.MAX_VALUE - 2);
-    private static ItemPos drawpos = new ItemPos();
-    private static ItemPos pos1 = new ItemPos();
-    private static ItemPos pos2 = new ItemPos();
+    static final float itemSpace = 0.135f * 2.2f;
+    static final float offsetScl = 128f * 3f;
+    static final float minmove = 1f / (Short.MAX_VALUE - 2);
     private final Translator tr1 = new Translator();
     private final Translator tr2 = new Translator();
 
@@ -49,10 +46,21 @@ public class Conveyor extends Block{
         itemCapacity = 4;
     }
 
-    private static int compareItems(Long a, Long b){
-        pos1.set(a, ItemPos.packShorts);
-        pos2.set(b, ItemPos.packShorts);
-        return Float.compare(pos1.y, pos2.y);
+    /** Returns the conveyor that this conveyor passes items to in a straight line, or null if there is none. */
+    static ConveyorEntity next(Tile tile){
+        return straight(tile, tile.getNearby(tile.getRotation()));
+    }
+
+    /** Returns the conveyor that passes items to this conveyor in a straight line, or null if there is none. */
+    static ConveyorEntity previous(Tile tile){
+        return straight(tile, tile.getNearby((tile.getRotation() + 2) % 4));
+    }
+
+    private static ConveyorEntity straight(Tile tile, Tile other){
+        if(other == null || other.block() != tile.block() || other.getRotation() != tile.getRotation() || !(other.entity instanceof ConveyorEntity)){
+            return null;
+        }
+        return other.entity();
     }
 
     @Override
@@ -97,7 +105,8 @@ public class Conveyor extends Block{
         ConveyorEntity entity = tile.entity();
         byte rotation = tile.getRotation();
 
-        int frame = entity.clogHeat <= 0.5f ? (int) ((Timers.time() / 4f) % 4) : 0;
+        ConveyorLine line = entity.line;
+        int frame = line == null || line.clogHeat <= 0.5f ? (int) ((Timers.time() / 4f) % 4) : 0;
         Draw.rect(regions[entity.blendbits][frame], tile.drawx(), tile.drawy(),
             tilesize * entity.blendsclx, tilesize * entity.blendscly, rotation*90);
     }
@@ -128,6 +137,10 @@ public class Conveyor extends Block{
             entity.blendbits = 1;
             entity.blendshadowrot = 1;
         }
+
+        if(entity.line == null || entity.line.previous(entity) != previous(tile) || entity.line.next(entity) != next(tile)){
+            ConveyorLine.rebuild(tile);
+        }
     }
 
     private boolean blends(Tile tile, int direction){
@@ -150,22 +163,28 @@ public class Conveyor extends Block{
     @Override
     public void drawLayer(Tile tile){
         ConveyorEntity entity = tile.entity();
+        ConveyorLine line = entity.line;
+
+        if(line == null) return;
 
         byte rotation = tile.getRotation();
+        int index = entity.index;
 
         try{
 
-            for(int i = 0; i < entity.convey.size; i++){
-                ItemPos pos = drawpos.set(entity.convey.get(i), ItemPos.drawShorts);
+            for(int i = line.search(index); i < line.size() && line.tileAt(line.y(i)) == index; i++){
+                Item item = line.item(i);
+
+                if(item == null) continue;
 
-                if(pos.item == null) continue;
+                float y = line.y(i) - index;
 
                 tr1.trns(rotation * 90, tilesize, 0);
-                tr2.trns(rotation * 90, -tilesize / 2, pos.x * tilesize / 2);
+                tr2.trns(rotation * 90, -tilesize / 2, line.x(i) * tilesize / 2);
 
-                Draw.rect(pos.item.region,
-                        (int) (tile.x * tilesize + tr1.x * pos.y + tr2.x),
-                        (int) (tile.y * tilesize + tr1.y * pos.y + tr2.y), itemSize, itemSize);
+                Draw.rect(item.region,
+                        (int) (tile.x * tilesize + tr1.x * y + tr2.x),
+                        (int) (tile.y * tilesize + tr1.y * y + tr2.y), itemSize, itemSize);
             }
 
         }catch(IndexOutOfBoundsException e){
@@ -177,7 +196,9 @@ public class Conveyor extends Block{
     public void unitOn(Tile tile, Unit unit){
         ConveyorEntity entity = tile.entity();
 
-        entity.noSleep();
+        if(entity.line == null) return;
+
+        entity.line.head().noSleep();
 
         float speed = this.speed * tilesize / 2.3f;
         float centerSpeed = 0.1f;
@@ -201,74 +222,23 @@ public class Conveyor extends Block{
 
         entity.minCarry = Math.min(entity.minCarry, min);
         entity.carrying += unit.getMass();
+        entity.line.carry(entity);
 
-        if(entity.convey.size * itemSpace < 0.9f){
+        if(entity.items.total() * itemSpace < 0.9f){
             unit.getVelocity().add((tx * speed + centerx) * Timers.delta(), (ty * speed + centery) * Timers.delta());
         }
     }
 
     @Override
     public synchronized void update(Tile tile){
-
         ConveyorEntity entity = tile.entity();
-        entity.minitem = 1f;
-
-        int minremove = Integer.MAX_VALUE;
-        float speed = Math.max(this.speed - (1f - (carryCapacity - entity.carrying) / carryCapacity), 0f);
-
-        for(int i = entity.convey.size - 1; i >= 0; i--){
-            long value = entity.convey.get(i);
-            ItemPos pos = pos1.set(value, ItemPos.updateShorts);
 
-            //..this should never happen, but in case it does, remove it and stop here
-            if(pos.item == null){
-                entity.convey.removeValue(value);
-                break;
-            }
-
-            float nextpos = (i == entity.convey.size - 1 ? 100f : pos2.set(entity.convey.get(i + 1), ItemPos.updateShorts).y) - itemSpace;
-            if(entity.minCarry >= pos.y && entity.minCarry <= nextpos){
-                nextpos = entity.minCarry;
-            }
-            float maxmove = Math.min(nextpos - pos.y, speed * Timers.delta());
-
-            if(maxmove > minmove){
-                pos.y += maxmove;
-                pos.x = Mathf.lerpDelta(pos.x, 0, 0.06f);
-            }else{
-                pos.x = Mathf.lerpDelta(pos.x, pos.seed / offsetScl, 0.1f);
-            }
-
-            pos.y = Mathf.clamp(pos.y);
-
-            if(pos.y >= 0.9999f && offloadDir(tile, pos.item)){
-                minremove = Math.min(i, minremove);
-                tile.entity.items.remove(pos.item, 1);
-            }else{
-                value = pos.pack();
-
-                if(pos.y < entity.minitem)
-                    entity.minitem = pos.y;
-                entity.convey.set(i, value);
-            }
-        }
-
-        if(entity.minitem < itemSpace){
-            entity.clogHeat = Mathf.lerpDelta(entity.clogHeat, 1f, 0.02f);
+        //the last conveyor of a line updates all of it; the others only wait to fall asleep
+        if(entity.line != null && entity.line.head() == entity){
+            entity.line.update(this);
         }else{
-            entity.clogHeat = Mathf.lerpDelta(entity.clogHeat, 0f, 1f);
-        }
-
-        entity.carrying = 0f;
-        entity.minCarry = 2f;
-
-        if(entity.items.total() == 0){
             entity.sleep();
-        }else{
-            entity.noSleep();
         }
-
-        if(minremove != Integer.MAX_VALUE) entity.convey.truncate(minremove);
     }
 
     @Override
@@ -279,21 +249,20 @@ public class Conveyor extends Block{
     @Override
     public synchronized int removeStack(Tile tile, Item item, int amount){
         ConveyorEntity entity = tile.entity();
-        entity.noSleep();
         int removed = 0;
 
+        if(entity.line == null) return 0;
+
         for(int j = 0; j < amount; j++){
-            for(int i = 0; i < entity.convey.size; i++){
-                long val = entity.convey.get(i);
-                ItemPos pos = pos1.set(val, ItemPos.drawShorts);
-                if(pos.item == item){
-                    entity.convey.removeValue(val);
-                    entity.items.remove(item, 1);
-                    removed++;
-                    break;
-                }
+            if(entity.line.remove(entity.index, item)){
+                entity.items.remove(item, 1);
+                removed++;
+            }else{
+                break;
             }
         }
+
+        entity.line.head().noSleep();
         return removed;
     }
 
@@ -305,7 +274,7 @@ public class Conveyor extends Block{
     @Override
     public synchronized int acceptStack(Item item, int amount, Tile tile, Unit source){
         ConveyorEntity entity = tile.entity();
-        return Math.min((int)(entity.minitem / itemSpace), amount);
+        return entity.line == null ? 0 : Math.min((int)(entity.line.minitem(entity.index) / itemSpace), amount);
     }
 
     @Override
@@ -313,18 +282,17 @@ public class Conveyor extends Block{
         ConveyorEntity entity = tile.entity();
 
         for(int i = amount - 1; i >= 0; i--){
-            long result = ItemPos.packItem(item, 0f, i * itemSpace, (byte) Mathf.random(255));
-            entity.convey.insert(0, result);
+            entity.line.insert(entity.index, item, 0f, i * itemSpace, (byte) Mathf.random(255));
             entity.items.add(item, 1);
         }
-
-        entity.noSleep();
     }
 
     @Override
     public boolean acceptItem(Item item, Tile tile, Tile source){
         int direction = source == null ? 0 : Math.abs(source.relativeTo(tile.x, tile.y) - tile.getRotation());
-        float minitem = tile.<ConveyorEntity>entity().minitem;
+        ConveyorEntity entity = tile.entity();
+        if(entity.line == null) return false;
+        float minitem = entity.line.minitem(entity.index);
         return (((direction == 0) && minitem > itemSpace) ||
                 ((direction % 2 == 1) && minitem > 0.52f)) && (source == null || !(source.block().rotate && (source.getRotation() + 2) % 4 == tile.getRotation()));
     }
@@ -340,24 +308,8 @@ public class Conveyor extends Block{
         float y = (ang == -1 || ang == 3) ? 1 : (ang == 1 || ang == -3) ? -1 : 0;
 
         ConveyorEntity entity = tile.entity();
-        entity.noSleep();
-        long result = ItemPos.packItem(item, y * 0.9f, pos, (byte) Mathf.random(255));
-        boolean inserted = false;
-
+        entity.line.insert(entity.index, item, y * 0.9f, pos, (byte) Mathf.random(255));
         tile.entity.items.add(item, 1);
-
-        for(int i = 0; i < entity.convey.size; i++){
-            if(compareItems(result, entity.convey.get(i)) < 0){
-                entity.convey.insert(i, result);
-                inserted = true;
-                break;
-            }
-        }
-
-        //this item must be greater than anything there...
-        if(!inserted){
-            entity.convey.add(result);
-        }
     }
 
     @Override
@@ -366,9 +318,10 @@ public class Conveyor extends Block{
         Array<Object> arr = super.getDebugInfo(tile);
         arr.addAll(Array.with(
                 "mincarry", entity.minCarry,
-                "minitem", entity.minCarry,
+                "minitem", entity.line == null ? 1f : entity.line.minitem(entity.index),
                 "carrying", entity.carrying,
-                "clogHeat", entity.clogHeat,
+                "clogHeat", entity.line == null ? 0f : entity.line.clogHeat,
+                "line", entity.line == null ? 0 : entity.line.entities.size,
                 "sleeping", entity.isSleeping()
         ));
         return arr;
@@ -380,9 +333,12 @@ public class Conveyor extends Block{
     }
 
     public static class ConveyorEntity extends TileEntity{
-
+        /** The line this conveyor is part of, which holds its items. */
+        ConveyorLine line;
+        /** Position of this conveyor in its line. */
+        int index;
+        /** Items of this conveyor while it is not part of a line, with positions relative to it. */
         LongArray convey = new LongArray();
-        float minitem = 1;
         float carrying;
         float minCarry = 2f;
 
@@ -390,10 +346,13 @@ public class Conveyor extends Block{
         int blendbits;
         int blendsclx, blendscly;
 
-        float clogHeat = 0f;
-
         @Override
         public void write(DataOutputStream stream) throws IOException{
+            if(line != null){
+                convey.clear();
+                line.store(index, convey);
+            }
+
             stream.writeInt(convey.size);
 
             for(int i = 0; i < convey.size; i++){
@@ -410,6 +369,10 @@ public class Conveyor extends Block{
             for(int i = 0; i < amount; i++){
                 convey.add(ItemPos.toLong(stream.readInt()));
             }
+
+            if(line != null){
+                line.absorb(this);
+            }
         }
     }
 
@@ -419,14 +382,13 @@ public class Conveyor extends Block{
         private static byte[] writeByte = new byte[4];
 
         private static short[] packShorts = new short[4];
-        private static short[] drawShorts = new short[4];
-        private static short[] updateShorts = new short[4];
+        static short[] updateShorts = new short[4];
 
         Item item;
         float x, y;
         byte seed;
 
-        private ItemPos(){
+        ItemPos(){
         }
 
         static long packItem(Item item, float x, float y, byte seed){
@@ -0,0 +1,333 @@
+package io.anuke.mindustry.world.blocks.distribution;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongArray;
+import io.anuke.mindustry.type.Item;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.distribution.Conveyor.ConveyorEntity;
+import io.anuke.mindustry.world.blocks.distribution.Conveyor.ItemPos;
+import io.anuke.ucore.core.Timers;
+import io.anuke.ucore.util.Mathf;
+
+/**
+ * A straight run of connected conveyors of the same type, simulated as a single lane.
+ * <p>
+ * Item positions are stored along the whole line, from 0 at the start of the first conveyor to the amount of conveyors
+ * at the end of the last one, in a ring buffer sorted by position. The whole line is updated at once by its last
+ * conveyor, which is also the only one that passes items on to other blocks.
+ */
+class ConveyorLine{
+    private static final Array<ConveyorEntity> detached = new Array<>();
+    private static final ItemPos pos = new ItemPos();
+
+    /** Conveyors in this line, from first to last. */
+    final Array<ConveyorEntity> entities = new Array<>();
+    float clogHeat;
+
+    /** Conveyors that units are standing on during this update. */
+    private final Array<ConveyorEntity> carried = new Array<>();
+
+    private float[] ys = new float[8];
+    private float[] xs = new float[8];
+    private short[] ids = new short[8];
+    private byte[] seeds = new byte[8];
+    private int first, size;
+
+    /**
+     * Rebuilds the lines around a conveyor whose straight neighbours changed.
+     * Items are kept on the conveyor they were on; items on conveyors that no longer exist are dropped.
+     */
+    static void rebuild(Tile tile){
+        detached.clear();
+
+        ConveyorEntity entity = tile.entity();
+        detach(entity);
+
+        ConveyorEntity prev = Conveyor.previous(tile), next = Conveyor.next(tile);
+        if(prev != null) detach(prev);
+        if(next != null) detach(next);
+
+        for(int i = 0; i < detached.size; i++){
+            ConveyorEntity other = detached.get(i);
+            if(other.line == null){
+                form(other);
+            }
+        }
+
+        detached.clear();
+    }
+
+    /** Removes a conveyor and the rest of its line from their line, storing their items on each conveyor. */
+    private static void detach(ConveyorEntity entity){
+        if(entity.line == null){
+            if(!detached.contains(entity, true)){
+                detached.add(entity);
+            }
+            return;
+        }
+
+        ConveyorLine line = entity.line;
+        for(ConveyorEntity other : line.entities){
+            //conveyors that were removed from the world lose their items
+            if(other.tile.entity == other){
+                other.convey.clear();
+                line.store(other.index, other.convey);
+                detached.add(other);
+            }
+            other.line = null;
+        }
+    }
+
+    /** Creates a new line that contains this conveyor. */
+    private static void form(ConveyorEntity start){
+        ConveyorEntity tail = start;
+        ConveyorEntity prev;
+        while((prev = Conveyor.previous(tail.tile)) != null){
+            if(prev.line != null) detach(prev);
+            tail = prev;
+        }
+
+        ConveyorLine line = new ConveyorLine();
+        for(ConveyorEntity current = tail; current != null; current = Conveyor.next(current.tile)){
+            if(current.line != null) detach(current);
+
+            current.line = line;
+            current.index = line.entities.size;
+            line.entities.add(current);
+            line.absorb(current);
+        }
+
+        line.head().noSleep();
+    }
+
+    ConveyorEntity head(){
+        return entities.peek();
+    }
+
+    ConveyorEntity previous(ConveyorEntity entity){
+        return entity.index > 0 ? entities.get(entity.index - 1) : null;
+    }
+
+    ConveyorEntity next(ConveyorEntity entity){
+        return entity.index < entities.size - 1 ? entities.get(entity.index + 1) : null;
+    }
+
+    int size(){
+        return size;
+    }
+
+    float y(int i){
+        return ys[index(i)];
+    }
+
+    float x(int i){
+        return xs[index(i)];
+    }
+
+    /** Returns the item at this index, or null if the ID is invalid. */
+    Item item(int i){
+        short id = ids[index(i)];
+        return id < 0 || id >= Item.all().size ? null : Item.all().get(id);
+    }
+
+    /** Returns the index of the conveyor that an item at this position is on. */
+    int tileAt(float y){
+        return Math.min((int) y, entities.size - 1);
+    }
+
+    /** Returns the index of the first item at or after this position. */
+    int search(float y){
+        int low = 0, high = size;
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(ys[index(mid)] < y){
+                low = mid + 1;
+            }else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Returns the position of the closest item to the start of this conveyor, relative to it. 1 if there is none. */
+    float minitem(int tile){
+        int i = search(tile);
+        return i < size && tileAt(y(i)) == tile ? y(i) - tile : 1f;
+    }
+
+    /** Adds an item onto a conveyor of this line. Item counts of the conveyor are not changed. */
+    void insert(int tile, Item item, float x, float y, byte seed){
+        float position = tile + Mathf.clamp(y, 0f, 0.999f);
+        insert(search(position), item.id, x, position, seed);
+        head().noSleep();
+    }
+
+    /** Removes one item of this type from a conveyor of this line. Item counts of the conveyor are not changed. */
+    boolean remove(int tile, Item item){
+        for(int i = search(tile); i < size && tileAt(y(i)) == tile; i++){
+            if(ids[index(i)] == item.id){
+                remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void carry(ConveyorEntity entity){
+        if(!carried.contains(entity, true)){
+            carried.add(entity);
+        }
+    }
+
+    void update(Conveyor block){
+        int length = entities.size;
+        ConveyorEntity head = head();
+
+        for(int i = size - 1; i >= 0; i--){
+            int index = index(i);
+            Item item = item(i);
+
+            //..this should never happen, but in case it does, remove it and stop here
+            if(item == null){
+                remove(i);
+                break;
+            }
+
+            float y = ys[index];
+            int tile = tileAt(y);
+            ConveyorEntity entity = entities.get(tile);
+
+            float speed = Math.max(block.speed - (1f - (block.carryCapacity - entity.carrying) / block.carryCapacity), 0f);
+
+            float nextpos = (i == size - 1 ? length + 100f : y(i + 1)) - Conveyor.itemSpace;
+            float minCarry = tile + entity.minCarry;
+            if(minCarry >= y && minCarry <= nextpos){
+                nextpos = minCarry;
+            }
+            float maxmove = Math.min(nextpos - y, speed * Timers.delta());
+
+            if(maxmove > Conveyor.minmove){
+                y += maxmove;
+                xs[index] = Mathf.lerpDelta(xs[index], 0, 0.06f);
+            }else{
+                xs[index] = Mathf.lerpDelta(xs[index], seeds[index] / Conveyor.offsetScl, 0.1f);
+            }
+
+            y = Mathf.clamp(y, 0f, length);
+
+            int next = tileAt(y);
+            if(next != tile){
+                entity.items.remove(item, 1);
+                entities.get(next).items.add(item, 1);
+            }
+
+            if(y >= length - 0.0001f && block.offloadDir(head.tile, item)){
+                head.items.remove(item, 1);
+                remove(i);
+            }else{
+                ys[index] = y;
+            }
+        }
+
+        if(minitem(0) < Conveyor.itemSpace){
+            clogHeat = Mathf.lerpDelta(clogHeat, 1f, 0.02f);
+        }else{
+            clogHeat = Mathf.lerpDelta(clogHeat, 0f, 1f);
+        }
+
+        for(ConveyorEntity entity : carried){
+            entity.carrying = 0f;
+            entity.minCarry = 2f;
+        }
+        carried.clear();
+
+        if(size == 0){
+            head.sleep();
+        }else{
+            head.noSleep();
+        }
+    }
+
+    /** Appends the items on a conveyor of this line to an array, packed with positions relative to that conveyor. */
+    void store(int tile, LongArray out){
+        for(int i = search(tile); i < size && tileAt(y(i)) == tile; i++){
+            int index = index(i);
+            out.add(ItemPos.packItem(item(i), xs[index], ys[index] - tile, seeds[index]));
+        }
+    }
+
+    /** Moves the stored items of a conveyor into this line. */
+    void absorb(ConveyorEntity entity){
+        for(int i = 0; i < entity.convey.size; i++){
+            pos.set(entity.convey.get(i), ItemPos.updateShorts);
+            if(pos.item != null){
+                float position = entity.index + Mathf.clamp(pos.y, 0f, 0.999f);
+                insert(search(position), pos.item.id, pos.x, position, pos.seed);
+            }
+        }
+        entity.convey.clear();
+    }
+
+    private int index(int i){
+        int index = first + i;
+        return index >= ys.length ? index - ys.length : index;
+    }
+
+    private void insert(int i, int id, float x, float y, byte seed){
+        if(size == ys.length){
+            resize(size * 2);
+        }
+
+        int index;
+        if(i == 0){
+            first = first == 0 ? ys.length - 1 : first - 1;
+            index = first;
+        }else{
+            for(int j = size; j > i; j--){
+                int to = index(j), from = index(j - 1);
+                ys[to] = ys[from];
+                xs[to] = xs[from];
+                ids[to] = ids[from];
+                seeds[to] = seeds[from];
+            }
+            index = index(i);
+        }
+
+        ys[index] = y;
+        xs[index] = x;
+        ids[index] = (short) id;
+        seeds[index] = seed;
+        size++;
+    }
+
+    private void remove(int i){
+        for(int j = i; j < size - 1; j++){
+            int to = index(j), from = index(j + 1);
+            ys[to] = ys[from];
+            xs[to] = xs[from];
+            ids[to] = ids[from];
+            seeds[to] = seeds[from];
+        }
+        size--;
+    }
+
+    private void resize(int capacity){
+        float[] nys = new float[capacity], nxs = new float[capacity];
+        short[] nids = new short[capacity];
+        byte[] nseeds = new byte[capacity];
+
+        for(int i = 0; i < size; i++){
+            int index = index(i);
+            nys[i] = ys[index];
+            nxs[i] = xs[index];
+            nids[i] = ids[index];
+            nseeds[i] = seeds[index];
+        }
+
+        ys = nys;
+        xs = nxs;
+        ids = nids;
+        seeds = nseeds;
+        first = 0;
+    }
+}
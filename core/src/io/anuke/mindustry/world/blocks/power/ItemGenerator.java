@@ -3,6 +3,7 @@ package io.anuke.mindustry.world.blocks.power;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import io.anuke.mindustry.content.fx.BlockFx;
+import io.anuke.mindustry.entities.Damage;
 import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.world.BarType;
@@ -93,7 +94,7 @@ public abstract class ItemGenerator extends PowerGenerator{
             entity.generateTime = Mathf.clamp(entity.generateTime);
 
             if(Mathf.chance(Timers.delta() * 0.06 * Mathf.clamp(entity.explosiveness - 0.25f))){
-                entity.damage(Mathf.random(8f));
+                Damage.queue(entity, Mathf.random(8f));
                 Effects.effect(explodeEffect, tile.worldx() + Mathf.range(size * tilesize / 2f), tile.worldy() + Mathf.range(size * tilesize / 2f));
             }
         }
@@ -1,5 +1,6 @@
 package io.anuke.mindustry.world.blocks.power;
 
+import io.anuke.mindustry.entities.Damage;
 import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.type.Liquid;
@@ -63,7 +64,7 @@ public abstract class ItemLiquidGenerator extends ItemGenerator{
                 entity.generateTime = Mathf.clamp(entity.generateTime);
 
                 if(Mathf.chance(Timers.delta() * 0.06 * Mathf.clamp(entity.explosiveness - 0.25f))){
-                    entity.damage(Mathf.random(8f));
+                    Damage.queue(entity, Mathf.random(8f));
                     Effects.effect(explodeEffect, tile.worldx() + Mathf.range(size * tilesize / 2f), tile.worldy() + Mathf.range(size * tilesize / 2f));
                 }
             }
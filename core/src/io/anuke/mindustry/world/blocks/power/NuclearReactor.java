@@ -122,7 +122,7 @@ public class NuclearReactor extends PowerGenerator{
         entity.heat = Mathf.clamp(entity.heat);
 
         if(entity.heat >= 1f){
-            entity.damage((int) entity.health);
+            Damage.queue(entity, (int) entity.health);
         }else{
             distributePower(tile);
         }
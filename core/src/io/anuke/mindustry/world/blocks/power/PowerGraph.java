@@ -0,0 +1,385 @@
+package io.anuke.mindustry.world.blocks.power;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.Queue;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.power.PowerNode.DistributorEntity;
+import io.anuke.mindustry.world.modules.PowerModule;
+import io.anuke.ucore.util.Mathf;
+
+import static io.anuke.mindustry.Vars.threads;
+import static io.anuke.mindustry.Vars.world;
+
+/**
+ * A connected network of power blocks.
+ * Two blocks are connected if one of them is a {@link PowerDistributor} and they are adjacent, or if one of them is a
+ * {@link PowerNode} that is linked to the other.
+ * <p>
+ * Networks are updated incrementally as blocks are placed, removed, linked or unlinked. Every frame, each network
+ * balances all of its producers, consumers and batteries at once, instead of moving power from block to block.
+ */
+public class PowerGraph{
+    private static final Array<Tile> connections = new Array<>();
+    private static final Array<Tile> seeds = new Array<>();
+    private static final ObjectIntMap<Tile> visited = new ObjectIntMap<>();
+    private static Search[] searches = {};
+
+    private final ObjectSet<Tile> all = new ObjectSet<>();
+    private final Array<Tile> producers = new Array<>();
+    private final Array<Tile> consumers = new Array<>();
+    private final Array<Tile> batteries = new Array<>();
+    private final Array<Tile> nodes = new Array<>();
+
+    private long lastFrameUpdated = -1;
+
+    /** Adds a tile with a power module to the network of the blocks it is connected to, merging networks if needed. */
+    public static void join(Tile tile){
+        PowerModule power = tile.entity.power;
+        if(power.graph == null){
+            new PowerGraph().add(tile);
+        }
+
+        for(Tile other : getConnections(tile)){
+            PowerGraph graph = other.entity.power.graph;
+            if(graph == null){
+                power.graph.add(other);
+            }else if(graph != power.graph){
+                power.graph.merge(graph);
+            }
+        }
+    }
+
+    /** Merges the networks of two tiles. Used when a new link is created. */
+    public static void join(Tile tile, Tile other){
+        if(tile.entity == null || tile.entity.power == null || other.entity == null || other.entity.power == null) return;
+
+        if(tile.entity.power.graph == null) join(tile);
+        if(other.entity.power.graph == null) join(other);
+
+        if(tile.entity.power.graph != other.entity.power.graph){
+            tile.entity.power.graph.merge(other.entity.power.graph);
+        }
+    }
+
+    /**
+     * Returns every power tile that this tile is directly connected to.
+     * The returned array is reused.
+     */
+    private static Array<Tile> getConnections(Tile tile){
+        connections.clear();
+
+        boolean distributor = tile.block() instanceof PowerDistributor;
+
+        for(Tile other : tile.entity.proximity()){
+            if(other.entity != null && other.entity.power != null && (distributor || other.block() instanceof PowerDistributor)){
+                connections.add(other);
+            }
+        }
+
+        if(tile.block() instanceof PowerNode){
+            DistributorEntity entity = tile.entity();
+            for(int i = 0; i < entity.links.size; i++){
+                Tile other = world.tile(entity.links.get(i));
+                if(other != null && other.entity != null && other.entity.power != null && !connections.contains(other, true)){
+                    connections.add(other);
+                }
+            }
+        }
+
+        return connections;
+    }
+
+    /**
+     * Balances this network. Only the first call in each frame has an effect, so every member can call this in its update.
+     */
+    public void update(){
+        if(lastFrameUpdated == threads.getFrameID()) return;
+        lastFrameUpdated = threads.getFrameID();
+
+        float produced = 0f, needed = 0f, stored = 0f, capacity = 0f;
+
+        for(Tile tile : producers){
+            produced += amount(tile);
+        }
+
+        for(Tile tile : consumers){
+            float missing = Math.max(tile.block().powerCapacity - amount(tile), 0f);
+            if(missing > 0f && tile.block().acceptPower(tile, null, missing)){
+                needed += missing;
+            }
+        }
+
+        for(Tile tile : batteries){
+            stored += amount(tile);
+            capacity += tile.block().powerCapacity;
+        }
+
+        //every consumer gets the same fraction of what it needs, taken from producers first and then from batteries
+        float satisfaction = needed > 0f ? Math.min((produced + stored) / needed, 1f) : 0f;
+        //rounding can make consumers take slightly more than there is
+        float used = Math.min(supply(satisfaction), produced + stored);
+        float fromProducers = Math.min(used, produced), fromBatteries = used - fromProducers;
+
+        //charge batteries with the excess and leave the rest in the producers
+        float excess = produced - fromProducers;
+        float charged = Math.min(excess, capacity - stored);
+
+        if(fromBatteries > 0f && stored > 0f){
+            float remaining = Math.max(stored - fromBatteries, 0f) / stored;
+            for(Tile tile : batteries){
+                tile.entity.power.amount *= remaining;
+            }
+        }else if(charged > 0f){
+            float free = capacity - stored;
+            for(Tile tile : batteries){
+                tile.entity.power.amount += (tile.block().powerCapacity - tile.entity.power.amount) / free * charged;
+            }
+        }
+
+        if(produced > 0f){
+            float remaining = Mathf.clamp((excess - charged) / produced);
+            for(Tile tile : producers){
+                tile.entity.power.amount *= remaining;
+            }
+        }
+
+        if(needed <= 0f && charged > 0f){
+            satisfaction = 1f;
+        }
+
+        for(Tile tile : nodes){
+            tile.<DistributorEntity>entity().powerRecieved = ((PowerNode) tile.block()).powerSpeed * satisfaction;
+        }
+    }
+
+    /** Returns the power stored in a tile, resetting it first if it became NaN, so that one bad value can't spread through the network. */
+    private static float amount(Tile tile){
+        if(Float.isNaN(tile.entity.power.amount)){
+            tile.entity.power.amount = 0f;
+        }
+        return tile.entity.power.amount;
+    }
+
+    /** Gives every consumer a fraction of the power it is missing through {@link io.anuke.mindustry.world.Block#addPower}. Returns the power used. */
+    private float supply(float fraction){
+        float used = 0f;
+        if(fraction <= 0f) return used;
+
+        for(Tile tile : consumers){
+            float amount = Math.max(tile.block().powerCapacity - tile.entity.power.amount, 0f) * fraction;
+            if(amount > 0f && tile.block().acceptPower(tile, null, amount)){
+                float added = tile.block().addPower(tile, amount);
+                if(added > 0f){
+                    used += added;
+                    tile.entity.noSleep();
+                }
+            }
+        }
+
+        return used;
+    }
+
+    /**
+     * Removes a tile that is about to be destroyed or replaced from this network.
+     * Links to it are removed, and the network is split if the tile was the only connection between its parts.
+     */
+    public void remove(Tile tile){
+        seeds.clear();
+        for(Tile other : getConnections(tile)){
+            if(other.entity.power.graph == this) seeds.add(other);
+        }
+
+        for(Tile node : nodes){
+            if(node.<DistributorEntity>entity().links.removeValue(tile.packedPosition()) && !seeds.contains(node, true)){
+                seeds.add(node);
+            }
+        }
+
+        all.remove(tile);
+        producers.removeValue(tile, true);
+        consumers.removeValue(tile, true);
+        batteries.removeValue(tile, true);
+        nodes.removeValue(tile, true);
+        tile.entity.power.graph = null;
+
+        split(tile);
+    }
+
+    /** Splits this network if the link between two of its tiles was the only connection between their parts. */
+    public void unlinked(Tile tile, Tile other){
+        seeds.clear();
+        seeds.add(tile);
+        if(other.entity != null && other.entity.power != null && other.entity.power.graph == this) seeds.add(other);
+
+        split(null);
+    }
+
+    /**
+     * Searches outwards from all seeds at once, one tile per search in turns. Searches that meet are joined.
+     * Once a search runs out of tiles while others are still going, it found a separate part, which is moved into a new
+     * network. Searching stops as soon as a single search is left, which keeps the rest of this network, so the cost
+     * depends on the size of the parts that were cut off instead of the size of the whole network.
+     * @param excluded A tile that is not part of the network anymore, or null.
+     */
+    private void split(Tile excluded){
+        int count = seeds.size;
+        if(count <= 1) return;
+
+        visited.clear();
+        if(searches.length < count){
+            searches = new Search[count];
+        }
+
+        for(int i = 0; i < count; i++){
+            if(searches[i] == null) searches[i] = new Search();
+            Search search = searches[i];
+            search.queue.clear();
+            search.tiles.clear();
+            search.parent = i;
+            search.done = false;
+
+            Tile seed = seeds.get(i);
+            int owner = visited.get(seed, -1);
+            if(owner == -1){
+                visited.put(seed, i);
+                search.queue.addLast(seed);
+                search.tiles.add(seed);
+            }else{
+                union(owner, i);
+            }
+        }
+
+        int running = groups(count);
+        boolean moved = false;
+
+        while(running > 1){
+            for(int i = 0; i < count && running > 1; i++){
+                Search search = searches[i];
+                if(search.done || search.queue.size == 0) continue;
+
+                Tile current = search.queue.removeFirst();
+                for(Tile other : getConnections(current)){
+                    if(other == excluded || other.entity.power.graph != this) continue;
+
+                    int owner = visited.get(other, -1);
+                    if(owner == -1){
+                        visited.put(other, i);
+                        search.queue.addLast(other);
+                        search.tiles.add(other);
+                    }else if(find(owner) != find(i)){
+                        union(owner, i);
+                        running--;
+                    }
+                }
+
+                //a group is finished once none of its searches has tiles left
+                int root = find(i);
+                if(!searches[root].done && exhausted(root, count)){
+                    searches[root].done = true;
+                    running--;
+                    moved = true;
+
+                    PowerGraph graph = new PowerGraph();
+                    for(int j = 0; j < count; j++){
+                        if(find(j) == root){
+                            for(Tile tile : searches[j].tiles){
+                                graph.add(tile);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if(!moved) return;
+
+        //drop the tiles that were moved into other networks in a single pass
+        retainOwn(producers);
+        retainOwn(consumers);
+        retainOwn(batteries);
+        retainOwn(nodes);
+        ObjectSet.ObjectSetIterator<Tile> iterator = all.iterator();
+        while(iterator.hasNext){
+            if(iterator.next().entity.power.graph != this) iterator.remove();
+        }
+    }
+
+    private void retainOwn(Array<Tile> tiles){
+        int size = 0;
+        for(int i = 0; i < tiles.size; i++){
+            Tile tile = tiles.get(i);
+            if(tile.entity.power.graph == this){
+                tiles.set(size++, tile);
+            }
+        }
+        tiles.truncate(size);
+    }
+
+    private int groups(int count){
+        int groups = 0;
+        for(int i = 0; i < count; i++){
+            if(find(i) == i) groups++;
+        }
+        return groups;
+    }
+
+    private boolean exhausted(int root, int count){
+        for(int i = 0; i < count; i++){
+            if(find(i) == root && searches[i].queue.size > 0) return false;
+        }
+        return true;
+    }
+
+    private int find(int search){
+        while(searches[search].parent != search){
+            search = searches[search].parent;
+        }
+        return search;
+    }
+
+    private void union(int a, int b){
+        int ra = find(a), rb = find(b);
+        if(ra != rb){
+            searches[Math.max(ra, rb)].parent = Math.min(ra, rb);
+        }
+    }
+
+    private void add(Tile tile){
+        if(!all.add(tile)) return;
+
+        tile.entity.power.graph = this;
+
+        if(tile.block() instanceof PowerGenerator){
+            producers.add(tile);
+        }else if(tile.block() instanceof PowerNode){
+            nodes.add(tile);
+            batteries.add(tile);
+        }else if(tile.block() instanceof PowerDistributor){
+            batteries.add(tile);
+        }else{
+            consumers.add(tile);
+        }
+    }
+
+    /** Moves all tiles from the smaller network into the larger one. */
+    private void merge(PowerGraph other){
+        PowerGraph from = other.all.size > all.size ? this : other;
+        PowerGraph into = from == this ? other : this;
+
+        for(Tile tile : from.all){
+            into.add(tile);
+        }
+    }
+
+    /** State of one search while splitting a network. */
+    private static class Search{
+        final Queue<Tile> queue = new Queue<>();
+        /** Tiles found by this search. */
+        final Array<Tile> tiles = new Array<>();
+        /** Index of the search this one was joined into, or its own index. */
+        int parent;
+        boolean done;
+    }
+}
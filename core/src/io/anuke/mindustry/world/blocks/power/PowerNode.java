@@ -67,6 +67,8 @@ public class PowerNode extends PowerBlock{
                 oe.links.add(tile.packedPosition());
             }
         }
+
+        PowerGraph.join(tile, other);
     }
 
     @Remote(targets = Loc.both, called = Loc.server, forward = true)
@@ -80,6 +82,10 @@ public class PowerNode extends PowerBlock{
 
             oe.links.removeValue(tile.packedPosition());
         }
+
+        if(entity.power.graph != null){
+            entity.power.graph.unlinked(tile, other);
+        }
     }
 
     @Override
@@ -106,7 +112,9 @@ public class PowerNode extends PowerBlock{
 
     @Override
     public void update(Tile tile){
-        distributeLaserPower(tile);
+        if(tile.entity.power.graph != null){
+            tile.entity.power.graph.update();
+        }
     }
 
     @Override
@@ -206,73 +214,6 @@ public class PowerNode extends PowerBlock{
         Draw.color();
     }
 
-    @Override
-    public float addPower(Tile tile, float amount){
-        DistributorEntity entity = tile.entity();
-
-        if(entity.lastRecieved != threads.getFrameID()){
-            entity.lastRecieved = threads.getFrameID();
-            entity.powerRecieved = 0f;
-        }
-
-        float canAccept = Math.min(powerCapacity * Timers.delta() - tile.entity.power.amount, amount);
-
-        tile.entity.power.amount += canAccept;
-        entity.powerRecieved += canAccept;
-
-        return canAccept;
-    }
-
-    protected boolean shouldDistribute(Tile tile, Tile other){
-        return other.entity.power.amount / other.block().powerCapacity <= tile.entity.power.amount / powerCapacity &&
-                !(other.block() instanceof PowerGenerator); //do not distribute to power generators
-    }
-
-    protected boolean shouldLeechPower(Tile tile, Tile other){
-        return !(other.block() instanceof PowerNode)
-                && other.block() instanceof PowerDistributor //only suck power from batteries and power generators
-                && other.entity.power.amount / other.block().powerCapacity > tile.entity.power.amount / powerCapacity;
-    }
-
-    protected void distributeLaserPower(Tile tile){
-        DistributorEntity entity = tile.entity();
-
-        if(Float.isNaN(entity.power.amount)){
-            entity.power.amount = 0f;
-        }
-
-        int targets = 0;
-
-        //validate everything first.
-        for(int i = 0; i < entity.links.size; i++){
-            Tile target = world.tile(entity.links.get(i));
-            if(!linkValid(tile, target)){
-                entity.links.removeIndex(i);
-                i--;
-            }else if(shouldDistribute(tile, target)){
-                targets++;
-            }
-        }
-
-        float result = Math.min(entity.power.amount / targets, powerSpeed * Timers.delta());
-
-        for(int i = 0; i < entity.links.size; i++){
-            Tile target = world.tile(entity.links.get(i));
-            if(targets > 0 && shouldDistribute(tile, target)){
-
-                float transmit = Math.min(result, entity.power.amount);
-                if(target.block().acceptPower(target, tile, transmit)){
-                    entity.power.amount -= target.block().addPower(target, transmit);
-                }
-            }else if(shouldLeechPower(tile, target)){
-                float diff = (target.entity.power.amount / target.block().powerCapacity - tile.entity.power.amount / powerCapacity) / 1.4f;
-                float transmit = Math.min(Math.min(target.block().powerCapacity * diff, target.entity.power.amount), powerCapacity - tile.entity.power.amount);
-                entity.power.amount += transmit;
-                target.entity.power.amount -= transmit;
-            }
-        }
-    }
-
     protected boolean linked(Tile tile, Tile other){
         return tile.<DistributorEntity>entity().links.contains(other.packedPosition());
     }
@@ -318,8 +259,8 @@ public class PowerNode extends PowerBlock{
 
     public static class DistributorEntity extends TileEntity{
         public float laserColor = 0f;
+        /** Power moved through this node in the last network update, used for the laser color. */
         public float powerRecieved = 0f;
-        public long lastRecieved = 0;
         public IntArray links = new IntArray();
 
         @Override
@@ -165,6 +165,7 @@ public class Drill extends Block{
         }
 
         if(entity.dominantItem == null){
+            entity.sleepNow();
             return;
         }
 
@@ -191,6 +192,15 @@ public class Drill extends Block{
                 Effects.effect(updateEffect, entity.x + Mathf.range(size * 2f), entity.y + Mathf.range(size * 2f));
         }else{
             entity.warmup = Mathf.lerpDelta(entity.warmup, 0f, warmupSpeed);
+
+            //full drills wait for space to dump into, drills without power or liquid wait to receive them
+            if(entity.warmup < 0.01f){
+                if(entity.items.total() > 0){
+                    entity.sleepFor(15);
+                }else{
+                    entity.sleepNow();
+                }
+            }
             return;
         }
 
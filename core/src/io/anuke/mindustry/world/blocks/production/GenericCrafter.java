@@ -107,6 +107,15 @@ public class GenericCrafter extends Block{
         if(tile.entity.timer.get(timerDump, 5)){
             tryDump(tile, output);
         }
+
+        //idle crafters wait for input; they only wake up on their own to dump leftover output
+        if(!entity.cons.valid() && entity.warmup < 0.01f){
+            if(entity.items.has(output)){
+                entity.sleepFor(5);
+            }else{
+                entity.sleepNow();
+            }
+        }
     }
 
     @Override
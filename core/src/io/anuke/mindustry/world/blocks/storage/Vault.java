@@ -20,12 +20,20 @@ public class Vault extends StorageBlock{
     @Override
     public void update(Tile tile){
         int iterations = Math.max(1, (int) (Timers.delta() + 0.4f));
+        boolean dumped = false;
 
         for(int i = 0; i < iterations; i++){
             if(tile.entity.items.total() > 0){
-                tryDump(tile);
+                dumped |= tryDump(tile);
             }
         }
+
+        //empty vaults wait for items; vaults that can't dump anything try again later
+        if(tile.entity.items.total() == 0){
+            tile.entity.sleepNow();
+        }else if(!dumped){
+            tile.entity.sleepFor(10);
+        }
     }
 
     @Override
@@ -1,5 +1,7 @@
 package io.anuke.mindustry.world.modules;
 
+import io.anuke.mindustry.world.blocks.power.PowerGraph;
+
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
@@ -8,6 +10,8 @@ public class PowerModule extends BlockModule{
     public float amount;
     public float capacity = 10f;
     public float voltage = 0.0001f;
+    /** The network this block belongs to. Null until the block has been added to the world. */
+    public PowerGraph graph;
 
     public boolean acceptsPower(){
         return amount + 0.001f <= capacity;
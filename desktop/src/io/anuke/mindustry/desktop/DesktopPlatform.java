@@ -7,6 +7,7 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Base64Coder;
 import io.anuke.kryonet.DefaultThreadImpl;
+import io.anuke.kryonet.MappedFiles;
 import io.anuke.mindustry.Vars;
 import io.anuke.mindustry.core.GameState.State;
 import io.anuke.mindustry.core.Platform;
@@ -19,6 +20,7 @@ import io.anuke.ucore.util.Strings;
 
 import java.io.File;
 import java.net.NetworkInterface;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
@@ -117,6 +119,12 @@ public class DesktopPlatform extends Platform{
         return new DefaultThreadImpl();
     }
 
+    @Override
+    public ByteBuffer mapFile(FileHandle file, int length){
+        ByteBuffer buffer = MappedFiles.mapTail(file, length);
+        return buffer == null ? super.mapFile(file, length) : buffer;
+    }
+
     @Override
     public String getUUID(){
         try{
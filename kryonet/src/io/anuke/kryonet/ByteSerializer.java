@@ -3,6 +3,7 @@ package io.anuke.kryonet;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.esotericsoftware.kryonet.FrameworkMessage;
 import com.esotericsoftware.kryonet.serialization.Serialization;
+import io.anuke.mindustry.core.Profiler;
 import io.anuke.mindustry.net.Packet;
 import io.anuke.mindustry.net.Registrator;
 import io.anuke.ucore.util.Pooling;
@@ -15,9 +16,12 @@ public class ByteSerializer implements Serialization {
 
     @Override
     public void write(ByteBuffer byteBuffer, Object o) {
+        int start = byteBuffer.position();
+
         if(o instanceof FrameworkMessage){
             byteBuffer.put((byte)-2); //code for framework message
             FrameworkSerializer.write(byteBuffer, (FrameworkMessage)o);
+            Profiler.countPacket((byte)-2, byteBuffer.position() - start);
         }else {
             if (!(o instanceof Packet))
                 throw new RuntimeException("All sent objects must implement be Packets! Class: " + o.getClass());
@@ -26,6 +30,7 @@ public class ByteSerializer implements Serialization {
                 throw new RuntimeException("Unregistered class: " + ClassReflection.getSimpleName(o.getClass()));
             byteBuffer.put(id);
             ((Packet) o).write(byteBuffer);
+            Profiler.countPacket(id, byteBuffer.position() - start);
         }
     }
 
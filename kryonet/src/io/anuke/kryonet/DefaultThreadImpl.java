@@ -1,10 +1,20 @@
 package io.anuke.kryonet;
 
+import com.badlogic.gdx.utils.Array;
 import io.anuke.mindustry.core.ThreadHandler.ThreadProvider;
 import io.anuke.ucore.util.Log;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
 public class DefaultThreadImpl implements ThreadProvider {
     private Thread thread;
+    private ForkJoinPool pool;
+    private ForkJoinTask<?>[] running = {};
+    private ExecutorService background;
 
     @Override
     public boolean isOnThread() {
@@ -48,4 +58,63 @@ public class DefaultThreadImpl implements ThreadProvider {
         object.notify();
     }
 
+    @Override
+    public void runParallel(Array<Runnable> tasks){
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        if(tasks.size <= 1 || threads <= 1){
+            ThreadProvider.super.runParallel(tasks);
+            return;
+        }
+
+        if(pool == null){
+            pool = new ForkJoinPool(threads);
+        }
+
+        if(running.length < tasks.size){
+            running = new ForkJoinTask[tasks.size];
+        }
+
+        //run the last task on this thread instead of idling
+        for(int i = 0; i < tasks.size - 1; i++){
+            running[i] = pool.submit(tasks.get(i));
+        }
+
+        tasks.peek().run();
+
+        for(int i = 0; i < tasks.size - 1; i++){
+            running[i].join();
+            running[i] = null;
+        }
+    }
+
+    @Override
+    public synchronized void runBackground(Runnable task){
+        if(background == null){
+            background = Executors.newSingleThreadExecutor(run -> {
+                Thread thread = new Thread(run);
+                thread.setDaemon(true);
+                thread.setName("Background Thread");
+                return thread;
+            });
+        }
+
+        background.submit(task);
+    }
+
+    @Override
+    public synchronized void finishBackground(){
+        if(background == null) return;
+
+        //background threads are daemons, so saves still being written would otherwise be cut off on exit
+        background.shutdown();
+        try{
+            if(!background.awaitTermination(30, TimeUnit.SECONDS)){
+                Log.err("Background tasks did not finish in time.");
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        background = null;
+    }
 }
@@ -27,14 +27,21 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedSelectorException;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class KryoServer implements ServerProvider {
+    /** Maximum amount of streams that are prepared at once. Further streams wait for one of these to finish. */
+    private static final int maxStreamThreads = 2;
+
     final boolean tcpOnly = System.getProperty("java.version") == null;
     final Server server;
     final CopyOnWriteArrayList<KryoConnection> connections = new CopyOnWriteArrayList<>();
     final CopyOnWriteArraySet<Integer> missing = new CopyOnWriteArraySet<>();
     final Array<KryoConnection> array = new Array<>();
     Thread serverThread;
+    /** Compresses and chunks streams, such as world data for joining players. */
+    ExecutorService streamExecutor;
 
     int lastconnection = 0;
 
@@ -162,50 +169,57 @@ public class KryoServer implements ServerProvider {
     public void sendStream(int id, Streamable stream) {
         KryoConnection connection = getByID(id);
         if(connection == null) return;
-        try {
-
-            if (connection.connection != null) {
 
-                connection.connection.addListener(new InputStreamSender(stream.stream, 512) {
-                    int id;
+        //compression and chunking can take a while for large streams, so it is done off the main thread
+        async(() -> {
+            try {
+                stream.prepare();
+                int chunkSize = Streamable.chunkSize(stream.stream.available());
+
+                if (connection.connection != null) {
+
+                    connection.connection.addListener(new InputStreamSender(stream.stream, chunkSize) {
+                        int id;
+
+                        protected void start() {
+                            //send an object so the receiving side knows how to handle the following chunks
+                            StreamBegin begin = new StreamBegin();
+                            begin.total = stream.stream.available();
+                            begin.type = stream.getClass();
+                            connection.connection.sendTCP(begin);
+                            id = begin.id;
+                        }
+
+                        protected Object next(byte[] bytes) {
+                            StreamChunk chunk = new StreamChunk();
+                            chunk.id = id;
+                            chunk.data = bytes;
+                            return chunk; //wrap the byte[] with an object so the receiving side knows how to handle it.
+                        }
+                    });
+                } else {
+                    int cid;
+                    StreamBegin begin = new StreamBegin();
+                    begin.total = stream.stream.available();
+                    begin.type = stream.getClass();
+                    connection.send(begin, SendMode.tcp);
+                    cid = begin.id;
 
-                    protected void start() {
-                        //send an object so the receiving side knows how to handle the following chunks
-                        StreamBegin begin = new StreamBegin();
-                        begin.total = stream.stream.available();
-                        begin.type = stream.getClass();
-                        connection.connection.sendTCP(begin);
-                        id = begin.id;
-                    }
+                    while (stream.stream.available() > 0) {
+                        byte[] bytes = new byte[Math.min(chunkSize, stream.stream.available())];
+                        stream.stream.read(bytes);
 
-                    protected Object next(byte[] bytes) {
                         StreamChunk chunk = new StreamChunk();
-                        chunk.id = id;
+                        chunk.id = cid;
                         chunk.data = bytes;
-                        return chunk; //wrap the byte[] with an object so the receiving side knows how to handle it.
+                        connection.send(chunk, SendMode.tcp);
                     }
-                });
-            } else {
-                int cid;
-                StreamBegin begin = new StreamBegin();
-                begin.total = stream.stream.available();
-                begin.type = stream.getClass();
-                connection.send(begin, SendMode.tcp);
-                cid = begin.id;
-
-                while (stream.stream.available() > 0) {
-                    byte[] bytes = new byte[Math.min(512, stream.stream.available())];
-                    stream.stream.read(bytes);
-
-                    StreamChunk chunk = new StreamChunk();
-                    chunk.id = cid;
-                    chunk.data = bytes;
-                    connection.send(chunk, SendMode.tcp);
                 }
+            }catch (Exception e){
+                Log.err("Failed to send stream to connection {0}.", id);
+                Log.err(e);
             }
-        }catch (IOException e){
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     @Override
@@ -256,10 +270,18 @@ public class KryoServer implements ServerProvider {
         return null;
     }
 
-    void async(Runnable run){
-        Thread thread = new Thread(run);
-        thread.setDaemon(true);
-        thread.start();
+    /** Runs a task on the stream threads, which are shared by all connections and created when first needed. */
+    synchronized void async(Runnable run){
+        if(streamExecutor == null){
+            streamExecutor = Executors.newFixedThreadPool(maxStreamThreads, task -> {
+                Thread thread = new Thread(task);
+                thread.setDaemon(true);
+                thread.setName("Stream Thread");
+                return thread;
+            });
+        }
+
+        streamExecutor.execute(run);
     }
 
     class KryoConnection extends NetConnection{
@@ -0,0 +1,35 @@
+package io.anuke.kryonet;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import io.anuke.ucore.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**Maps files into memory for {@link io.anuke.mindustry.core.Platform#mapFile(FileHandle, int)}.*/
+public class MappedFiles{
+
+    /**
+     * Maps the last bytes of a file into memory. Returns null if the file is not on the file system, is shorter than
+     * the requested length or can't be mapped.
+     */
+    public static ByteBuffer mapTail(FileHandle handle, int length){
+        if(handle.type() == FileType.Classpath) return null;
+
+        File file = handle.file();
+        if(!file.isFile() || file.length() < length) return null;
+
+        //the mapping stays valid after the channel is closed
+        try(RandomAccessFile access = new RandomAccessFile(file, "r"); FileChannel channel = access.getChannel()){
+            return channel.map(MapMode.READ_ONLY, channel.size() - length, length);
+        }catch(IOException e){
+            Log.err(e);
+            return null;
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package io.anuke.mindustry.server;
 
+import com.badlogic.gdx.files.FileHandle;
+import io.anuke.kryonet.DefaultThreadImpl;
+import io.anuke.kryonet.MappedFiles;
 import io.anuke.mindustry.Vars;
 import io.anuke.mindustry.core.ContentLoader;
 import io.anuke.mindustry.core.Logic;
 import io.anuke.mindustry.core.NetServer;
+import io.anuke.mindustry.core.Platform;
+import io.anuke.mindustry.core.ThreadHandler.ThreadProvider;
 import io.anuke.mindustry.core.World;
 import io.anuke.mindustry.game.Content;
 import io.anuke.mindustry.io.BundleLoader;
 import io.anuke.ucore.modules.ModuleCore;
 
+import java.nio.ByteBuffer;
+
 import static io.anuke.mindustry.Vars.*;
 
 public class MindustryServer extends ModuleCore{
@@ -20,6 +27,25 @@ public class MindustryServer extends ModuleCore{
 
     @Override
     public void init(){
+        Platform.instance = new Platform(){
+            @Override
+            public ThreadProvider getThreadProvider(){
+                //logic always runs on the main server thread; only the worker pool is used
+                return new DefaultThreadImpl(){
+                    @Override
+                    public boolean isOnThread(){
+                        return true;
+                    }
+                };
+            }
+
+            @Override
+            public ByteBuffer mapFile(FileHandle file, int length){
+                ByteBuffer buffer = MappedFiles.mapTail(file, length);
+                return buffer == null ? super.mapFile(file, length) : buffer;
+            }
+        };
+
         Vars.init();
 
         headless = true;
@@ -31,6 +57,18 @@ public class MindustryServer extends ModuleCore{
         module(logic = new Logic());
         module(world = new World());
         module(netServer = new NetServer());
+        start(args);
+    }
+
+    @Override
+    public void dispose(){
+        super.dispose();
+        //finish writing saves and replays that are still in progress
+        threads.finishBackground();
+    }
+
+    /** Called once all game modules are created. Opens the server console by default. */
+    protected void start(String[] args){
         module(new ServerControl(args));
     }
 }
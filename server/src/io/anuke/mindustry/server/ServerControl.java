@@ -1,9 +1,11 @@
 package io.anuke.mindustry.server;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.core.Profiler;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.game.Difficulty;
 import io.anuke.mindustry.game.EventType.GameOverEvent;
@@ -36,6 +38,12 @@ import static io.anuke.ucore.util.Log.*;
 public class ServerControl extends Module{
     private final CommandHandler handler = new CommandHandler("");
     private ShuffleMode mode;
+    /** File that profiler metrics are periodically written to, or null if they are not exported. */
+    private FileHandle metricsFile;
+    /** Interval between metrics exports, in milliseconds. Wall-clock time, so exports continue in the menu or while paused. */
+    private final long metricsInterval = 10 * 1000;
+    /** Time of the last metrics export, in milliseconds. */
+    private long lastMetricsExport;
 
     public ServerControl(String[] args){
         Settings.defaultList(
@@ -133,11 +141,13 @@ public class ServerControl extends Module{
 
         handler.register("exit", "Exit the server application.", arg -> {
             info("Shutting down server.");
+            netServer.stopRecording();
             Net.dispose();
             Gdx.app.exit();
         });
 
         handler.register("stop", "Stop hosting the server.", arg -> {
+            netServer.stopRecording();
             Net.closeServer();
             state.set(State.menu);
             netServer.reset();
@@ -612,6 +622,55 @@ public class ServerControl extends Module{
             info(DebugFragment.debugInfo());
         });
 
+        handler.register("profile", "[clear/export/off] [file]", "Print tick, network and entity statistics, or export them as Prometheus metrics.", arg -> {
+            if(arg.length == 0){
+                if(!Profiler.enabled){
+                    Profiler.enabled = true;
+                    info("Profiler enabled.");
+                }
+                info(Profiler.report());
+            }else if(arg[0].equals("clear")){
+                Profiler.clear();
+                info("Profiler cleared.");
+            }else if(arg[0].equals("export")){
+                if(arg.length < 2){
+                    err("Specify a file to write metrics to.");
+                    return;
+                }
+
+                metricsFile = Gdx.files.absolute(arg[1]);
+                Profiler.enabled = true;
+                info("Writing metrics to &lc{0}&ly every {1} seconds.", metricsFile.path(), metricsInterval / 1000);
+            }else if(arg[0].equals("off")){
+                Profiler.enabled = false;
+                metricsFile = null;
+                info("Profiler disabled.");
+            }else{
+                err("Invalid argument. Use 'clear', 'export' or 'off'.");
+            }
+        });
+
+        handler.register("record", "<file/off>", "Record a replay of all player input to a file.", arg -> {
+            if(arg[0].equals("off")){
+                if(!netServer.isRecording()){
+                    err("Not recording.");
+                    return;
+                }
+
+                netServer.stopRecording();
+                info("Recording stopped.");
+                return;
+            }
+
+            if(!state.is(State.playing)){
+                err("Open the server first.");
+                return;
+            }
+
+            netServer.startRecording(Gdx.files.absolute(arg[0]));
+            info("Recording to &lc{0}&ly.", arg[0]);
+        });
+
         handler.register("traceblock", "<x> <y>", "Prints debug info about a block", arg -> {
             try{
                 int x = Integer.parseInt(arg[0]);
@@ -746,29 +805,76 @@ public class ServerControl extends Module{
             }
         });
 
-        handler.register("rollback", "<amount>", "Rollback the block edits in the world", arg -> {
+        handler.register("rollback", "<amount> [player...]", "Rollback the latest block edits in the world, optionally only those of one player.", arg -> {
             if(!state.is(State.playing)){
                 err("Open the server first.");
                 return;
             }
 
             if(!Strings.canParsePostiveInt(arg[0])){
-                err("Please input a valid, positive, number of times to rollback");
+                err("Please input a valid, positive, number of edits to rollback");
                 return;
             }
 
-            int rollbackTimes = Integer.valueOf(arg[0]);
-            IntMap<Array<EditLog>> editLogs = netServer.admins.getEditLogs();
-            if(editLogs.size == 0){
+            int amount = Strings.parseInt(arg[0]);
+            EditJournal edits = netServer.admins.getEdits();
+            if(edits.size() == 0){
                 err("Nothing to rollback!");
                 return;
             }
 
-            //netServer.admins.rollbackWorld(rollbackTimes);
-            info("Rollback done!");
+            int undone;
+            if(arg.length > 1){
+                String uuid = edits.findPlayer(arg[1]);
+                if(uuid == null){
+                    err("No edits by a player named '{0}' found.", arg[1]);
+                    return;
+                }
+                undone = edits.rollback(uuid, amount);
+            }else{
+                undone = edits.rollback(amount);
+            }
+
+            info("Rolled back {0} edits.", undone);
+        });
+
+        handler.register("rollbackarea", "<x> <y> <amount>", "Rollback the latest block edits in the " + EditJournal.regionSize + "x" + EditJournal.regionSize + " area containing a tile.", arg -> {
+            if(!state.is(State.playing)){
+                err("Open the server first.");
+                return;
+            }
+
+            if(!Strings.canParseInt(arg[0]) || !Strings.canParseInt(arg[1]) || world.tile(Strings.parseInt(arg[0]), Strings.parseInt(arg[1])) == null){
+                err("Please input a valid tile position.");
+                return;
+            }
+
+            if(!Strings.canParsePostiveInt(arg[2])){
+                err("Please input a valid, positive, number of edits to rollback");
+                return;
+            }
+
+            int undone = netServer.admins.getEdits().rollback(Strings.parseInt(arg[0]), Strings.parseInt(arg[1]), Strings.parseInt(arg[2]));
+            info("Rolled back {0} edits.", undone);
         });
     }
 
+    @Override
+    public void update(){
+        if(metricsFile != null && TimeUtils.timeSinceMillis(lastMetricsExport) >= metricsInterval){
+            lastMetricsExport = TimeUtils.millis();
+            FileHandle file = metricsFile;
+            String metrics = Profiler.metrics();
+
+            //write the whole file at once, so that scrapers never read a partial export
+            threads.runBackground(() -> {
+                FileHandle temp = file.sibling(file.name() + ".tmp");
+                temp.writeString(metrics, false);
+                temp.moveTo(file);
+            });
+        }
+    }
+
     private void readCommands(){
         Scanner scan = new Scanner(System.in);
         while(true){
@@ -0,0 +1,278 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.core.Profiler;
+import io.anuke.mindustry.core.Profiler.Phase;
+import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.game.EventType.GameOverEvent;
+import io.anuke.mindustry.io.SaveIO;
+import io.anuke.mindustry.maps.Map;
+import io.anuke.mindustry.net.ReplayPlayer;
+import io.anuke.mindustry.world.TileStore;
+import io.anuke.ucore.core.Events;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.entities.impl.DestructibleEntity;
+import io.anuke.ucore.entities.trait.PosTrait;
+import io.anuke.ucore.modules.Module;
+import io.anuke.ucore.util.OS;
+import io.anuke.ucore.util.Strings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static io.anuke.mindustry.Vars.*;
+import static io.anuke.ucore.util.Log.*;
+
+/**
+ * Runs a map or save without networking, with a fixed delta and as fast as the CPU allows, for soak and regression testing.
+ * <p>
+ * Arguments are key=value pairs:
+ * <ul>
+ * <li>map: name of a map to load, or 'sector' for the first sector. Defaults to 'sector'.</li>
+ * <li>save: path of a save file to load instead of a map.</li>
+ * <li>replay: path of a replay recorded by the server to play back instead of a map.</li>
+ * <li>ticks: amount of logic updates to run. Defaults to 36000, or 10 minutes of game time, or the length of the replay.</li>
+ * <li>wave-interval: spawns a wave every this many ticks instead of using the wave timer. 0 keeps the wave timer.</li>
+ * <li>seed: seed of the shared random number generator. Defaults to 0. Replays use the seed they were recorded with.</li>
+ * <li>trace: path of a CSV file to write a line to per tick.</li>
+ * <li>hash-interval: how often the world hash is written to the trace, in ticks. Defaults to 600.</li>
+ * </ul>
+ * The delta is fixed, all randomness is seeded and the pathfinder processes a fixed amount of tiles per update instead
+ * of running for a fixed time, so that the same arguments are meant to produce the same world hash on every run.
+ */
+public class SimulationRunner extends Module{
+    /** Flow field tiles the pathfinder processes per update, so that its progress does not depend on CPU speed. */
+    private static final int pathNodesPerTick = 4096;
+
+    private final String map, save, replayPath, tracePath;
+    private final int ticks, waveInterval, hashInterval;
+    private final long seed;
+
+    private Writer trace;
+    private ReplayPlayer replay;
+    private boolean loaded, done;
+    private int tick;
+    private long lastFrame, totalFrameTime, maxFrameTime, totalLogicTime, maxLogicTime;
+
+    public SimulationRunner(String[] args){
+        ObjectMap<String, String> options = new ObjectMap<>();
+        for(String arg : args){
+            int index = arg.indexOf('=');
+            if(index == -1){
+                err("Invalid argument '{0}'. Arguments must be in the form key=value.", arg);
+                System.exit(1);
+            }
+            options.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+
+        map = options.get("map", "sector");
+        save = options.get("save");
+        replayPath = options.get("replay");
+        tracePath = options.get("trace");
+        ticks = parse(options, "ticks", replayPath != null ? Integer.MAX_VALUE : 60 * 60 * 10);
+        waveInterval = parse(options, "wave-interval", 0);
+        hashInterval = Math.max(parse(options, "hash-interval", 600), 1);
+        seed = parse(options, "seed", 0);
+
+        Events.on(GameOverEvent.class, () -> {
+            info("Game over at tick {0}.", tick);
+            finish();
+        });
+    }
+
+    public static void main(String[] args){
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.preferencesDirectory = OS.getAppDataDirectoryString("Mindustry");
+        //update as fast as possible; the logic delta is fixed, so this does not change the result
+        config.renderInterval = 0f;
+
+        new ServerLauncher(new MindustryServer(args){
+            @Override
+            protected void start(String[] args){
+                module(new SimulationRunner(args));
+            }
+        }, config);
+    }
+
+    @Override
+    public void update(){
+        if(done) return;
+
+        if(!loaded){
+            load();
+            loaded = true;
+            lastFrame = TimeUtils.nanoTime();
+            if(replay != null) replay.update();
+            return;
+        }
+
+        long now = TimeUtils.nanoTime();
+        long frameTime = now - lastFrame, logicTime = Profiler.last(Phase.tick);
+        lastFrame = now;
+        tick++;
+
+        totalFrameTime += frameTime;
+        totalLogicTime += logicTime;
+        maxFrameTime = Math.max(maxFrameTime, frameTime);
+        maxLogicTime = Math.max(maxLogicTime, logicTime);
+
+        if(waveInterval > 0 && tick % waveInterval == 0){
+            logic.runWave();
+        }
+
+        if(trace != null){
+            Runtime runtime = Runtime.getRuntime();
+            write(tick + "," + state.wave + "," + logicTime + "," + frameTime + "," + (runtime.totalMemory() - runtime.freeMemory()) + ","
+                + entityCount() + "," + (tick % hashInterval == 0 ? Long.toHexString(hash()) : "") + "\n");
+        }
+
+        //apply input recorded for the next update
+        if(replay != null){
+            replay.update();
+        }
+
+        if(tick >= ticks || (replay != null && replay.isDone())){
+            finish();
+        }
+    }
+
+    private void load(){
+        MathUtils.random.setSeed(seed);
+        world.pathfinder().setNodeBudget(pathNodesPerTick);
+
+        if(replayPath != null){
+            replay = new ReplayPlayer(Gdx.files.absolute(replayPath));
+        }else if(save != null){
+            SaveIO.load(Gdx.files.absolute(save));
+            state.set(State.playing);
+        }else if(map.equals("sector")){
+            world.loadSector(world.sectors().get(0, 0));
+            logic.play();
+        }else{
+            Map result = world.maps().getByName(map);
+            if(result == null){
+                err("No map with name '{0}' found.", map);
+                System.exit(1);
+            }
+
+            logic.reset();
+            world.loadMap(result);
+            logic.play();
+        }
+
+        if(waveInterval > 0){
+            state.wavetime = Float.MAX_VALUE;
+        }
+
+        if(tracePath != null){
+            trace = new BufferedWriter(Gdx.files.absolute(tracePath).writer(false));
+            write("tick,wave,logic_ns,frame_ns,heap_bytes,entities,hash\n");
+        }
+
+        Profiler.clear();
+        info("Running {0} with seed {1}.", replayPath != null ? replayPath : save != null ? save : map, seed);
+    }
+
+    private void finish(){
+        if(done) return;
+        done = true;
+
+        if(trace != null){
+            try{
+                trace.close();
+            }catch(IOException e){
+                err(e);
+            }
+        }
+
+        int count = Math.max(tick, 1);
+        info("Ran {0} ticks, reached wave {1}.", tick, state.wave);
+        info("Logic update: average {0} ms, max {1} ms.", millis(totalLogicTime / count), millis(maxLogicTime));
+        info("Frame: average {0} ms, max {1} ms.", millis(totalFrameTime / count), millis(maxFrameTime));
+        info("World hash: {0}", Long.toHexString(hash()));
+
+        Gdx.app.exit();
+    }
+
+    /** Hashes tiles, the state of tile entities, and the position and health of all other entities. */
+    private long hash(){
+        long hash = 17;
+        TileStore tiles = world.getTiles();
+
+        for(int i = 0; i < tiles.size(); i++){
+            hash = hash * 31 + tiles.floors[i];
+            hash = hash * 31 + tiles.blocks[i];
+            hash = hash * 31 + tiles.rotations[i];
+            hash = hash * 31 + tiles.teams[i];
+            hash = hash * 31 + tiles.links[i];
+        }
+
+        Array<TileEntity> entities = tileGroup.all();
+        for(int i = 0; i < entities.size; i++){
+            TileEntity entity = entities.get(i);
+            hash = hash * 31 + Float.floatToIntBits(entity.health);
+            if(entity.items != null) hash = hash * 31 + entity.items.total();
+        }
+
+        for(EntityGroup<?> group : unitGroups){
+            hash = hash(hash, group);
+        }
+        hash = hash(hash, playerGroup);
+        hash = hash(hash, bulletGroup);
+
+        return hash * 31 + state.wave;
+    }
+
+    private long hash(long hash, EntityGroup<?> group){
+        Array<?> all = group.all();
+        for(int i = 0; i < all.size; i++){
+            Object entity = all.get(i);
+            if(entity instanceof PosTrait){
+                hash = hash * 31 + Float.floatToIntBits(((PosTrait) entity).getX());
+                hash = hash * 31 + Float.floatToIntBits(((PosTrait) entity).getY());
+            }
+            if(entity instanceof DestructibleEntity){
+                hash = hash * 31 + Float.floatToIntBits(((DestructibleEntity) entity).health);
+            }
+        }
+        return hash;
+    }
+
+    private int entityCount(){
+        int count = tileGroup.size() + playerGroup.size() + bulletGroup.size() + puddleGroup.size() + fireGroup.size() + itemGroup.size();
+        for(EntityGroup<?> group : unitGroups){
+            count += group.size();
+        }
+        return count;
+    }
+
+    private void write(String line){
+        try{
+            trace.write(line);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String millis(long nanos){
+        return Strings.toFixed(nanos / 1000000f, 3);
+    }
+
+    private static int parse(ObjectMap<String, String> options, String key, int defaultValue){
+        String value = options.get(key);
+        if(value == null) return defaultValue;
+
+        if(!Strings.canParseInt(value)){
+            err("Invalid number for '{0}': {1}", key, value);
+            System.exit(1);
+        }
+        return Strings.parseInt(value);
+    }
+}